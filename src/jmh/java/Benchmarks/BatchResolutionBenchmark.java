@@ -0,0 +1,69 @@
+package Benchmarks;
+
+import Repositories.VersionRangeResolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving the dependencies of each target package one edge at a time with resolving them as one batch, like
+ * the linkage parser does. Edges of the corpus are grouped by their target package, each edge gets a synthetic source
+ * artifact id. The resolver is cleared before each operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchResolutionBenchmark {
+
+    @Param({"maven", "npm", "pypi", "nuget"})
+    public String repository;
+
+    @Param({"single", "batch"})
+    public String mode;
+
+    // Version sets are shared per target, so they are used as identity of the target package
+    private final Map<Set<String>, List<Map.Entry<String, String>>> dependenciesByTarget = new IdentityHashMap<>();
+    private VersionRangeResolver<?> resolver;
+
+    @Setup(Level.Trial)
+    public void loadCorpus() {
+        Corpus corpus = Corpus.load(repository);
+        int sourceId = 0;
+
+        for(Corpus.Edge edge : corpus.getEdges()){
+            dependenciesByTarget.computeIfAbsent(corpus.getVersions(edge.Target), v -> new ArrayList<>())
+                    .add(Map.entry("artifact-" + sourceId++, edge.Spec));
+        }
+
+        resolver = VersionRangeResolverBenchmark.createResolver(repository);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        resolver.clear();
+    }
+
+    @Benchmark
+    public void resolveDependencies(Blackhole bh) {
+        for(Map.Entry<Set<String>, List<Map.Entry<String, String>>> target : dependenciesByTarget.entrySet()){
+            if(mode.equals("batch")){
+                bh.consume(resolver.findMatchingVersions(target.getValue(), target.getKey()));
+            } else {
+                List<Map.Entry<String, String>> edges = new ArrayList<>();
+
+                for(Map.Entry<String, String> dependency : target.getValue()){
+                    for(String version : resolver.findMatchingVersions(dependency.getValue(), target.getKey())){
+                        edges.add(Map.entry(dependency.getKey(), version));
+                    }
+                }
+
+                bh.consume(edges);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package Benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Benchmark corpus for one repository, loaded from the test resources at /corpora. A corpus consists of the release
+ * histories of a number of target packages (&lt;repo&gt;-versions.txt) and a list of dependency edges pointing to those
+ * packages (&lt;repo&gt;-ranges.txt). Lines starting with '#' are comments.
+ */
+public class Corpus {
+
+    private final Map<String, Set<String>> versionsByPackage = new LinkedHashMap<>();
+    private final List<Edge> edges = new ArrayList<>();
+
+    /**
+     * Loads the corpus for the given repository name.
+     * @param repositoryName Name of the repository, e.g. 'npm'
+     * @return Corpus holding all target version sets and dependency edges
+     */
+    public static Corpus load(String repositoryName) {
+        Corpus corpus = new Corpus();
+
+        for(String[] line : readLines("/corpora/" + repositoryName + "-versions.txt")){
+            corpus.versionsByPackage.put(line[0], Set.of(line[1].trim().split("\\s+")));
+        }
+
+        for(String[] line : readLines("/corpora/" + repositoryName + "-ranges.txt")){
+            if(!corpus.versionsByPackage.containsKey(line[0]))
+                throw new IllegalStateException("Corpus edge references unknown target package: " + line[0]);
+
+            corpus.edges.add(new Edge(line[0], line[1]));
+        }
+
+        return corpus;
+    }
+
+    private static List<String[]> readLines(String resource) {
+        List<String[]> lines = new ArrayList<>();
+
+        try(InputStream in = Corpus.class.getResourceAsStream(resource)){
+            if(in == null) throw new IllegalStateException("Missing benchmark corpus: " + resource);
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while((line = reader.readLine()) != null){
+                if(line.isBlank() || line.startsWith("#")) continue;
+
+                String[] parts = line.split("\t", 2);
+                lines.add(new String[]{ parts[0], parts.length > 1 ? parts[1] : "" });
+            }
+        } catch (IOException iox){
+            throw new IllegalStateException("Failed to read benchmark corpus: " + resource, iox);
+        }
+
+        return lines;
+    }
+
+    /**
+     * Retrieves the version set of the given target package.
+     * @param packageName Target package name
+     * @return Set of all versions of that package
+     */
+    public Set<String> getVersions(String packageName) {
+        return versionsByPackage.get(packageName);
+    }
+
+    /**
+     * Retrieves all dependency edges of this corpus, in file order.
+     * @return List of edges
+     */
+    public List<Edge> getEdges() {
+        return edges;
+    }
+
+    /**
+     * A single dependency edge, i.e. a version range specification pointing to a target package.
+     */
+    public static class Edge {
+        public final String Target;
+        public final String Spec;
+
+        public Edge(String target, String spec) {
+            Target = target;
+            Spec = spec;
+        }
+    }
+}
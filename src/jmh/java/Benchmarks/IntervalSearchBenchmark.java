@@ -0,0 +1,81 @@
+package Benchmarks;
+
+import Repositories.ParsedVersion;
+import Repositories.VersionInterval;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares locating version intervals in the sorted versions of a package by evaluating the interval's bound predicates
+ * with locating them via packed numeric version keys. For every package of the corpus, one caret-like interval
+ * (>= version, same major) is built per version of that package. One operation locates all intervals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IntervalSearchBenchmark {
+
+    @Param({"maven", "npm", "pypi"})
+    public String repository;
+
+    private final List<ParsedVersion[]> sortedVersions = new ArrayList<>();
+    private final List<long[]> packedKeys = new ArrayList<>();
+    private final List<List<VersionInterval>> intervals = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void loadCorpus() {
+        Corpus corpus = Corpus.load(repository);
+        Set<Set<String>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for(Corpus.Edge edge : corpus.getEdges()){
+            Set<String> versions = corpus.getVersions(edge.Target);
+            if(versions == null || !seen.add(versions)) continue;
+
+            ParsedVersion[] sorted = versions.stream().map(ParsedVersion::of)
+                    .sorted(VersionInterval.SEGMENT_NUMBER_ORDER).toArray(ParsedVersion[]::new);
+            long[] keys = VersionInterval.packKeys(sorted);
+            if(keys == null) continue;
+
+            List<VersionInterval> packageIntervals = new ArrayList<>();
+            for(ParsedVersion bound : sorted){
+                int segments = Math.min(bound.getSegmentCount(), VersionInterval.ORDERED_SEGMENTS);
+                packageIntervals.addAll(VersionInterval.forSegmentCounts(VersionInterval.aboveNumbers(bound, segments, true)
+                        .intersect(VersionInterval.belowNumbers(bound, 1, true)), segments));
+            }
+
+            sortedVersions.add(sorted);
+            packedKeys.add(keys);
+            intervals.add(packageIntervals);
+        }
+    }
+
+    @Benchmark
+    public void predicates(Blackhole bh) {
+        for(int p = 0; p < intervals.size(); p++){
+            ParsedVersion[] versions = sortedVersions.get(p);
+
+            for(VersionInterval interval : intervals.get(p)){
+                bh.consume(interval.firstIndexIn(versions));
+                bh.consume(interval.endIndexIn(versions));
+            }
+        }
+    }
+
+    @Benchmark
+    public void packedKeys(Blackhole bh) {
+        for(int p = 0; p < intervals.size(); p++){
+            long[] keys = packedKeys.get(p);
+
+            for(VersionInterval interval : intervals.get(p)){
+                bh.consume(interval.firstIndexIn(keys));
+                bh.consume(interval.endIndexIn(keys));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package Benchmarks;
+
+import Repositories.VersionRangeResolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of parsing version range specifications for all built-in resolvers. One operation resolves every
+ * distinct specification of the repository's corpus against an empty version set, so that no containment checks are
+ * performed. The resolver is cleared before each operation, hence every specification is classified and parsed again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RangeSpecParsingBenchmark {
+
+    @Param({"maven", "npm", "pypi", "nuget"})
+    public String repository;
+
+    private final Set<String> noVersions = Set.of();
+
+    private List<String> specs;
+    private VersionRangeResolver<?> resolver;
+
+    @Setup(Level.Trial)
+    public void loadCorpus() {
+        Set<String> distinctSpecs = new LinkedHashSet<>();
+        for(Corpus.Edge edge : Corpus.load(repository).getEdges()) distinctSpecs.add(edge.Spec);
+
+        specs = new ArrayList<>(distinctSpecs);
+        resolver = VersionRangeResolverBenchmark.createResolver(repository);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        resolver.clear();
+    }
+
+    @Benchmark
+    public void parseSpecs(Blackhole bh) {
+        for(String spec : specs){
+            bh.consume(resolver.findMatchingVersions(spec, noVersions));
+        }
+    }
+}
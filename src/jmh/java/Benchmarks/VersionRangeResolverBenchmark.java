@@ -0,0 +1,75 @@
+package Benchmarks;
+
+import Repositories.Maven.MavenVersionRangeResolver;
+import Repositories.NPM.NpmVersionRangeResolver;
+import Repositories.Nuget.NugetVersionRangeResolver;
+import Repositories.PyPi.PyPiVersionRangeResolver;
+import Repositories.VersionRangeResolver;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures VersionRangeResolver.findMatchingVersions for all built-in resolvers. One operation resolves every dependency
+ * edge of the repository's corpus against the version set of its target package. With a 'cold' cache the resolver is
+ * cleared before each operation, with a 'warm' cache all representations and containment results have been computed
+ * before measuring. The 'linear' resolution checks every version individually instead of using sorted intervals. Run with
+ * '-prof gc' (default for the benchmark profile) to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VersionRangeResolverBenchmark {
+
+    @Param({"maven", "npm", "pypi", "nuget"})
+    public String repository;
+
+    @Param({"cold", "warm"})
+    public String cache;
+
+    @Param({"interval", "linear"})
+    public String resolution;
+
+    private Corpus corpus;
+    private VersionRangeResolver<?> resolver;
+
+    @Setup(Level.Trial)
+    public void loadCorpus() {
+        corpus = Corpus.load(repository);
+        resolver = createResolver(repository);
+        resolver.setIntervalResolutionEnabled(resolution.equals("interval"));
+
+        if(cache.equals("warm")) resolveAll(null);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareCache() {
+        if(cache.equals("cold")) resolver.clear();
+    }
+
+    @Benchmark
+    public void findMatchingVersions(Blackhole bh) {
+        resolveAll(bh);
+    }
+
+    private void resolveAll(Blackhole bh) {
+        for(Corpus.Edge edge : corpus.getEdges()){
+            Object result = resolver.findMatchingVersions(edge.Spec, corpus.getVersions(edge.Target));
+            if(bh != null) bh.consume(result);
+        }
+    }
+
+    static VersionRangeResolver<?> createResolver(String repositoryName) {
+        return switch (repositoryName) {
+            case "maven" -> new MavenVersionRangeResolver();
+            case "npm" -> new NpmVersionRangeResolver();
+            case "pypi" -> new PyPiVersionRangeResolver();
+            case "nuget" -> new NugetVersionRangeResolver();
+            default -> throw new IllegalArgumentException("No resolver for repository: " + repositoryName);
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package Application;
 
+import Database.GraphSink;
 import Database.Neo4jDatabaseController;
 import Model.Linkage;
 import Repositories.Miner;
@@ -13,6 +14,9 @@ import Model.Package;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import Utilities.AdaptiveConcurrencyLimiter;
+import Utilities.HttpUtilities;
+import Utilities.StageExecutor;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
@@ -31,13 +35,20 @@ public class MinerScheduler {
 
     private final boolean isInUpdateMode;
     private final Miner miner;
-    private final Neo4jDatabaseController neo4jDatabaseController;
+    private final GraphSink graphSink;
     private final int bufferSize;
     private final int parallel;
+    private final int storageParallel;
+    private final int maxParallel;
+    private final boolean adaptiveParallel;
     public final List<String> names;
     private final int noOfNames;
     public Long startTime;
     private ActorSystem system;
+    private StageExecutor mineExecutor;
+    private StageExecutor parseExecutor;
+    private StageExecutor storageExecutor;
+    private AdaptiveConcurrencyLimiter miningLimiter;
     private final AtomicInteger completedPackageCounter;
     private final AtomicInteger lastPrintoutPercentage;
     private boolean finishedMining;
@@ -51,15 +62,18 @@ public class MinerScheduler {
      * Constructor of Scheduler
      * @param source String list of package identifiers, base of miner
      * @param miner Implementation of Miner interface
-     * @param neo4jDatabaseController DatabaseController for writing nodes and edges
+     * @param graphSink Sink for writing nodes and edges
      */
-    public MinerScheduler(List<String> source, Miner miner, Neo4jDatabaseController neo4jDatabaseController, boolean updateModeEnabled) {
+    public MinerScheduler(List<String> source, Miner miner, GraphSink graphSink, boolean updateModeEnabled) {
         this.names = source;
         this.noOfNames = names.size();
-        this.neo4jDatabaseController = neo4jDatabaseController;
+        this.graphSink = graphSink;
         this.miner = miner;
         Properties props = System.getProperties();
         this.parallel = Integer.parseInt(props.getOrDefault("dgm.parallel","10").toString());
+        this.storageParallel = Math.max(1, Integer.parseInt(props.getOrDefault("dgm.storage-parallel",String.valueOf(parallel)).toString()));
+        this.adaptiveParallel = Boolean.parseBoolean(props.getOrDefault("dgm.adaptive-parallel","false").toString());
+        this.maxParallel = adaptiveParallel ? Math.max(parallel, Integer.parseInt(props.getOrDefault("dgm.max-parallel",String.valueOf(parallel*4)).toString())) : parallel;
         this.bufferSize = parallel*4;
         this.completedPackageCounter = new AtomicInteger(0);
         this.lastPrintoutPercentage = new AtomicInteger(-1 * PROGRESS_PRINTOUT_STEP);
@@ -80,26 +94,15 @@ public class MinerScheduler {
             startTime = System.currentTimeMillis();
             system = ActorSystem.create();
 
+            /* Every stage gets its own threads, so that blocking HTTP or Bolt calls cannot starve the other stages */
+            mineExecutor = StageExecutor.fromProperty("mine", "dgm.mine-threads", maxParallel);
+            parseExecutor = StageExecutor.fromProperty("parse", "dgm.parse-threads", Runtime.getRuntime().availableProcessors());
+            storageExecutor = StageExecutor.fromProperty("store", "dgm.storage-threads", parallel);
+
             /* Stage One mines meta information to a given package name and returns JSON */
             Function<String, CompletionStage<JSONObject>> stageOne = (i) -> CompletableFuture.supplyAsync(() -> {
                 try {
-
-                    int percentDone = completedPackageCounter.incrementAndGet() * 100 / noOfNames;
-                    int lastPrint = lastPrintoutPercentage.get();
-
-                    if(percentDone - lastPrint >= PROGRESS_PRINTOUT_STEP){
-                        boolean needToPrint = false;
-                        synchronized(lastPrintoutPercentage) {
-                            if(percentDone - lastPrintoutPercentage.get() >= PROGRESS_PRINTOUT_STEP){
-                                needToPrint = true;
-                                for(int cnt = 0; cnt < PROGRESS_PRINTOUT_STEP; cnt++)
-                                    lastPrintoutPercentage.incrementAndGet();
-                            }
-                        }
-
-                        if(needToPrint) this.printPercentage();
-                    }
-
+                    countProgress();
 
                     logger.debug("Mining " + i);
                     JSONObject ret =  miner.minePackage(i);
@@ -110,7 +113,32 @@ public class MinerScheduler {
                     ExceptionLogger.add(ex,miner.getClass().toString());
                     return null;
                 }
-            }, system.dispatcher());
+            }, mineExecutor);
+
+            /* Miners that parse while downloading replace stage one and two with a single stage that returns Packages */
+            Function<String, CompletionStage<Package>> directStage = (i) -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    countProgress();
+
+                    logger.debug("Mining and parsing " + i);
+                    Package p = miner.mineAndParsePackage(i);
+
+                    if(isInUpdateMode && p != null && p.getArtifactList().isEmpty()) return null;
+
+                    logger.debug("Done mining and parsing " + i);
+                    return p;
+                } catch (Exception ex){
+                    logger.error("Uncaught error in stage one", ex);
+                    ExceptionLogger.add(ex,miner.getClass().toString());
+                    return null;
+                }
+            }, mineExecutor);
+
+            /* With adaptive parallelism, stage one starts as many packages as the limiter currently allows, up to maxParallel */
+            if(adaptiveParallel){
+                miningLimiter = new AdaptiveConcurrencyLimiter("mine", parallel, 1, maxParallel,
+                        () -> HttpUtilities.getOverloadCount() + graphSink.getNumberOfTransientErrors());
+            }
 
             /* Stage Two parses given JSON into a Package Object */
             Function<JSONObject, CompletionStage<Package>> stageTwo = (i) -> CompletableFuture.supplyAsync(() -> {
@@ -127,26 +155,33 @@ public class MinerScheduler {
                     ExceptionLogger.add(ex,miner.getClass().toString());
                     return null;
                 }
-            }, system.dispatcher());
+            }, parseExecutor);
 
 
-            Sink<Package, CompletionStage<Done>> storageSink = Sink.foreachAsync(parallel, p -> CompletableFuture.runAsync(() -> {
-                try {
-                    String pName = p != null ? p.getName() : "null";
-                    logger.debug("Storing " + pName);
-
-                    if(!neo4jDatabaseController.isClosed){
-                        neo4jDatabaseController.createPackageNode(p, isInUpdateMode);
+            /* Stage Three stores the Package, sinks that write asynchronously do not occupy a dispatcher thread meanwhile */
+            Sink<Package, CompletionStage<Done>> storageSink = Sink.foreachAsync(storageParallel, p -> {
+                String pName = p != null ? p.getName() : "null";
+                logger.debug("Storing " + pName);
 
-                    }
+                if(graphSink.isClosed()) return CompletableFuture.completedFuture(null);
 
-                    logger.debug("Done storing " + pName);
+                CompletionStage<Void> stored;
+                try {
+                    stored = graphSink.createPackageNodeAsync(p, isInUpdateMode, storageExecutor);
                 } catch (Exception ex){
-                    logger.error("Uncaught error in stage three", ex);
-                    ExceptionLogger.add(ex,Neo4jDatabaseController.class.getName());
+                    stored = CompletableFuture.failedFuture(ex);
                 }
 
-            }, system.dispatcher()));
+                return stored.handle((v, ex) -> {
+                    if(ex != null){
+                        logger.error("Uncaught error in stage three", ex);
+                        ExceptionLogger.add(ex instanceof Exception ? (Exception) ex : new RuntimeException(ex), graphSink.getClass().getName());
+                    } else {
+                        logger.debug("Done storing " + pName);
+                    }
+                    return null;
+                });
+            });
 
             Runnable onComplete = () -> {
                 try {
@@ -154,19 +189,23 @@ public class MinerScheduler {
                     this.finishedMining = true;
                     this.endTime = System.currentTimeMillis();
                     printPercentage();
-                    neo4jDatabaseController.drainCollisionBuffer();
+                    graphSink.flushPendingWrites();
+                    graphSink.drainCollisionBuffer();
                     this.endTime = System.currentTimeMillis();
                     printReport();
-                    if(this.neo4jDatabaseController.getDependencyLinkage()== Linkage.ArtifactArtifact){
-                        task.taskParseDependenciesCommand();
+                    if(graphSink.getDependencyLinkage() == Linkage.ArtifactArtifact){
+                        // Linkage can only be parsed once the graph is in the database, CSV exports need to be imported first
+                        if(graphSink instanceof Neo4jDatabaseController) task.taskParseDependenciesCommand();
+                        else logger.info("Artifact-to-Artifact edges are not resolved, run the 'parse' command once the graph is in the database");
                     }
-                    task.setStatus(Status.FINISHED);
+                    task.miningFinished();
                     miner.shutdown();
-                    neo4jDatabaseController.close();
+                    graphSink.close();
+                    closeExecutors();
                     system.terminate();
                 } catch (Exception ex){
                     logger.error("Uncaught error in final stage",  ex);
-                    ExceptionLogger.add(ex,neo4jDatabaseController.getClass().toString());
+                    ExceptionLogger.add(ex,this.getClass().toString());
                 }
             };
 
@@ -176,7 +215,8 @@ public class MinerScheduler {
                 this.finishedMining = true;
                 task.setStatus(Status.ERROR);
                 miner.shutdown();
-                neo4jDatabaseController.close();
+                graphSink.close();
+                closeExecutors();
                 system.terminate();
                 return null;
             };
@@ -184,14 +224,24 @@ public class MinerScheduler {
             logger.info("Start mining " + noOfNames + " packages for repository " + this.repositoryName + "...");
 
             /* Run source elements parallel through all stages and filter out empty elements */
-            source.filter(i -> ((i != null) && (!i.equals(""))))
-                    .buffer(bufferSize, OverflowStrategy.backpressure())
-                    .mapAsyncUnordered(parallel, stageOne)
-                    .filter(Objects::nonNull)
-                    .buffer(bufferSize, OverflowStrategy.backpressure())
-                    .mapAsyncUnordered(parallel, stageTwo)
-                    .filter(Objects::nonNull)
-                    .buffer(bufferSize, OverflowStrategy.backpressure())
+            Source<String, NotUsed> packageIds = source.filter(i -> ((i != null) && (!i.equals(""))))
+                    .buffer(bufferSize, OverflowStrategy.backpressure());
+
+            Source<Package, NotUsed> packages;
+            if(miner.supportsDirectParsing()){
+                packages = packageIds
+                        .mapAsyncUnordered(maxParallel, limited(directStage))
+                        .filter(Objects::nonNull);
+            } else {
+                packages = packageIds
+                        .mapAsyncUnordered(maxParallel, limited(stageOne))
+                        .filter(Objects::nonNull)
+                        .buffer(bufferSize, OverflowStrategy.backpressure())
+                        .mapAsyncUnordered(parallel, stageTwo)
+                        .filter(Objects::nonNull);
+            }
+
+            packages.buffer(bufferSize, OverflowStrategy.backpressure())
                     .runWith(storageSink, system)
                     .thenRun(onComplete)
                     .exceptionally(onError);
@@ -202,6 +252,48 @@ public class MinerScheduler {
         }
     }
 
+    /**
+     * Wraps the given stage so that it only starts once the adaptive limiter grants a permit, and reports its latency.
+     * Without adaptive parallelism, the stage is returned as is.
+     * @param stage Stage to limit
+     * @param <T> Result type of the stage
+     * @return Limited stage
+     */
+    private <T> Function<String, CompletionStage<T>> limited(Function<String, CompletionStage<T>> stage){
+        if(miningLimiter == null) return stage;
+
+        return (i) -> miningLimiter.acquire().thenCompose(permit -> {
+            long started = System.currentTimeMillis();
+            try {
+                return stage.apply(i).whenComplete((r, ex) -> miningLimiter.release(System.currentTimeMillis() - started));
+            } catch (Exception ex){
+                miningLimiter.release(System.currentTimeMillis() - started);
+                return CompletableFuture.failedFuture(ex);
+            }
+        });
+    }
+
+    /**
+     * Counts a started package and prints the progress whenever it advanced by another step.
+     */
+    private void countProgress(){
+        int percentDone = completedPackageCounter.incrementAndGet() * 100 / noOfNames;
+        int lastPrint = lastPrintoutPercentage.get();
+
+        if(percentDone - lastPrint >= PROGRESS_PRINTOUT_STEP){
+            boolean needToPrint = false;
+            synchronized(lastPrintoutPercentage) {
+                if(percentDone - lastPrintoutPercentage.get() >= PROGRESS_PRINTOUT_STEP){
+                    needToPrint = true;
+                    for(int cnt = 0; cnt < PROGRESS_PRINTOUT_STEP; cnt++)
+                        lastPrintoutPercentage.incrementAndGet();
+                }
+            }
+
+            if(needToPrint) this.printPercentage();
+        }
+    }
+
     /**
      * Help Function: printing current process
      * */
@@ -211,9 +303,13 @@ public class MinerScheduler {
             int percentage = Math.round(((float) remain * 100) / noOfNames);
             float timespan = ((float) (System.currentTimeMillis() - this.startTime)) / 1000 /60;
             logger.info("=> " + percentage + "%" + " [" + remain + "/" + noOfNames + "], time " + df.format(timespan) + " minutes <=");
+            if(mineExecutor != null)
+                logger.info("   Stages: " + mineExecutor.getStatus() + ", " + parseExecutor.getStatus() + ", " + storageExecutor.getStatus());
+            if(miningLimiter != null)
+                logger.info("   Concurrency: " + miningLimiter.getStatus());
         } else {
             float generatingTime = ((float) (this.endTime - startTime) / 1000) / 60 / 60;
-            logger.info("=> Finished Mining after "+df.format(generatingTime)+" hours, number of format errors " + miner.getFormatErrorCounter() + " packages, number of request errors: " + miner.getRequestErrorCounter() + ", Collision Buffer: "+ neo4jDatabaseController.numberOfCollisions + " <=");
+            logger.info("=> Finished Mining after "+df.format(generatingTime)+" hours, number of format errors " + miner.getFormatErrorCounter() + " packages, number of request errors: " + miner.getRequestErrorCounter() + ", Collision Buffer: "+ graphSink.getNumberOfCollisions() + ", transient write errors: " + graphSink.getNumberOfTransientErrors() + " <=");
         }
     }
 
@@ -224,13 +320,21 @@ public class MinerScheduler {
         if(this.system!=null){
             system.terminate();
         }
+        closeExecutors();
+    }
+
+    private void closeExecutors(){
+        if(mineExecutor != null) mineExecutor.close();
+        if(parseExecutor != null) parseExecutor.close();
+        if(storageExecutor != null) storageExecutor.close();
     }
 
     public void printReport(){
         logger.info("==> Report of mining repository " + this.repositoryName);
         logger.info("    Number of packages: " + completedPackageCounter +" of total " + noOfNames);
         logger.info("    Missing packages: " + miner.getRequestErrorCounter() +" request errors, " + miner.getFormatErrorCounter() + " format errors");
-        logger.info("    Configuration: " + this.parallel +" threads, dependency linkage " + neo4jDatabaseController.getDependencyLinkage());
+        logger.info("    Configuration: " + this.parallel +" threads, dependency linkage " + graphSink.getDependencyLinkage());
+        HttpUtilities.logCacheStatistics();
         logger.info("==> Total time: "+df.format(((float) (this.endTime - this.startTime)) / 1000 /60) + " minutes or " + df.format(((float) (this.endTime - this.startTime)) / 1000 /60 /60) + " hours");
     }
 }
\ No newline at end of file
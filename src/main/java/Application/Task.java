@@ -1,6 +1,6 @@
 package Application;
 
-import Database.Neo4jDatabaseController;
+import Database.*;
 import Database.Neo4jLinkageParser;
 import Repositories.Miner;
 import Repositories.RepositoryController;
@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
@@ -30,13 +31,15 @@ public class Task {
     private Thread currentThread;
     private Miner miner;
     private MinerScheduler minerScheduler;
-    private Neo4jDatabaseController neo4jDatabaseController;
+    private GraphSink graphSink;
     private String repositoryName;
     private Neo4jLinkageParser neo4JLinkageParser;
 
     private String uri;
     private String username;
     private String password;
+    private String output;
+    private boolean preseedPackages;
 
     /**
      * Constructor initializes status with WAITING
@@ -60,16 +63,17 @@ public class Task {
         this.repositoryName = repositoryName;
         getConfiguration();
         try{
-            this.neo4jDatabaseController = new Neo4jDatabaseController(this.uri, this.username, this.password);
-            this.neo4jDatabaseController.initializeDatabase();
+            this.graphSink = getNewGraphSink();
 
             this.currentThread = new Thread(() -> {
                 try{
                     List<String> ids = idGenerator.generateIds();
 
                     if(ids != null && ids.size() > 0){
+                        if(this.preseedPackages) preseedPackages(ids);
+
                         this.status = Status.MINING;
-                        this.minerScheduler = new MinerScheduler(ids, this.miner, this.neo4jDatabaseController, false);
+                        this.minerScheduler = new MinerScheduler(ids, this.miner, this.graphSink, false);
                         this.minerScheduler.runProcess(this);
                     } else {
                         logger.error("=> Mining of PackageIds for Repository "+this.repositoryName+" failed <=");
@@ -84,6 +88,10 @@ public class Task {
             });
 
             this.currentThread.start();
+        } catch (IOException ex){
+            logger.error("Could not set up CSV export", ex);
+            ExceptionLogger.add(ex, this.getClass().getName());
+            this.status = Status.ERROR;
         } catch (Exception ex){
             logger.error("Could not connect to Database at " + this.uri, ex);
             ExceptionLogger.add(ex, this.getClass().getName());
@@ -98,9 +106,16 @@ public class Task {
         this.repositoryName = repositoryName;
         getConfiguration();
 
+        if(!this.output.equals("neo4j")){
+            logger.error("Updating requires a database, output '" + this.output + "' is only supported for the 'start' command");
+            this.status = Status.ERROR;
+            return;
+        }
+
         try {
-            this.neo4jDatabaseController = new Neo4jDatabaseController(this.uri, this.username, this.password);
-            this.neo4jDatabaseController.initializeDatabase();
+            Neo4jDatabaseController neo4jDatabaseController = new Neo4jDatabaseController(this.uri, this.username, this.password);
+            neo4jDatabaseController.initializeDatabase();
+            this.graphSink = neo4jDatabaseController;
 
             logger.info("Building index of artifacts available. This might take a while...");
             Set<String> allRepoArtifactIds = neo4jDatabaseController.getAllArtifactIds();
@@ -111,12 +126,12 @@ public class Task {
             this.currentThread = new Thread(() -> {
                 try{
                     logger.info("Generating package ids...");
-                    List<String> ids = idGenerator.generateIds();
+                    List<String> ids = idGenerator.generateUpdatedIds();
 
                     if(ids != null && ids.size() > 0){
                         logger.info("Got " + ids.size() + " package ids.");
                         this.status = Status.MINING;
-                        this.minerScheduler = new MinerScheduler(ids, this.miner, this.neo4jDatabaseController, true);
+                        this.minerScheduler = new MinerScheduler(ids, this.miner, this.graphSink, true);
                         this.minerScheduler.runProcess(this);
                     } else {
                         logger.error("=> Mining of PackageIds for Repository "+this.repositoryName+" failed <=");
@@ -177,7 +192,10 @@ public class Task {
      * Function to start 'Parse' Command
      */
     public void taskParseDependenciesCommand(){
-        this.neo4JLinkageParser = new Neo4jLinkageParser(this, getNewNeo4jDatabaseController());
+        Neo4jDatabaseController controller = getNewNeo4jDatabaseController();
+        // Constraints and indices may be missing if the graph has been bulk-imported from CSV files
+        controller.initializeDatabase();
+        this.neo4JLinkageParser = new Neo4jLinkageParser(this, controller);
         this.status = Status.PARSING;
         this.currentThread = new Thread(()->{
             neo4JLinkageParser.parseLinkage();
@@ -250,6 +268,50 @@ public class Task {
         this.uri = props.getOrDefault("dgm.databaseaddress","bolt\\://0.0.0.0\\:7687").toString();
         this.username = props.getOrDefault("dgm.databaseusername","neo4j").toString();
         this.password = props.getOrDefault("dgm.databasepassword","neo4j").toString();
+        this.output = props.getOrDefault("dgm.output","neo4j").toString();
+        this.preseedPackages = Boolean.parseBoolean(props.getOrDefault("dgm.preseed-packages","false").toString());
+    }
+
+    private void preseedPackages(List<String> ids){
+        if(!(this.graphSink instanceof Neo4jDatabaseController)){
+            logger.info("Pre-seeding of packages is only supported for output 'neo4j', skipping");
+            return;
+        }
+
+        List<String> packageIds = new ArrayList<>(ids.size());
+        for(String id : ids){
+            String packageName = this.miner.getPackageName(id);
+            if(packageName == null){
+                logger.info("Package names of repository " + this.repositoryName + " cannot be derived from ids, skipping pre-seeding");
+                return;
+            }
+            packageIds.add(this.repositoryName + ":" + packageName);
+        }
+
+        ((Neo4jDatabaseController) this.graphSink).seedPackages(packageIds);
+    }
+
+    private GraphSink getNewGraphSink() throws IOException {
+        switch (this.output) {
+            case "csv" -> { return getNewCsvExporter(); }
+            case "memory" -> { return new InMemoryGraphSink(Neo4jDatabaseController.getConfiguredLinkage()); }
+            case "discard" -> { return new DiscardGraphSink(Neo4jDatabaseController.getConfiguredLinkage()); }
+            default -> {
+                Neo4jDatabaseController neo4jDatabaseController = new Neo4jDatabaseController(this.uri, this.username, this.password);
+                neo4jDatabaseController.initializeDatabase();
+                return neo4jDatabaseController;
+            }
+        }
+    }
+
+    private Neo4jCsvExporter getNewCsvExporter() throws IOException {
+        Properties props = System.getProperties();
+        File directory = new File(props.getOrDefault("dgm.csv-directory","csv-export").toString());
+        boolean compress = Boolean.parseBoolean(props.getOrDefault("dgm.csv-compress","true").toString());
+        long maxRowsPerShard = Long.parseLong(props.getOrDefault("dgm.csv-shard-size","1000000").toString());
+
+        logger.info("Exporting packages to CSV files in " + directory.getAbsolutePath());
+        return new Neo4jCsvExporter(directory, Neo4jDatabaseController.getConfiguredLinkage(), compress, maxRowsPerShard);
     }
 
     /**
@@ -268,6 +330,18 @@ public class Task {
         this.status = status;
     }
 
+    /**
+     * Marks the mining of this task as finished successfully. Only then the id generator may persist state that later
+     * runs continue from. Pre-seeded packages that ended up unused are removed.
+     */
+    public void miningFinished(){
+        if(this.preseedPackages && this.graphSink instanceof Neo4jDatabaseController){
+            ((Neo4jDatabaseController) this.graphSink).deleteUnusedSeeds();
+        }
+        this.status = Status.FINISHED;
+        if(this.idGenerator != null) this.idGenerator.commitGeneratedIds();
+    }
+
     /**
      * Get the name of the repository this task is working on
      * @return Repository name
@@ -280,7 +354,7 @@ public class Task {
     public void cleanup(){
         if(this.minerScheduler != null) minerScheduler.killProcess();
         if(this.currentThread != null) currentThread.stop();
-        if(this.neo4jDatabaseController != null && !this.neo4jDatabaseController.isClosed) neo4jDatabaseController.close();
+        if(this.graphSink != null && !this.graphSink.isClosed()) graphSink.close();
         if(this.neo4JLinkageParser != null) neo4JLinkageParser.stop();
     }
 
@@ -0,0 +1,524 @@
+package Database;
+
+import Application.ExceptionLogger;
+import org.json.JSONObject;
+import org.neo4j.driver.exceptions.TransientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe queue for Cypher requests that failed due to collisions with concurrent writes. Requests are partitioned
+ * by the node they write to, and requests of one partition are always retried in the order they were added. Collisions
+ * happen on frequently referenced dependency targets, so buffered dependency statements are split by their target
+ * package and partitioned by it. While
+ * mining, a background thread retries the oldest request of each partition with exponential backoff and jitter. If more
+ * requests are waiting than the memory budget allows, further requests are spilled to temporary files per partition.
+ * Only partitions with spilled requests keep spilling, to preserve their order, and the background thread refills them
+ * from disk in the order they were spilled as soon as memory is available again. Draining replays all requests with
+ * several threads, each of them processing a fixed subset of partitions, so that requests to different nodes run in
+ * parallel.
+ */
+class CollisionRetryQueue implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Writer that executes a single request. Collisions must be signalled by throwing a TransientException.
+     */
+    interface RequestWriter {
+        void write(String request, Map<String, Object> params);
+    }
+
+    private static final int PARTITIONS = 64;
+    private static final long BASE_DELAY_MILLIS = 100;
+    private static final long MAX_DELAY_MILLIS = 30000;
+    private static final long RETRY_INTERVAL_MILLIS = 250;
+    private static final int MAX_DRAIN_ATTEMPTS = 8;
+    private static final int DRAIN_QUEUE_CAPACITY = 1000;
+
+    private final RequestWriter writer;
+    private final int memoryBudget;
+    private final int drainThreads;
+
+    private final List<Partition> partitions = new ArrayList<>(PARTITIONS);
+    private int memoryEntries = 0;
+    private int spilledEntries = 0;
+
+    private final AtomicInteger totalEntries = new AtomicInteger(0);
+    private final AtomicInteger retriedEntries = new AtomicInteger(0);
+    private final AtomicInteger droppedEntries = new AtomicInteger(0);
+    private final AtomicLong transientErrors = new AtomicLong(0);
+
+    private final ReentrantLock processingLock = new ReentrantLock();
+    private final ScheduledExecutorService retryTimer;
+
+    /**
+     * Creates a new, empty retry queue and starts retrying in the background.
+     * @param writer Writer to execute requests with
+     * @param memoryBudget Maximum number of requests kept in memory before spilling to disk
+     * @param drainThreads Number of threads used for draining the queue
+     */
+    CollisionRetryQueue(RequestWriter writer, int memoryBudget, int drainThreads){
+        this.writer = writer;
+        this.memoryBudget = Math.max(1, memoryBudget);
+        this.drainThreads = Math.max(1, drainThreads);
+
+        for(int i = 0; i < PARTITIONS; i++) partitions.add(new Partition());
+
+        this.retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "neo4j-collision-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        this.retryTimer.scheduleWithFixedDelay(this::retryDueEntries, RETRY_INTERVAL_MILLIS, RETRY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a request that exhausted its retries to the queue.
+     * @param request Cypher request string
+     * @param params Parameters of request, may be null
+     */
+    void add(String request, Map<String, Object> params){
+        totalEntries.incrementAndGet();
+
+        for(Map<String, Object> targetParams : splitByTarget(params)){
+            enqueue(new Entry(request, targetParams));
+        }
+    }
+
+    private void enqueue(Entry entry){
+        synchronized (this) {
+            Partition partition = partitions.get(entry.partition);
+
+            // Partitions with spilled requests keep spilling until they have been refilled, to keep their order
+            if(partition.spilled == 0 && memoryEntries < memoryBudget){
+                entry.nextAttemptTime = System.currentTimeMillis() + getBackoffMillis(0);
+                partition.memory.add(entry);
+                memoryEntries++;
+                return;
+            }
+
+            try {
+                if(spilledEntries == 0) logger.warn("More than " + memoryBudget + " collided requests waiting, spilling requests to disk");
+                partition.spill(entry);
+                spilledEntries++;
+            } catch (IOException ex){
+                logger.error("Failed to spill request to disk, request is dropped", ex);
+                ExceptionLogger.add(ex, this.getClass().getName());
+                droppedEntries.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of requests that have been added to this queue since it was created.
+     * @return Number of requests
+     */
+    int getTotalCount(){
+        return totalEntries.get();
+    }
+
+    /**
+     * Gets the number of attempts that collided with concurrent writes since this queue was created, including those
+     * that succeeded on a later attempt.
+     * @return Number of collided attempts
+     */
+    long getTransientErrorCount(){
+        return transientErrors.get();
+    }
+
+    /**
+     * Gets the number of requests currently waiting, in memory and on disk.
+     * @return Number of waiting requests
+     */
+    synchronized int size(){
+        return memoryEntries + spilledEntries;
+    }
+
+    /**
+     * Replays all waiting requests in parallel and returns when all of them have been executed or dropped. Requests
+     * that still collide after all attempts are replayed once more, one after another.
+     */
+    void drain(){
+        processingLock.lock();
+        try {
+            List<Partition> waiting;
+            int count;
+
+            synchronized (this) {
+                count = memoryEntries + spilledEntries;
+                waiting = new ArrayList<>(partitions);
+                partitions.replaceAll(p -> new Partition());
+                memoryEntries = 0;
+                spilledEntries = 0;
+            }
+
+            long startTime = System.currentTimeMillis();
+            logger.info("== Start processing Collision Buffer of size " + count + " (" + retriedEntries.get() +
+                    " requests retried while mining) ==");
+
+            Queue<Entry> leftovers = new ConcurrentLinkedQueue<>();
+            List<ThreadPoolExecutor> lanes = new ArrayList<>(drainThreads);
+            for(int i = 0; i < drainThreads; i++){
+                // Bounded lanes, spilled requests are streamed from disk instead of being loaded at once
+                lanes.add(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(DRAIN_QUEUE_CAPACITY),
+                        (r, executor) -> {
+                            try {
+                                executor.getQueue().put(r);
+                            } catch (InterruptedException ex){
+                                Thread.currentThread().interrupt();
+                            }
+                        }));
+            }
+
+            // Spilled requests of a partition are newer than its requests in memory
+            for(Partition partition : waiting){
+                for(Entry entry : partition.memory) submit(lanes, entry, leftovers);
+
+                try {
+                    Entry entry;
+                    while((entry = partition.readSpilled()) != null) submit(lanes, entry, leftovers);
+                } catch (IOException ex){
+                    logger.error("Failed to read spilled requests, " + partition.spilled + " requests are dropped", ex);
+                    ExceptionLogger.add(ex, this.getClass().getName());
+                    droppedEntries.addAndGet(partition.spilled);
+                } finally {
+                    partition.deleteSpillFiles();
+                }
+            }
+
+            for(ThreadPoolExecutor lane : lanes){
+                lane.shutdown();
+            }
+            for(ThreadPoolExecutor lane : lanes){
+                try {
+                    lane.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            if(!leftovers.isEmpty()){
+                logger.info("Replaying " + leftovers.size() + " requests that still collided one after another");
+                for(Entry entry : leftovers){
+                    if(!execute(entry, MAX_DRAIN_ATTEMPTS)){
+                        logger.error("Request still collides after " + MAX_DRAIN_ATTEMPTS + " attempts, request is dropped: " + entry.request);
+                        droppedEntries.incrementAndGet();
+                    }
+                }
+            }
+
+            float time = ((float) (System.currentTimeMillis() - startTime)) / 1000;
+            logger.info("== Collision Buffer drained in " + time + " secounds, " + droppedEntries.get() + " requests dropped in total ==");
+        } finally {
+            processingLock.unlock();
+        }
+    }
+
+    /**
+     * Stops background retries and drains all requests that are still waiting.
+     */
+    @Override
+    public void close(){
+        retryTimer.shutdownNow();
+        if(size() > 0) drain();
+    }
+
+    /**
+     * Calculates the time to wait before the next attempt of a request, using exponential backoff with jitter: The
+     * delay doubles with every attempt up to a maximum, and a random amount of up to half of it is subtracted so that
+     * colliding writers do not retry at the same time again.
+     * @param attempts Number of attempts made so far
+     * @return Time to wait in milliseconds
+     */
+    static long getBackoffMillis(int attempts){
+        long delay = getBaseBackoffMillis(attempts);
+        return delay - ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Calculates the exponential backoff before the next attempt of a request without jitter. It is the upper bound of
+     * getBackoffMillis and is used to derive retry budgets that do not vary between runs.
+     * @param attempts Number of attempts made so far
+     * @return Time to wait in milliseconds
+     */
+    static long getBaseBackoffMillis(int attempts){
+        return Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(attempts, 20));
+    }
+
+    /**
+     * Derives the partition key of a request from its parameters, so that all requests writing to the same target
+     * node end up in the same partition. For dependency statements, this is the id of the target package of their
+     * rows, which all share it after splitting by target. For package and artifact statements, it is the id of the
+     * package written.
+     * @param params Parameters of request, may be null
+     * @return Partition key
+     */
+    static String getPartitionKey(Map<String, Object> params){
+        if(params == null) return "";
+
+        Object dependencies = params.get("dependencies");
+        if(dependencies instanceof List && !((List<?>) dependencies).isEmpty() && ((List<?>) dependencies).get(0) instanceof Map){
+            Object target = ((Map<?, ?>) ((List<?>) dependencies).get(0)).get("packageId");
+            if(target != null) return target.toString();
+        }
+
+        Object props = params.get("props");
+        if(props instanceof Map && ((Map<?, ?>) props).get("id") != null) return ((Map<?, ?>) props).get("id").toString();
+        if(params.get("packageId") != null) return params.get("packageId").toString();
+
+        return String.valueOf(params.hashCode());
+    }
+
+    /**
+     * Splits the rows of a dependency statement by their target package, keeping the order of rows per target. Other
+     * parameters are returned unchanged.
+     * @param params Parameters of request, may be null
+     * @return Parameters of one statement per target package
+     */
+    static List<Map<String, Object>> splitByTarget(Map<String, Object> params){
+        if(params == null || !(params.get("dependencies") instanceof List)) return Collections.singletonList(params);
+
+        Map<String, List<Object>> rowsByTarget = new LinkedHashMap<>();
+        for(Object row : (List<?>) params.get("dependencies")){
+            Object target = row instanceof Map ? ((Map<?, ?>) row).get("packageId") : null;
+            rowsByTarget.computeIfAbsent(String.valueOf(target), t -> new ArrayList<>()).add(row);
+        }
+
+        if(rowsByTarget.size() <= 1) return Collections.singletonList(params);
+
+        List<Map<String, Object>> split = new ArrayList<>(rowsByTarget.size());
+        for(List<Object> rows : rowsByTarget.values()){
+            Map<String, Object> targetParams = new HashMap<>(params);
+            targetParams.put("dependencies", rows);
+            split.add(targetParams);
+        }
+        return split;
+    }
+
+    private void submit(List<ThreadPoolExecutor> lanes, Entry entry, Queue<Entry> leftovers){
+        lanes.get(entry.partition % lanes.size()).execute(() -> {
+            if(!execute(entry, MAX_DRAIN_ATTEMPTS)) leftovers.add(entry);
+        });
+    }
+
+    /**
+     * Executes the given request, retrying collisions with backoff.
+     * @return False if the request still collided after the given number of attempts
+     */
+    private boolean execute(Entry entry, int maxAttempts){
+        for(int attempt = 0; attempt < maxAttempts; attempt++){
+            if(tryWrite(entry)) return true;
+
+            try {
+                Thread.sleep(getBackoffMillis(attempt));
+            } catch (InterruptedException ex){
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Attempts to write the given request once.
+     * @return False if the request collided and needs to be retried, true if it has been written or failed otherwise
+     */
+    private boolean tryWrite(Entry entry){
+        try {
+            writer.write(entry.request, entry.params);
+            return true;
+        } catch (TransientException ex){
+            transientErrors.incrementAndGet();
+            return false;
+        } catch (Exception ex){
+            ExceptionLogger.add(ex, this.getClass().getName());
+            droppedEntries.incrementAndGet();
+            return true;
+        }
+    }
+
+    private void retryDueEntries(){
+        if(!processingLock.tryLock()) return;
+
+        try {
+            for(Partition partition : partitions){
+                while(true){
+                    Entry entry;
+                    synchronized (this) {
+                        if(partition.memory.isEmpty()) refill(partition);
+                        entry = partition.memory.peek();
+                    }
+
+                    if(entry == null || entry.nextAttemptTime > System.currentTimeMillis()) break;
+
+                    if(!tryWrite(entry)){
+                        entry.attempts++;
+                        entry.nextAttemptTime = System.currentTimeMillis() + getBackoffMillis(entry.attempts);
+                        break;
+                    }
+
+                    synchronized (this) {
+                        partition.memory.poll();
+                        memoryEntries--;
+                    }
+                    retriedEntries.incrementAndGet();
+                }
+            }
+        } catch (Exception ex){
+            // Timer must keep running
+            ExceptionLogger.add(ex, this.getClass().getName());
+        } finally {
+            processingLock.unlock();
+        }
+    }
+
+    /**
+     * Moves spilled requests of the given partition back to memory, as far as the memory budget allows. Every partition
+     * gets at most its share of the budget at once, so that one partition cannot take all memory. Must be called while
+     * holding the lock of this queue.
+     */
+    private void refill(Partition partition){
+        int room = Math.min(memoryBudget - memoryEntries, Math.max(1, memoryBudget / PARTITIONS));
+
+        try {
+            long now = System.currentTimeMillis();
+            for(int i = 0; i < room && partition.spilled > 0; i++){
+                Entry entry = partition.readSpilled();
+                if(entry == null) break;
+
+                // Spilled requests have waited already, they are retried right away
+                entry.nextAttemptTime = now;
+                partition.memory.add(entry);
+                memoryEntries++;
+                spilledEntries--;
+            }
+        } catch (IOException ex){
+            logger.error("Failed to read spilled requests, " + partition.spilled + " requests are dropped", ex);
+            ExceptionLogger.add(ex, this.getClass().getName());
+            droppedEntries.addAndGet(partition.spilled);
+            spilledEntries -= partition.spilled;
+            partition.deleteSpillFiles();
+        }
+    }
+
+    /**
+     * Requests of one partition. Spilled requests are appended to a segment file, that is sealed once reading it starts,
+     * so that reading from the oldest segment and writing to the newest one never interfere.
+     */
+    private static class Partition {
+        final ArrayDeque<Entry> memory = new ArrayDeque<>();
+        final ArrayDeque<File> sealedSegments = new ArrayDeque<>();
+        File writeSegment = null;
+        BufferedWriter writer = null;
+        File readSegment = null;
+        BufferedReader reader = null;
+        int spilled = 0;
+
+        void spill(Entry entry) throws IOException {
+            if(writer == null){
+                writeSegment = File.createTempFile("dgm-collisions-", ".jsonl");
+                writeSegment.deleteOnExit();
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(writeSegment), StandardCharsets.UTF_8));
+            }
+
+            writer.write(entry.toJson());
+            writer.newLine();
+            spilled++;
+        }
+
+        /**
+         * Reads the oldest spilled request.
+         * @return Request, or null if no request is spilled
+         */
+        Entry readSpilled() throws IOException {
+            while(spilled > 0){
+                if(reader == null){
+                    if(sealedSegments.isEmpty()){
+                        if(writer == null) return null;
+
+                        writer.close();
+                        writer = null;
+                        sealedSegments.add(writeSegment);
+                        writeSegment = null;
+                    }
+
+                    readSegment = sealedSegments.poll();
+                    reader = new BufferedReader(new InputStreamReader(new FileInputStream(readSegment), StandardCharsets.UTF_8));
+                }
+
+                String line = reader.readLine();
+                if(line == null){
+                    reader.close();
+                    reader = null;
+                    delete(readSegment);
+                    readSegment = null;
+                } else if(!line.isBlank()){
+                    spilled--;
+                    return Entry.fromJson(line);
+                }
+            }
+
+            return null;
+        }
+
+        void deleteSpillFiles(){
+            try {
+                if(reader != null) reader.close();
+                if(writer != null) writer.close();
+            } catch (IOException ex){
+                ExceptionLogger.add(ex, CollisionRetryQueue.class.getName());
+            }
+
+            if(readSegment != null) delete(readSegment);
+            if(writeSegment != null) delete(writeSegment);
+            for(File segment : sealedSegments) delete(segment);
+
+            reader = null;
+            writer = null;
+            readSegment = null;
+            writeSegment = null;
+            sealedSegments.clear();
+            spilled = 0;
+        }
+
+        private static void delete(File file){
+            if(!file.delete()) file.deleteOnExit();
+        }
+    }
+
+    private static class Entry {
+        final String request;
+        final Map<String, Object> params;
+        final int partition;
+        int attempts = 0;
+        long nextAttemptTime = 0;
+
+        Entry(String request, Map<String, Object> params){
+            this.request = request;
+            this.params = params;
+            this.partition = Math.floorMod(getPartitionKey(params).hashCode(), PARTITIONS);
+        }
+
+        String toJson(){
+            JSONObject json = new JSONObject();
+            json.put("request", request);
+            if(params != null) json.put("params", new JSONObject(params));
+            return json.toString();
+        }
+
+        static Entry fromJson(String line){
+            JSONObject json = new JSONObject(line);
+            Map<String, Object> params = json.has("params") ? json.getJSONObject("params").toMap() : null;
+            return new Entry(json.getString("request"), params);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package Database;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes rows of one node or relationship file for neo4j-admin import as a sequence of CSV shards. Every shard has its
+ * own header file, so that property columns can be added while streaming: If a row contains a property that the current
+ * shard has no column for, a new shard with the extended header is started. The type of a column is taken from its
+ * first value. If a later value does not fit that type, e.g. a string in a ':long' column, the column is written untyped
+ * from a new shard on. Shards are also rolled over once they reach the maximum number of rows.
+ */
+class CsvShardWriter implements Closeable {
+
+    private final File directory;
+    private final String name;
+    private final boolean compress;
+    private final long maxRowsPerShard;
+
+    private final List<String> idColumns;
+    private final List<String> propertyKeys = new ArrayList<>();
+    private final List<String> propertyColumns = new ArrayList<>();
+
+    private final List<String> shards = new ArrayList<>();
+    private Writer currentShard = null;
+    private long currentShardRows = 0;
+    private long totalRows = 0;
+
+    /**
+     * Creates a new shard writer, no files are created before the first row is written.
+     * @param directory Directory to write shards to
+     * @param name Name prefix for all shard files
+     * @param idColumns Header columns for the id fields of each row, e.g. "id:ID(Package)"
+     * @param compress If true, shards are gzip-compressed. Header files are never compressed.
+     * @param maxRowsPerShard Maximum number of rows per shard, no limit if not positive
+     */
+    CsvShardWriter(File directory, String name, List<String> idColumns, boolean compress, long maxRowsPerShard){
+        this.directory = directory;
+        this.name = name;
+        this.idColumns = idColumns;
+        this.compress = compress;
+        this.maxRowsPerShard = maxRowsPerShard;
+    }
+
+    /**
+     * Writes one row to the current shard.
+     * @param ids Values of the id columns, in order of the id columns
+     * @param properties Property values of this row, may be empty
+     * @throws IOException If the shard cannot be written
+     */
+    synchronized void write(List<String> ids, Map<String, Object> properties) throws IOException {
+        List<String> newKeys = new ArrayList<>();
+        boolean retyped = false;
+
+        for(Map.Entry<String, Object> property : properties.entrySet()){
+            if(property.getValue() == null) continue;
+
+            int index = propertyKeys.indexOf(property.getKey());
+            if(index < 0){
+                newKeys.add(property.getKey());
+            } else if(!propertyColumns.get(index).equals(property.getKey()) &&
+                    !propertyColumns.get(index).equals(property.getKey() + getTypeSuffix(property.getValue()))){
+                // Untyped columns accept all values, so every column changes its type at most once
+                propertyColumns.set(index, property.getKey());
+                retyped = true;
+            }
+        }
+
+        // Sorted, so that headers do not depend on the iteration order of property maps
+        Collections.sort(newKeys);
+        for(String key : newKeys){
+            propertyKeys.add(key);
+            propertyColumns.add(key + getTypeSuffix(properties.get(key)));
+        }
+
+        if(currentShard == null || !newKeys.isEmpty() || retyped || (maxRowsPerShard > 0 && currentShardRows >= maxRowsPerShard)) startShard();
+
+        StringBuilder row = new StringBuilder();
+        for(String id : ids){
+            if(row.length() > 0) row.append(',');
+            appendValue(row, id);
+        }
+        for(String key : propertyKeys){
+            row.append(',');
+            appendValue(row, properties.get(key));
+        }
+        row.append('\n');
+
+        currentShard.write(row.toString());
+        currentShardRows++;
+        totalRows++;
+    }
+
+    /**
+     * Gets the file groups written so far, each as comma-separated header file and shard file, like neo4j-admin expects.
+     * @return List of file groups
+     */
+    synchronized List<String> getShards(){
+        return new ArrayList<>(shards);
+    }
+
+    /**
+     * Gets the total number of rows written to all shards.
+     * @return Number of rows
+     */
+    synchronized long getRowCount(){
+        return totalRows;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(currentShard != null) currentShard.close();
+        currentShard = null;
+    }
+
+    private void startShard() throws IOException {
+        close();
+
+        String shardName = String.format("%s-%05d", name, shards.size());
+        String headerFile = shardName + ".header.csv";
+        String dataFile = shardName + (compress ? ".csv.gz" : ".csv");
+
+        List<String> header = new ArrayList<>(idColumns);
+        header.addAll(propertyColumns);
+
+        try(Writer headerWriter = new OutputStreamWriter(new FileOutputStream(new File(directory, headerFile)), StandardCharsets.UTF_8)){
+            headerWriter.write(String.join(",", header) + "\n");
+        }
+
+        OutputStream out = new FileOutputStream(new File(directory, dataFile));
+        if(compress) out = new GZIPOutputStream(out, 1 << 16);
+
+        currentShard = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        currentShardRows = 0;
+        shards.add(headerFile + "," + dataFile);
+    }
+
+    private static String getTypeSuffix(Object value){
+        if(value instanceof Boolean) return ":boolean";
+        if(value instanceof Integer || value instanceof Long) return ":long";
+        return "";
+    }
+
+    private static void appendValue(StringBuilder row, Object value){
+        if(value == null) return;
+
+        if(value instanceof String){
+            // Strings are always quoted, so that separators and line breaks within values are preserved
+            row.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+        } else {
+            row.append(value);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Database;
+
+import Model.Artifact;
+import Model.Linkage;
+import Model.Package;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sink that discards all packages and only counts them. Used to measure the throughput of mining and parsing without
+ * any storage backend.
+ */
+public class DiscardGraphSink implements GraphSink {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Linkage dependencyLinkage;
+    private final LongAdder packageCount = new LongAdder();
+    private final LongAdder artifactCount = new LongAdder();
+    private final LongAdder dependencyCount = new LongAdder();
+    private volatile boolean isClosed = false;
+
+    /**
+     * Creates a new sink that discards all packages.
+     * @param dependencyLinkage Linkage to report for dependency edges
+     */
+    public DiscardGraphSink(Linkage dependencyLinkage){
+        this.dependencyLinkage = dependencyLinkage;
+    }
+
+    @Override
+    public void createPackageNode(Package packageNode, boolean isUpdate) {
+        if(isClosed) return;
+
+        packageCount.increment();
+        artifactCount.add(packageNode.getArtifactList().size());
+        for(Artifact artifact : packageNode.getArtifactList()) dependencyCount.add(artifact.getDependencies().size());
+    }
+
+    @Override
+    public void flushPendingWrites() {}
+
+    @Override
+    public void drainCollisionBuffer() {}
+
+    @Override
+    public Linkage getDependencyLinkage() {
+        return dependencyLinkage;
+    }
+
+    /**
+     * Retrieves the number of packages passed to this sink.
+     * @return Number of packages
+     */
+    public long getPackageCount() {
+        return packageCount.sum();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    @Override
+    public void close() {
+        if(isClosed) return;
+        isClosed = true;
+
+        logger.info("Discarded " + packageCount.sum() + " packages with " + artifactCount.sum() + " artifacts and " +
+                dependencyCount.sum() + " dependencies");
+    }
+}
@@ -0,0 +1,79 @@
+package Database;
+
+import Model.Linkage;
+import Model.Package;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+/**
+ * Interface of a sink that the MinerScheduler stores mined packages in. Implementations may write them to a database,
+ * to files, or keep them in memory.
+ */
+public interface GraphSink extends AutoCloseable {
+
+    /**
+     * Stores the given package with all its artifacts and dependencies.
+     * @param packageNode Package to store
+     * @param isUpdate True if the package only contains artifacts that are new to an existing graph
+     */
+    void createPackageNode(Package packageNode, boolean isUpdate);
+
+    /**
+     * Stores the given package without blocking the calling thread. By default, the package is stored synchronously
+     * on the given executor.
+     * @param packageNode Package to store
+     * @param isUpdate True if the package only contains artifacts that are new to an existing graph
+     * @param executor Executor to store the package on if the sink can only store synchronously
+     * @return Stage that completes once the package has been stored
+     */
+    default CompletionStage<Void> createPackageNodeAsync(Package packageNode, boolean isUpdate, Executor executor){
+        return CompletableFuture.runAsync(() -> createPackageNode(packageNode, isUpdate), executor);
+    }
+
+    /**
+     * Stores all packages that are still buffered by this sink. Called once after the last package has been passed.
+     */
+    void flushPendingWrites();
+
+    /**
+     * Retries all writes that failed before. Called once after all pending writes have been flushed.
+     */
+    void drainCollisionBuffer();
+
+    /**
+     * Retrieves the linkage that dependency edges are stored for.
+     * @return Dependency linkage
+     */
+    Linkage getDependencyLinkage();
+
+    /**
+     * Default function to get the number of writes that collided with concurrent writes, only used in console output
+     * @return always 0 in default function
+     */
+    default int getNumberOfCollisions(){
+        return 0;
+    }
+
+    /**
+     * Default function to get the number of writes that failed with transient errors, e.g. deadlocks or lock timeouts,
+     * including those that succeeded when retried. Used as overload signal, as it rises as soon as writes contend.
+     * @return always 0 in default function
+     */
+    default long getNumberOfTransientErrors(){
+        return 0;
+    }
+
+    /**
+     * Checks whether this sink has been closed and does not accept further packages.
+     * @return True if the sink is closed
+     */
+    boolean isClosed();
+
+    /**
+     * Releases all resources of this sink. Packages passed afterwards are not stored.
+     */
+    @Override
+    void close();
+}
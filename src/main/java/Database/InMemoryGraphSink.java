@@ -0,0 +1,89 @@
+package Database;
+
+import Model.Linkage;
+import Model.Package;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sink that keeps all packages in memory, indexed by their package id. Used for testing and for measuring mining and
+ * parsing without a database. Packages passed in update mode are merged into the package stored before.
+ */
+public class InMemoryGraphSink implements GraphSink {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Linkage dependencyLinkage;
+    private final Map<String, Package> packages = new ConcurrentHashMap<>();
+    private volatile boolean isClosed = false;
+
+    /**
+     * Creates a new, empty in-memory sink.
+     * @param dependencyLinkage Linkage to report for dependency edges
+     */
+    public InMemoryGraphSink(Linkage dependencyLinkage){
+        this.dependencyLinkage = dependencyLinkage;
+    }
+
+    @Override
+    public void createPackageNode(Package packageNode, boolean isUpdate) {
+        if(isClosed) return;
+
+        if(isUpdate){
+            packages.merge(packageNode.getId(), packageNode, (existing, update) -> {
+                synchronized (existing) {
+                    update.getArtifactList().forEach(existing::addArtifact);
+                }
+                return existing;
+            });
+        } else {
+            packages.put(packageNode.getId(), packageNode);
+        }
+    }
+
+    @Override
+    public void flushPendingWrites() {}
+
+    @Override
+    public void drainCollisionBuffer() {}
+
+    @Override
+    public Linkage getDependencyLinkage() {
+        return dependencyLinkage;
+    }
+
+    /**
+     * Retrieves the package with the given id.
+     * @param packageId Package identifier
+     * @return Stored package, or null if no package with this id has been stored
+     */
+    public Package getPackage(String packageId) {
+        return packages.get(packageId);
+    }
+
+    /**
+     * Retrieves all stored packages.
+     * @return Unmodifiable view of all packages
+     */
+    public Collection<Package> getPackages() {
+        return Collections.unmodifiableCollection(packages.values());
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    @Override
+    public void close() {
+        if(isClosed) return;
+        isClosed = true;
+
+        logger.info("Kept " + packages.size() + " packages in memory");
+    }
+}
@@ -0,0 +1,319 @@
+package Database;
+
+import Application.ExceptionLogger;
+import Model.Package;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransaction;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.exceptions.TransientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Writer that accumulates new packages and stores them in micro-batches. A batch is flushed once it reaches the current
+ * batch size, or once its oldest package has been waiting for the maximum delay. Each batch is written in one explicit
+ * transaction that UNWINDs over all packages, so that the number of Bolt round trips per package drops. The batch size
+ * adapts to the observed transaction latency: It grows while transactions are fast, and is halved if they get slow.
+ * Batches are written with the asynchronous driver API, so no thread is blocked while a transaction is in flight.
+ * If writer lanes are given, dependency edges are not part of the batch transaction, but passed to the lanes after the
+ * transaction has been committed. Adding to full lanes blocks, so this continuation never runs on the driver's I/O
+ * threads or the common pool, but on the executor of the caller or the writer's own continuation executor.
+ */
+public class Neo4jBatchWriter implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final long TARGET_LATENCY_MILLIS = 1000;
+    private static final int INITIAL_BATCH_SIZE = 16;
+
+    private final Driver driver;
+    private final Function<Package, Map<String, List<Map<String, Object>>>> dependencyStatements;
+    private final BiFunction<Package, Executor, CompletionStage<Void>> fallbackWriter;
+    private final Executor continuationExecutor;
+
+    private final int maxBatchSize;
+    private final long maxDelayMillis;
+    private final int maxRowsPerStatement;
+    private final Neo4jWriterLanes writerLanes;
+    private volatile int batchSize;
+
+    private List<Package> pendingPackages = new ArrayList<>();
+    private long oldestPendingTime = 0;
+
+    private final ScheduledExecutorService flushTimer;
+    private final Set<CompletableFuture<Void>> inFlightBatches = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong batchCount = new AtomicLong(0);
+    private final AtomicLong packageCount = new AtomicLong(0);
+    private final AtomicLong totalLatencyMillis = new AtomicLong(0);
+    private final AtomicLong transientErrors = new AtomicLong(0);
+
+    /**
+     * Creates a new batch writer.
+     * @param driver Driver to open sessions with
+     * @param dependencyStatements Function that maps a package to its dependency rows, grouped by the query to write them with
+     * @param fallbackWriter Asynchronous writer that stores single packages on the given executor, used if a whole batch cannot be written
+     * @param maxBatchSize Maximum number of packages per batch
+     * @param maxDelayMillis Maximum time in milliseconds that a package waits before it is written
+     * @param maxRowsPerStatement Maximum number of dependency rows per statement, no limit if not positive
+     * @param writerLanes Lanes to write dependency edges with, or null to write them within the batch transaction
+     * @param continuationExecutor Executor for batches that are written by the flush timer or on flush
+     */
+    public Neo4jBatchWriter(Driver driver, Function<Package, Map<String, List<Map<String, Object>>>> dependencyStatements, BiFunction<Package, Executor, CompletionStage<Void>> fallbackWriter, int maxBatchSize,
+                            long maxDelayMillis, int maxRowsPerStatement, Neo4jWriterLanes writerLanes, Executor continuationExecutor){
+        this.driver = driver;
+        this.dependencyStatements = dependencyStatements;
+        this.fallbackWriter = fallbackWriter;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayMillis = Math.max(1, maxDelayMillis);
+        this.maxRowsPerStatement = maxRowsPerStatement;
+        this.writerLanes = writerLanes;
+        this.continuationExecutor = continuationExecutor;
+        this.batchSize = Math.min(INITIAL_BATCH_SIZE, this.maxBatchSize);
+
+        this.flushTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "neo4j-batch-flush");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long checkInterval = Math.max(1, this.maxDelayMillis / 2);
+        this.flushTimer.scheduleAtFixedRate(this::flushIfExpired, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Adds a new package to the current batch. If this completes the batch, it is written and the calling thread waits
+     * for the transaction to finish.
+     * @param packageNode Package to store
+     */
+    public void add(Package packageNode){
+        addAsync(packageNode).toCompletableFuture().join();
+    }
+
+    /**
+     * Adds a new package to the current batch without blocking. If this completes the batch, the returned stage
+     * completes once the batch has been written, otherwise it is already completed.
+     * @param packageNode Package to store
+     * @return Stage that completes once the package may be considered stored
+     */
+    public CompletionStage<Void> addAsync(Package packageNode){
+        return addAsync(packageNode, continuationExecutor);
+    }
+
+    /**
+     * Adds a new package to the current batch without blocking. If this completes the batch, the returned stage
+     * completes once the batch has been written, otherwise it is already completed.
+     * @param packageNode Package to store
+     * @param executor Executor to continue on after the batch transaction, e.g. to pass dependency edges to the lanes
+     * @return Stage that completes once the package may be considered stored
+     */
+    public CompletionStage<Void> addAsync(Package packageNode, Executor executor){
+        List<Package> batch = null;
+
+        synchronized (this) {
+            if(pendingPackages.isEmpty()) oldestPendingTime = System.currentTimeMillis();
+            pendingPackages.add(packageNode);
+
+            if(pendingPackages.size() >= batchSize) batch = takePending();
+        }
+
+        if(batch != null) return writeBatch(batch, executor);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Writes all pending packages, regardless of batch size and delay, and waits for all batches in flight.
+     */
+    public void flush(){
+        List<Package> batch;
+        synchronized (this) { batch = takePending(); }
+
+        if(!batch.isEmpty()) writeBatch(batch, continuationExecutor);
+
+        CompletableFuture.allOf(inFlightBatches.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Gets the current adaptive batch size.
+     * @return Number of packages per batch
+     */
+    public int getBatchSize() { return batchSize; }
+
+    /**
+     * Gets the number of batch transactions that failed with transient errors, e.g. deadlocks, including those that
+     * were retried successfully.
+     * @return Number of transient errors
+     */
+    public long getTransientErrorCount() { return transientErrors.get(); }
+
+    /**
+     * Logs the number of batches written, their average size and latency.
+     */
+    public void logStatistics(){
+        long batches = batchCount.get();
+        if(batches == 0) return;
+
+        logger.info("Batch writer: " + packageCount.get() + " packages in " + batches + " transactions, average " +
+                (packageCount.get() / batches) + " packages and " + (totalLatencyMillis.get() / batches) +
+                " ms per transaction, final batch size " + batchSize);
+    }
+
+    /**
+     * Writes all pending packages and stops the flush timer.
+     */
+    @Override
+    public void close(){
+        flushTimer.shutdownNow();
+        flush();
+        logStatistics();
+    }
+
+    private void flushIfExpired(){
+        try {
+            List<Package> batch = null;
+
+            synchronized (this) {
+                if(!pendingPackages.isEmpty() && System.currentTimeMillis() - oldestPendingTime >= maxDelayMillis)
+                    batch = takePending();
+            }
+
+            if(batch != null) writeBatch(batch, continuationExecutor).join();
+        } catch (Exception ex){
+            // Timer must keep running, failed batches have been handled by the fallback already
+            ExceptionLogger.add(ex, this.getClass().getName());
+        }
+    }
+
+    private List<Package> takePending(){
+        List<Package> batch = pendingPackages;
+        pendingPackages = new ArrayList<>();
+        return batch;
+    }
+
+    private CompletableFuture<Void> writeBatch(List<Package> batch, Executor executor){
+        long startTime = System.currentTimeMillis();
+        List<Query> queries = getQueries(batch);
+        AsyncSession session = driver.asyncSession();
+        AtomicLong attempts = new AtomicLong(0);
+
+        // Transaction functions retry transient errors, e.g. deadlocks on shared prototype packages, every retry follows one
+        CompletableFuture<Void> written = session.writeTransactionAsync(tx -> {
+                    if(attempts.getAndIncrement() > 0) transientErrors.incrementAndGet();
+                    return runQueries(tx, queries);
+                })
+                .handle((result, ex) -> {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if(cause instanceof TransientException) transientErrors.incrementAndGet();
+                    return ex;
+                })
+                .thenCompose(ex -> session.closeAsync().thenApply(closed -> ex))
+                // Continue off the driver's I/O threads, writer lanes may block while they are full
+                .thenComposeAsync(ex -> {
+                    if(ex != null) return writeSeparately(batch, ex, executor);
+
+                    long latency = System.currentTimeMillis() - startTime;
+
+                    if(writerLanes != null){
+                        for(Package packageNode : batch){
+                            dependencyStatements.apply(packageNode).forEach((query, rows) -> writerLanes.add(packageNode.getId(), query, rows));
+                        }
+                    }
+
+                    batchCount.incrementAndGet();
+                    packageCount.addAndGet(batch.size());
+                    totalLatencyMillis.addAndGet(latency);
+
+                    adaptBatchSize(batch.size(), latency);
+                    return CompletableFuture.completedFuture(null);
+                }, executor)
+                .toCompletableFuture();
+
+        inFlightBatches.add(written);
+        written.whenComplete((result, ex) -> inFlightBatches.remove(written));
+
+        return written;
+    }
+
+    private CompletionStage<Void> writeSeparately(List<Package> batch, Throwable cause, Executor executor){
+        logger.warn("Failed to write batch of " + batch.size() + " packages, writing them one by one", cause);
+        ExceptionLogger.add(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause), this.getClass().getName());
+
+        CompletableFuture<?>[] packages = new CompletableFuture<?>[batch.size()];
+        for(int i = 0; i < batch.size(); i++) packages[i] = fallbackWriter.apply(batch.get(i), executor).toCompletableFuture();
+
+        return CompletableFuture.allOf(packages);
+    }
+
+    private CompletionStage<Void> runQueries(AsyncTransaction tx, List<Query> queries){
+        CompletionStage<Void> stage = CompletableFuture.completedFuture(null);
+
+        for(Query query : queries){
+            stage = stage.thenCompose(previous -> tx.runAsync(query))
+                    .thenCompose(ResultCursor::consumeAsync)
+                    .thenApply(summary -> null);
+        }
+
+        return stage;
+    }
+
+    private void adaptBatchSize(int writtenPackages, long latencyMillis){
+        int current = batchSize;
+
+        if(latencyMillis > TARGET_LATENCY_MILLIS){
+            batchSize = Math.max(1, current / 2);
+        } else if(writtenPackages >= current && latencyMillis < TARGET_LATENCY_MILLIS / 2){
+            batchSize = Math.min(maxBatchSize, current + Math.max(1, current / 4));
+        }
+    }
+
+    private List<Query> getQueries(List<Package> batch){
+        List<Map<String, Object>> packages = new ArrayList<>(batch.size());
+        List<Map<String, Object>> artifacts = new ArrayList<>(batch.size());
+        Map<String, List<Map<String, Object>>> dependencies = new LinkedHashMap<>();
+
+        for(Package packageNode : batch){
+            packages.add(packageNode.getPackageProps());
+            artifacts.add(packageNode.getArtifactProps());
+
+            if(writerLanes != null) continue;
+
+            dependencyStatements.apply(packageNode).forEach((query, rows) ->
+                    dependencies.computeIfAbsent(query, q -> new ArrayList<>()).addAll(rows));
+        }
+
+        List<Query> queries = new ArrayList<>();
+
+        queries.add(new Query("UNWIND $packages AS pkg MERGE (p:Package {id: pkg.props.id}) SET p=pkg.props",
+                Map.of("packages", packages)));
+
+        queries.add(new Query("UNWIND $packages AS pkg MATCH (p:Package {id:pkg.packageId}) " +
+                "UNWIND pkg.artifacts AS artifact MERGE (p)-[:version]->(a:Artifact {id: artifact.id}) SET a = artifact",
+                Map.of("packages", artifacts)));
+
+        // Dependency edges are written by the writer lanes once this transaction has been committed
+        if (writerLanes != null) return queries;
+
+        for (Map.Entry<String, List<Map<String, Object>>> statement : dependencies.entrySet()) {
+            for (List<Map<String, Object>> rows : Neo4jDatabaseController.chunk(statement.getValue(), maxRowsPerStatement)) {
+                queries.add(new Query(statement.getKey(), Map.of("dependencies", rows)));
+            }
+        }
+
+        return queries;
+    }
+}
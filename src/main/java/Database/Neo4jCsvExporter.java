@@ -0,0 +1,188 @@
+package Database;
+
+import Application.ExceptionLogger;
+import Model.Artifact;
+import Model.Linkage;
+import Model.Package;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exporter that writes package objects to CSV files for an offline bulk import with neo4j-admin, instead of storing them
+ * in a live database. Nodes and relationships are streamed into sharded files that mirror the graph structure created by
+ * the Neo4jDatabaseController: Package and Artifact nodes identified by their id property, version edges, and either
+ * dependentOnPP or unresolved dependentOn edges depending on the linkage. Packages that are only referenced as dependency
+ * target are written once as prototype packages when the exporter is closed. An argument file listing all shards is
+ * written to the export directory, so that the import can be run with 'neo4j-admin database import full @import.args'.
+ */
+public class Neo4jCsvExporter implements GraphSink {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final String argumentFileName = "import.args";
+
+    private final File directory;
+    private final Linkage dependencyLinkage;
+
+    private final CsvShardWriter packages;
+    private final CsvShardWriter artifacts;
+    private final CsvShardWriter versionEdges;
+    private final CsvShardWriter dependencyEdges;
+
+    private final Set<String> exportedPackageIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> referencedPackageIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean isClosed = false;
+
+    /**
+     * Creates a new exporter and the export directory, if it does not exist yet.
+     * @param directory Directory to write all CSV files to
+     * @param dependencyLinkage Linkage that dependency edges are exported for
+     * @param compress If true, all shards are gzip-compressed
+     * @param maxRowsPerShard Maximum number of rows per shard, no limit if not positive
+     * @throws IOException If the export directory cannot be created
+     */
+    public Neo4jCsvExporter(File directory, Linkage dependencyLinkage, boolean compress, long maxRowsPerShard) throws IOException {
+        if(!directory.isDirectory() && !directory.mkdirs()) throw new IOException("Could not create export directory " + directory);
+
+        this.directory = directory;
+        this.dependencyLinkage = dependencyLinkage;
+
+        this.packages = new CsvShardWriter(directory, "packages", List.of("id:ID(Package)"), compress, maxRowsPerShard);
+        this.artifacts = new CsvShardWriter(directory, "artifacts", List.of("id:ID(Artifact)"), compress, maxRowsPerShard);
+        this.versionEdges = new CsvShardWriter(directory, "version", List.of(":START_ID(Package)", ":END_ID(Artifact)"), compress, maxRowsPerShard);
+
+        if(dependencyLinkage == Linkage.PackagePackage){
+            this.dependencyEdges = new CsvShardWriter(directory, "dependentOnPP", List.of(":START_ID(Package)", ":END_ID(Package)"), compress, maxRowsPerShard);
+        } else {
+            /* Same edges for ArtifactPackage and ArtifactArtifact Linkage, the latter are resolved by parsing the linkage after the import */
+            this.dependencyEdges = new CsvShardWriter(directory, "dependentOn", List.of(":START_ID(Artifact)", ":END_ID(Package)"), compress, maxRowsPerShard);
+        }
+    }
+
+    /**
+     * Writes the given package with all its artifacts and dependency edges to the export files. Packages that have
+     * already been exported before are skipped.
+     * @param packageNode Package to export
+     * @param isUpdate Ignored, an export always contains complete packages
+     */
+    @Override
+    public void createPackageNode(Package packageNode, boolean isUpdate) {
+        if(isClosed || !exportedPackageIds.add(packageNode.getId())) return;
+
+        try {
+            packages.write(List.of(packageNode.getId()), getProperties(packageNode.getPackageProps(), "props"));
+
+            for(Object artifact : (List<?>) packageNode.getArtifactProps().get("artifacts")){
+                Map<String, Object> artifactProps = new HashMap<>(castMap(artifact));
+                String artifactId = artifactProps.remove("id").toString();
+
+                artifacts.write(List.of(artifactId), artifactProps);
+                versionEdges.write(List.of(packageNode.getId(), artifactId), Map.of());
+            }
+
+            if(dependencyLinkage == Linkage.PackagePackage){
+                // Calculate set of target packages once!
+                Set<String> targetPackageIds = new LinkedHashSet<>();
+                for(Artifact artifact : packageNode.getArtifactList()){
+                    artifact.getDependencies().forEach(d -> targetPackageIds.add(packageNode.getRepository() + ":" + d.getName()));
+                }
+
+                for(String targetId : targetPackageIds){
+                    referencedPackageIds.add(targetId);
+                    dependencyEdges.write(List.of(packageNode.getId(), targetId), Map.of());
+                }
+            } else {
+                for(Map<String, Object> row : Neo4jDatabaseController.getDependencyRows(packageNode.getArtifactList())){
+                    String targetId = row.get("packageId").toString();
+                    referencedPackageIds.add(targetId);
+                    dependencyEdges.write(List.of(row.get("artifactId").toString(), targetId), castMap(row.get("props")));
+                }
+            }
+        } catch (IOException ex){
+            logger.error("Failed to export package " + packageNode.getId(), ex);
+            ExceptionLogger.add(ex, this.getClass().getName());
+        }
+    }
+
+    /**
+     * Writes all prototype packages, closes all shards and writes the argument file for neo4j-admin. Calling this more
+     * than once has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if(isClosed) return;
+        isClosed = true;
+
+        try {
+            long prototypeCount = 0;
+
+            for(String packageId : referencedPackageIds){
+                if(exportedPackageIds.contains(packageId)) continue;
+
+                packages.write(List.of(packageId), Map.of("name", "Prototype Package"));
+                prototypeCount++;
+            }
+
+            for(CsvShardWriter writer : getWriters()) writer.close();
+
+            writeArgumentFile();
+
+            logger.info("Exported " + exportedPackageIds.size() + " packages, " + prototypeCount + " prototype packages, " +
+                    artifacts.getRowCount() + " artifacts and " + dependencyEdges.getRowCount() + " dependency edges to " +
+                    directory.getAbsolutePath());
+            logger.info("Import with 'neo4j-admin database import full @" + argumentFileName + "' from within that directory");
+        } catch (IOException ex){
+            logger.error("Failed to finish CSV export", ex);
+            ExceptionLogger.add(ex, this.getClass().getName());
+        }
+    }
+
+    @Override
+    public void flushPendingWrites() {}
+
+    @Override
+    public void drainCollisionBuffer() {}
+
+    @Override
+    public Linkage getDependencyLinkage() {
+        return dependencyLinkage;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    private void writeArgumentFile() throws IOException {
+        try(Writer writer = new OutputStreamWriter(new FileOutputStream(new File(directory, argumentFileName)), StandardCharsets.UTF_8)){
+            for(String shard : packages.getShards()) writer.write("--nodes=Package=" + shard + "\n");
+            for(String shard : artifacts.getShards()) writer.write("--nodes=Artifact=" + shard + "\n");
+            for(String shard : versionEdges.getShards()) writer.write("--relationships=version=" + shard + "\n");
+
+            String dependencyType = dependencyLinkage == Linkage.PackagePackage ? "dependentOnPP" : "dependentOn";
+            for(String shard : dependencyEdges.getShards()) writer.write("--relationships=" + dependencyType + "=" + shard + "\n");
+
+            writer.write("--multiline-fields=true\n");
+        }
+    }
+
+    private List<CsvShardWriter> getWriters(){
+        return List.of(packages, artifacts, versionEdges, dependencyEdges);
+    }
+
+    private static Map<String, Object> getProperties(Map<String, Object> params, String key){
+        Map<String, Object> properties = new HashMap<>(castMap(params.get(key)));
+        properties.remove("id");
+        return properties;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> castMap(Object map){
+        return (Map<String, Object>) map;
+    }
+}
@@ -3,13 +3,24 @@ package Database;
 import Application.ExceptionLogger;
 import Model.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import Model.Package;
 import Utilities.GlobalVersionRangeResolver;
+import Utilities.StageExecutor;
 import org.neo4j.driver.*;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.ResultCursor;
 import org.neo4j.driver.exceptions.TransientException;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
@@ -21,20 +32,59 @@ import static Utilities.GlobalUtilities.*;
  * to store Package objects in a given Neo4j database. Also exposes some generic functions for other classes to execute
  * Cypher queries with.
  * */
-public class Neo4jDatabaseController implements AutoCloseable {
+public class Neo4jDatabaseController implements GraphSink {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     public final Driver driver;
-    public int numberOfCollisions = 0;
-    public int numberOfCurrentCollisions = 0;
     private int maximumNumberOfCollisions = 0;
-    private final ArrayList<String> collisionBufferRequests = new ArrayList<>();
-    private final ArrayList<Map<String, Object>> collisionBufferParams = new ArrayList<>();
     private final Linkage dependencyLinkage;
-    private final ArrayList<Map<String,Map<String, Object>>> collisionBuffer = new ArrayList<>();
+    private final CollisionRetryQueue collisionBuffer;
+    private final Neo4jBatchWriter batchWriter;
+    private final Neo4jWriterLanes writerLanes;
+    private final StageExecutor writeExecutor;
+    private final int maxRowsPerStatement;
+    private final int parallel;
+    private final AtomicLong transientErrors = new AtomicLong(0);
+    private volatile Set<String> knownPackageIds = null;
     public boolean isClosed = false;
 
+    private static final int SEED_BATCH_SIZE = 10000;
+
+    /**
+     * Time in milliseconds a collided request is retried in place before it is added to the collision buffer. The
+     * number of attempts is derived from the backoff without jitter, so that it is the same in every run, and only the
+     * individual waits are jittered.
+     */
+    private static final long IN_PLACE_RETRY_MILLIS = 10000;
+
+    // CREATE instead of MERGE: Huge performance benefit
+    static final String artifactDependencyQuery = "UNWIND $dependencies AS dependency " +
+            "MATCH (a:Artifact {id:dependency.artifactId}) " +
+            "MERGE (p:Package {id:dependency.packageId}) ON CREATE SET p.name='Prototype Package' " +
+            "CREATE (a)-[d:dependentOn]->(p) SET d=dependency.props";
+
+    static final String packageDependencyQuery = "UNWIND $dependencies AS dependency " +
+            "MATCH (p1:Package {id:dependency.sourceId}) " +
+            "MERGE (p2:Package {id:dependency.packageId}) ON CREATE SET p2.name='Prototype Package' " +
+            "MERGE (p1)-[:dependentOnPP]->(p2)";
+
+    // Queries for dependency targets that are known to exist, MATCH does not lock the target for creation
+    static final String knownArtifactDependencyQuery = "UNWIND $dependencies AS dependency " +
+            "MATCH (a:Artifact {id:dependency.artifactId}) " +
+            "MATCH (p:Package {id:dependency.packageId}) " +
+            "CREATE (a)-[d:dependentOn]->(p) SET d=dependency.props";
+
+    static final String packageQuery = "MERGE (p:Package {id: $props.id}) SET p=$props";
+
+    static final String artifactQuery = "MATCH (p:Package {id:$packageId})" +
+            "UNWIND $artifacts AS artifact MERGE (p)-[:version]->(a:Artifact {id: artifact.id}) SET a = artifact ";
+
+    static final String knownPackageDependencyQuery = "UNWIND $dependencies AS dependency " +
+            "MATCH (p1:Package {id:dependency.sourceId}) " +
+            "MATCH (p2:Package {id:dependency.packageId}) " +
+            "MERGE (p1)-[:dependentOnPP]->(p2)";
+
     /**
      * Constructor of Neo4jDatabaseController
      * @param uri URL of neo4j database
@@ -43,25 +93,15 @@ public class Neo4jDatabaseController implements AutoCloseable {
      */
     public Neo4jDatabaseController(String uri, String user, String password) {
 
-        /* Collision Control Setup */
-        long maxWaitingTime = 10000;
+        /* Collision Control Setup, see IN_PLACE_RETRY_MILLIS */
         long currentWaitingTime = 0;
-        while(currentWaitingTime<maxWaitingTime){
+        while(currentWaitingTime<IN_PLACE_RETRY_MILLIS){
             maximumNumberOfCollisions++;
-            currentWaitingTime += getCollisionWaitingTime(maximumNumberOfCollisions);
+            currentWaitingTime += CollisionRetryQueue.getBaseBackoffMillis(maximumNumberOfCollisions - 1);
         }
 
         /* Get Dependency Linkage Configuration */
-        String linkageProp = System.getProperties().getOrDefault("dgm.linkage","pp").toString();
-        switch (linkageProp) {
-            case "pp" -> this.dependencyLinkage = Linkage.PackagePackage;
-            case "ap" -> this.dependencyLinkage = Linkage.ArtifactPackage;
-            case "aa" -> this.dependencyLinkage = Linkage.ArtifactArtifact;
-            default -> {
-                logger.warn("Wrong Dependency Linkage configuration, using Package-to-Package instead");
-                this.dependencyLinkage = Linkage.PackagePackage;
-            }
-        }
+        this.dependencyLinkage = getConfiguredLinkage();
 
         /* Driver Setup */
         Config config = Config.builder().withLogging(Logging.none())
@@ -72,6 +112,46 @@ public class Neo4jDatabaseController implements AutoCloseable {
                 .build();
         driver = GraphDatabase.driver(uri, AuthTokens.basic(user, password), config);
         driver.session().run("RETURN 1");
+
+        Properties props = System.getProperties();
+        this.maxRowsPerStatement = Integer.parseInt(props.getOrDefault("dgm.max-rows-per-statement","10000").toString());
+        int collisionBufferSize = Integer.parseInt(props.getOrDefault("dgm.collision-buffer-size","100000").toString());
+        this.parallel = Integer.parseInt(props.getOrDefault("dgm.parallel","10").toString());
+        this.collisionBuffer = new CollisionRetryQueue(this::sendCypherRequestOnce, collisionBufferSize, parallel);
+
+        /* Writer Lanes Setup, dependency edges are written by one lane per target package unless the lane count is 0 */
+        int laneCount = Integer.parseInt(props.getOrDefault("dgm.writer-lanes","4").toString());
+
+        if(laneCount > 0) this.writerLanes = new Neo4jWriterLanes(driver, laneCount, maxRowsPerStatement, collisionBuffer::add);
+        else this.writerLanes = null;
+
+        /* Batch Writer Setup, new packages are written in micro-batches unless the batch size is 0 */
+        int maxBatchSize = Integer.parseInt(props.getOrDefault("dgm.write-batch-size","100").toString());
+        long maxBatchDelay = Long.parseLong(props.getOrDefault("dgm.write-batch-delay","500").toString());
+
+        /* Continuations after asynchronous writes may block on full writer lanes, so they never run on the common pool */
+        this.writeExecutor = StageExecutor.fromProperty("neo4j-write", "dgm.write-continuation-threads", parallel);
+
+        if(maxBatchSize > 0) this.batchWriter = new Neo4jBatchWriter(driver, this::getDependencyStatements, this::insertNewPackageAsync, maxBatchSize, maxBatchDelay, maxRowsPerStatement, writerLanes, writeExecutor);
+        else this.batchWriter = null;
+    }
+
+    /**
+     * Reads the dependency linkage from the 'dgm.linkage' property.
+     *
+     * @return Configured linkage, Package-to-Package if the configuration is invalid
+     */
+    public static Linkage getConfiguredLinkage() {
+        String linkageProp = System.getProperties().getOrDefault("dgm.linkage","pp").toString();
+        switch (linkageProp) {
+            case "pp" -> { return Linkage.PackagePackage; }
+            case "ap" -> { return Linkage.ArtifactPackage; }
+            case "aa" -> { return Linkage.ArtifactArtifact; }
+            default -> {
+                LoggerFactory.getLogger(Neo4jDatabaseController.class).warn("Wrong Dependency Linkage configuration, using Package-to-Package instead");
+                return Linkage.PackagePackage;
+            }
+        }
     }
 
     /**
@@ -81,58 +161,69 @@ public class Neo4jDatabaseController implements AutoCloseable {
      * @param packageNode package node to write in database
      * @param isUpdate True if this package object is inserte
      */
+    @Override
     public void createPackageNode(Package packageNode, boolean isUpdate) {
         if(isUpdate) updatePackage(packageNode);
+        else if(batchWriter != null) batchWriter.add(packageNode);
         else insertNewPackage(packageNode);
     }
 
+    /**
+     * Stores the given package node without blocking the calling thread. New packages are written with the asynchronous
+     * driver API, so that the number of packages stored concurrently is not bound to a number of threads. Updates need
+     * to read the existing graph and are still stored synchronously on the given executor.
+     *
+     * @param packageNode package node to write in database
+     * @param isUpdate True if this package object only contains new artifacts of an existing package
+     * @param executor Executor to store updates on, and to continue on after asynchronous writes of new packages
+     * @return Stage that completes once the package has been stored
+     */
+    @Override
+    public CompletionStage<Void> createPackageNodeAsync(Package packageNode, boolean isUpdate, Executor executor) {
+        if(isUpdate) return GraphSink.super.createPackageNodeAsync(packageNode, true, executor);
+        else if(batchWriter != null) return batchWriter.addAsync(packageNode, executor);
+        else return insertNewPackageAsync(packageNode, executor);
+    }
+
+    /**
+     * Writes all new packages that are still waiting in the current write batch, and all dependency edges that are
+     * still waiting in the writer lanes.
+     */
+    @Override
+    public void flushPendingWrites() {
+        if(batchWriter != null) batchWriter.flush();
+        if(writerLanes != null) writerLanes.flush();
+    }
+
 
     private void insertNewPackage(Package packageNode){
         try (Session session = driver.session()) {
 
             /* Query for Package */
-            sendCypherRequest(session, 0, "MERGE (p:Package {id: $props.id}) SET p=$props", packageNode.getPackageProps());
+            sendCypherRequest(session, 0, packageQuery, packageNode.getPackageProps());
 
             /* Query for Artifacts */
-            sendCypherRequest(session, 0,
-                    "MATCH (p:Package {id:$packageId})" +
-                            "UNWIND $artifacts AS artifact MERGE (p)-[:version]->(a:Artifact {id: artifact.id}) SET a = artifact "
-                    , packageNode.getArtifactProps());
+            sendCypherRequest(session, 0, artifactQuery, packageNode.getArtifactProps());
 
             /* Query for Dependencies */
-            if (this.dependencyLinkage == Linkage.PackagePackage) {
-                // Calculate set of target packages once!
-                Set<String> targetPackageIds = new HashSet<>();
-                for (Artifact artifact : packageNode.getArtifactList()) {
-
-                    for (Dependency d : artifact.getDependencies()) {
-                        String dependencyId = packageNode.getRepository() + ":" + d.getName();
-                        targetPackageIds.add(dependencyId);
-                    }
-                }
-
-                Map<String, Object> params = new HashMap<>();
-                params.put("sourceId", packageNode.getId());
-                params.put("dependencies", new ArrayList<>(targetPackageIds));
-
-                sendCypherRequest(session, 0, "MATCH(p1: Package {id: $sourceId}) UNWIND $dependencies AS dependency " +
-                        "MERGE (p2: Package {id: dependency}) ON CREATE SET p2.name='Prototype Package' " +
-                        "MERGE (p1)-[:dependentOnPP]->(p2)", params);
-
-            } else {
-                /* Same Query for ArtifactPackage and ArtifactArtifact Linkage */
-                for (Artifact artifact : packageNode.getArtifactList()) {
-                    sendCypherRequest(session, 0,
-                            "MATCH (a:Artifact {id:$artifactId}) " +
-                                    "UNWIND $dependencies AS dependency " +
-                                    "MERGE (p:Package {id:dependency.packageId}) ON CREATE SET p.name='Prototype Package' " +
-                                    "CREATE (a)-[d:dependentOn]->(p) SET d=dependency.props" // CREATE instead of MERGE: Huge performance benefit
-                            , artifact.getDependencyProps(true));
-                }
-            }
+            writeDependencies(session, packageNode);
         }
     }
 
+    private CompletionStage<Void> insertNewPackageAsync(Package packageNode, Executor executor){
+        AsyncSession session = driver.asyncSession();
+
+        return sendCypherRequestAsync(session, 0, packageQuery, packageNode.getPackageProps())
+                .thenCompose(v -> sendCypherRequestAsync(session, 0, artifactQuery, packageNode.getArtifactProps()))
+                // Continue off the driver's I/O threads, writer lanes may block while they are full
+                .thenComposeAsync(v -> writeDependenciesAsync(session, packageNode), executor)
+                .handle((v, ex) -> ex)
+                .thenCompose(ex -> session.closeAsync().thenApply(closed -> {
+                    if(ex != null) logUncaught(ex);
+                    return null;
+                }));
+    }
+
     private void updatePackage(Package packageNode){
 
         final String apEdgeQuery = "MATCH (:Package {id :$id})<-[d:dependentOn {resolved: true}]-(a:Artifact) RETURN d.version AS v, a.id AS id";
@@ -142,14 +233,11 @@ public class Neo4jDatabaseController implements AutoCloseable {
 
             // Only update package node if it did not exist or was a prototype before
             if(!hasPackage(packageNode.getId(), session)){
-                sendCypherRequest(session, 0, "MERGE (p:Package {id: $props.id}) SET p=$props", packageNode.getPackageProps());
+                sendCypherRequest(session, 0, packageQuery, packageNode.getPackageProps());
             }
 
             // PackageNode will only contain new artifacts, so this is fine
-            sendCypherRequest(session, 0,
-                    "MATCH (p:Package {id:$packageId})" +
-                            "UNWIND $artifacts AS artifact MERGE (p)-[:version]->(a:Artifact {id: artifact.id}) SET a = artifact "
-                    , packageNode.getArtifactProps());
+            sendCypherRequest(session, 0, artifactQuery, packageNode.getArtifactProps());
 
             if(dependencyLinkage == Linkage.ArtifactArtifact && !packageNode.getArtifactList().isEmpty()){
                 // Correct all previously resolve Artifact-to-Package edges so that new artifacts are re-evaluated against the corresponding version range
@@ -187,38 +275,219 @@ public class Neo4jDatabaseController implements AutoCloseable {
 
 
             // Creation of new dependencies done as before.
-            if (this.dependencyLinkage == Linkage.PackagePackage) {
-                // Calculate set of target packages once!
-                Set<String> targetPackageIds = new HashSet<>();
-                for (Artifact artifact : packageNode.getArtifactList()) {
-
-                    for (Dependency d : artifact.getDependencies()) {
-                        String dependencyId = packageNode.getRepository() + ":" + d.getName();
-                        targetPackageIds.add(dependencyId);
-                    }
-                }
+            writeDependencies(session, packageNode);
 
-                Map<String, Object> params = new HashMap<>();
-                params.put("sourceId", packageNode.getId());
-                params.put("dependencies", new ArrayList<>(targetPackageIds));
+        }
+    }
+
+    /**
+     * Writes all dependency edges of the given package, either via the writer lanes or directly on the given session.
+     *
+     * @param session Current Neo4j session
+     * @param packageNode Package to write dependency edges for
+     */
+    private void writeDependencies(Session session, Package packageNode){
+        for (Map.Entry<String, List<Map<String, Object>>> statement : getDependencyStatements(packageNode).entrySet()) {
+            if (writerLanes != null) {
+                writerLanes.add(packageNode.getId(), statement.getKey(), statement.getValue());
+            } else {
+                /* Same Query for ArtifactPackage and ArtifactArtifact Linkage, dependencies of all artifacts at once */
+                for (List<Map<String, Object>> rows : chunk(statement.getValue(), maxRowsPerStatement)) {
+                    sendCypherRequest(session, 0, statement.getKey(), Map.of("dependencies", rows));
+                }
+            }
+        }
+    }
 
-                sendCypherRequest(session, 0, "MATCH(p1: Package {id: $sourceId}) UNWIND $dependencies AS dependency " +
-                        "MERGE (p2: Package {id: dependency}) ON CREATE SET p2.name='Prototype Package' " +
-                        "MERGE (p1)-[:dependentOnPP]->(p2)", params);
+    private CompletionStage<Void> writeDependenciesAsync(AsyncSession session, Package packageNode){
+        CompletionStage<Void> stage = CompletableFuture.completedFuture(null);
 
+        for (Map.Entry<String, List<Map<String, Object>>> statement : getDependencyStatements(packageNode).entrySet()) {
+            if (writerLanes != null) {
+                writerLanes.add(packageNode.getId(), statement.getKey(), statement.getValue());
             } else {
-                /* Same Query for ArtifactPackage and ArtifactArtifact Linkage */
-                for (Artifact artifact : packageNode.getArtifactList()) {
-                    sendCypherRequest(session, 0,
-                            "MATCH (a:Artifact {id:$artifactId}) " +
-                                    "UNWIND $dependencies AS dependency " +
-                                    "MERGE (p:Package {id:dependency.packageId}) ON CREATE SET p.name='Prototype Package' " +
-                                    "CREATE (a)-[d:dependentOn]->(p) SET d=dependency.props" // CREATE instead of MERGE: Huge performance benefit
-                            , artifact.getDependencyProps(true));
+                for (List<Map<String, Object>> rows : chunk(statement.getValue(), maxRowsPerStatement)) {
+                    stage = stage.thenCompose(v -> sendCypherRequestAsync(session, 0, statement.getKey(), Map.of("dependencies", rows)));
+                }
+            }
+        }
+
+        return stage;
+    }
+
+    /**
+     * Creates Package nodes for all given ids in parallel batches, before any package is mined. Dependency edges to
+     * these packages are afterwards written with MATCH instead of MERGE, so that targets do not need to be locked for
+     * creation. Seeded packages that are never mined remain prototype packages, those without any dependency edge are
+     * removed by deleteUnusedSeeds once mining has finished.
+     *
+     * @param packageIds Ids of all packages that are going to be mined
+     */
+    public void seedPackages(Collection<String> packageIds){
+        long startTime = System.currentTimeMillis();
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(packageIds));
+        Set<String> seededIds = ConcurrentHashMap.newKeySet(uniqueIds.size());
+
+        logger.info("Pre-seeding " + uniqueIds.size() + " package nodes...");
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallel));
+        for (List<String> ids : chunk(uniqueIds, SEED_BATCH_SIZE)) {
+            executor.execute(() -> {
+                try (Session session = driver.session()) {
+                    session.writeTransaction(tx -> tx.run("UNWIND $ids AS id MERGE (p:Package {id: id}) " +
+                            "ON CREATE SET p.name='Prototype Package'", Map.of("ids", ids)).consume());
+                    seededIds.addAll(ids);
+                } catch (Exception ex) {
+                    logger.warn("Failed to pre-seed " + ids.size() + " package nodes, dependencies to them will be merged", ex);
+                    ExceptionLogger.add(ex, this.getClass().getName());
                 }
+            });
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.knownPackageIds = seededIds;
+
+        float time = ((float) (System.currentTimeMillis() - startTime)) / 1000;
+        logger.info("Pre-seeded " + seededIds.size() + " package nodes in " + time + " seconds");
+    }
+
+    /**
+     * Deletes the package nodes created by seedPackages that are still prototype packages without any relationship,
+     * i.e. packages that could not be mined and that no other package depends on. Must only be called once all
+     * writes of the mining run have finished.
+     */
+    public void deleteUnusedSeeds(){
+        Set<String> seededIds = this.knownPackageIds;
+        if(seededIds == null || seededIds.isEmpty()) return;
+
+        long deleted = 0;
+        for (List<String> ids : chunk(new ArrayList<>(seededIds), SEED_BATCH_SIZE)) {
+            try (Session session = driver.session()) {
+                deleted += session.writeTransaction(tx -> tx.run("UNWIND $ids AS id MATCH (p:Package {id: id}) " +
+                        "WHERE p.name='Prototype Package' AND NOT (p)--() DELETE p", Map.of("ids", ids))
+                        .consume().counters().nodesDeleted());
+            } catch (Exception ex) {
+                logger.warn("Failed to delete unused seeds among " + ids.size() + " package nodes", ex);
+                ExceptionLogger.add(ex, this.getClass().getName());
+            }
+        }
+
+        logger.info("Deleted " + deleted + " pre-seeded package nodes that were neither mined nor depended on");
+    }
+
+    private Map<String, List<Map<String, Object>>> getDependencyStatements(Package packageNode){
+        return getDependencyStatements(packageNode, dependencyLinkage, knownPackageIds);
+    }
+
+    /**
+     * Builds the dependency rows of the given package and assigns each of them to the query it has to be written with:
+     * Rows to known target packages use MATCH, all others MERGE the target as prototype package.
+     *
+     * @param packageNode Package to build dependency statements for
+     * @param linkage Linkage to build statements for
+     * @param knownPackageIds Ids of packages known to exist, may be null
+     * @return Map of query to the rows to write with that query
+     */
+    static Map<String, List<Map<String, Object>>> getDependencyStatements(Package packageNode, Linkage linkage, Set<String> knownPackageIds){
+        boolean packageLinkage = linkage == Linkage.PackagePackage;
+        String mergeQuery = packageLinkage ? packageDependencyQuery : artifactDependencyQuery;
+        String matchQuery = packageLinkage ? knownPackageDependencyQuery : knownArtifactDependencyQuery;
+
+        Map<String, List<Map<String, Object>>> statements = new LinkedHashMap<>();
+        for (Map<String, Object> row : getDependencyRows(packageNode, linkage)) {
+            boolean known = knownPackageIds != null && knownPackageIds.contains(row.get("packageId").toString());
+            statements.computeIfAbsent(known ? matchQuery : mergeQuery, q -> new ArrayList<>()).add(row);
+        }
+
+        return statements;
+    }
+
+    /**
+     * Calculates the ids of all packages that the artifacts of the given package depend on.
+     *
+     * @param packageNode Package to get dependency targets for
+     * @return Set of target package ids
+     */
+    static Set<String> getTargetPackageIds(Package packageNode){
+        Set<String> targetPackageIds = new HashSet<>();
+        for (Artifact artifact : packageNode.getArtifactList()) {
+            for (Dependency d : artifact.getDependencies()) {
+                targetPackageIds.add(packageNode.getRepository() + ":" + d.getName());
+            }
+        }
+        return targetPackageIds;
+    }
+
+    /**
+     * Builds the dependency rows of the given package for the given linkage. For Package-to-Package linkage, there is
+     * one row per target package with the source and target package id, as expected by packageDependencyQuery.
+     * Otherwise, the rows of all artifacts are returned as expected by artifactDependencyQuery.
+     *
+     * @param packageNode Package to build dependency rows for
+     * @param linkage Linkage to build rows for
+     * @return List of dependency rows, each with the target package id as 'packageId'
+     */
+    static List<Map<String, Object>> getDependencyRows(Package packageNode, Linkage linkage){
+        if(linkage != Linkage.PackagePackage) return getDependencyRows(packageNode.getArtifactList());
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (String targetPackageId : getTargetPackageIds(packageNode)) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("sourceId", packageNode.getId());
+            row.put("packageId", targetPackageId);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Builds one row per Artifact-to-Package dependency of the given artifacts, each row contains the id of the source
+     * artifact, the id of the target package and the edge properties.
+     *
+     * @param artifacts Artifacts to build dependency rows for
+     * @return List of dependency rows for artifactDependencyQuery
+     */
+    static List<Map<String, Object>> getDependencyRows(List<Artifact> artifacts){
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        for (Artifact artifact : artifacts) {
+            Map<String, Object> artifactProps = artifact.getDependencyProps(true);
+
+            for (Object dependency : (List<?>) artifactProps.get("dependencies")) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> row = (Map<String, Object>) dependency;
+                row.put("artifactId", artifactProps.get("artifactId"));
+                rows.add(row);
             }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Splits the given rows into chunks of at most maxRows rows, so that single statements do not get too large.
+     *
+     * @param rows Rows to split
+     * @param maxRows Maximum number of rows per chunk, no limit if not positive
+     * @param <T> Row type
+     * @return List of chunks, empty if there are no rows
+     */
+    static <T> List<List<T>> chunk(List<T> rows, int maxRows){
+        if(rows.isEmpty()) return List.of();
+        if(maxRows <= 0 || rows.size() <= maxRows) return List.of(rows);
 
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += maxRows) {
+            chunks.add(rows.subList(i, Math.min(rows.size(), i + maxRows)));
         }
+
+        return chunks;
     }
 
     /**
@@ -280,6 +549,7 @@ public class Neo4jDatabaseController implements AutoCloseable {
                 session.run(request, params).consume();
             }
         } catch (TransientException exception) {
+            transientErrors.incrementAndGet();
 
             /* Collision Control */
             if (trys <= maximumNumberOfCollisions) {
@@ -291,9 +561,7 @@ public class Neo4jDatabaseController implements AutoCloseable {
                 }
                 sendCypherRequest(session, trys, request, params);
             } else {
-                addToCollisionBuffer(request,params);
-                numberOfCollisions++;
-                numberOfCurrentCollisions++;
+                collisionBuffer.add(request, params);
             }
         } catch (Exception ex) {
             if(!isClosed){
@@ -302,6 +570,49 @@ public class Neo4jDatabaseController implements AutoCloseable {
         }
     }
 
+    /**
+     * Asynchronous variant of sendCypherRequest. If the operation collides with concurrent modifications, it is retried
+     * after increasing intervals that are scheduled on a timer, so that no thread is blocked while waiting. If all
+     * retries fail, the operation is added to the collision buffer. The returned stage always completes normally.
+     *
+     * @param session Current asynchronous Neo4j session
+     * @param trys Number of times the execution of this operation has been tried before
+     * @param request Cypher request to execute
+     * @param params Optional parameters for the Cypher request
+     * @return Stage that completes once the request has been executed, retried or buffered
+     */
+    public CompletionStage<Void> sendCypherRequestAsync(AsyncSession session, int trys, String request, Map<String, Object> params) {
+        CompletionStage<ResultCursor> cursor = params == null ? session.runAsync(request) : session.runAsync(request, params);
+
+        return cursor.thenCompose(ResultCursor::consumeAsync)
+                .handle((summary, ex) -> {
+                    if (ex == null) return CompletableFuture.<Void>completedFuture(null);
+
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+
+                    /* Collision Control */
+                    if (cause instanceof TransientException) {
+                        transientErrors.incrementAndGet();
+                        if (trys <= maximumNumberOfCollisions) {
+                            int nextTrys = trys + 1;
+                            Executor timer = CompletableFuture.delayedExecutor(getCollisionWaitingTime(nextTrys), TimeUnit.MILLISECONDS);
+                            return CompletableFuture.runAsync(() -> {}, timer)
+                                    .thenCompose(v -> sendCypherRequestAsync(session, nextTrys, request, params));
+                        }
+                        collisionBuffer.add(request, params);
+                    } else if (!isClosed) {
+                        logUncaught(cause);
+                    }
+
+                    return CompletableFuture.<Void>completedFuture(null);
+                })
+                .thenCompose(stage -> stage);
+    }
+
+    private void logUncaught(Throwable cause){
+        ExceptionLogger.add(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause), this.getClass().getName());
+    }
+
     /**
      * Function to execute a given cypher request that does not involve returning a result.
      *
@@ -407,48 +718,63 @@ public class Neo4jDatabaseController implements AutoCloseable {
     }
 
     /**
-     * Adds a Cypher request to the collision buffer when it exceeded its maximum number of retries.
+     * Executes a single Cypher request in a fresh session without any collision control, used to replay requests of
+     * the collision buffer.
      *
      * @param request Cypher request string
-     * @param param Parameters of request
+     * @param params Parameters of request, may be null
      */
-    private void addToCollisionBuffer(String request, Map<String, Object> param){
-        this.collisionBufferRequests.add(request);
-        this.collisionBufferParams.add(param);
-        Map<String, Map<String, Object>> collision = new HashMap<>();
-        collision.put(request,param);
-        collisionBuffer.add(collision);
+    private void sendCypherRequestOnce(String request, Map<String, Object> params){
+        try (Session session = driver.session()) {
+            if (params == null) session.run(request).consume();
+            else session.run(request, params).consume();
+        }
     }
 
     /**
-     * Executes all Cypher requests in the collision buffer one after another to ensure that no further locking / concurrent
-     * modification exceptions may occur.
+     * Executes all Cypher requests in the collision buffer. Requests writing to different packages are replayed in
+     * parallel, requests to the same package in the order they collided.
      */
+    @Override
     public void drainCollisionBuffer(){
-        long startTime = System.currentTimeMillis();
-        int collisionBufferSize = this.collisionBuffer.size();
-        logger.info("== Start processing Collision Buffer of size " + collisionBufferSize + " ==");
-        Session session = driver.session();
-        for (int i = 0; i<Math.min(collisionBufferSize,this.collisionBuffer.size());i++){
-            sendCypherRequest(session,0,collisionBufferRequests.get(i),collisionBufferParams.get(i));
-        }
-        session.close();
-        float time = ((float) (System.currentTimeMillis() - startTime)) / 1000;
-        logger.info("== Collision Buffer drained in "+time+" secounds ==");
+        collisionBuffer.drain();
     }
 
     /* Get functions */
 
     private long getCollisionWaitingTime(int trys){
-        return 100+ 10L *trys;
+        return CollisionRetryQueue.getBackoffMillis(trys - 1);
     }
 
+    @Override
     public Linkage getDependencyLinkage() {
         return dependencyLinkage;
     }
 
+    @Override
+    public int getNumberOfCollisions() {
+        return collisionBuffer.getTotalCount();
+    }
+
+    @Override
+    public long getNumberOfTransientErrors() {
+        return transientErrors.get() + collisionBuffer.getTransientErrorCount() +
+                (writerLanes != null ? writerLanes.getTransientErrorCount() : 0) +
+                (batchWriter != null ? batchWriter.getTransientErrorCount() : 0);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return isClosed;
+    }
+
     @Override
     public void close() {
+        if(!this.isClosed && batchWriter != null) batchWriter.close();
+        if(!this.isClosed && writerLanes != null) writerLanes.close();
+        if(!this.isClosed) collisionBuffer.close();
+        if(!this.isClosed) writeExecutor.close();
+
         this.isClosed = true;
         driver.close();
     }
@@ -4,6 +4,7 @@ import Application.Task;
 import Model.Linkage;
 import Model.Package;
 import Utilities.GlobalVersionRangeResolver;
+import Utilities.StageExecutor;
 import akka.Done;
 import akka.NotUsed;
 import akka.actor.ActorSystem;
@@ -40,6 +41,7 @@ public class Neo4jLinkageParser {
     private Long endTime;
     private static final DecimalFormat df = new DecimalFormat("0.00");
     private int parallel;
+    private StageExecutor linkageExecutor;
     private final AtomicInteger oldDepCount = new AtomicInteger(0);
     private final AtomicInteger newDepCount = new AtomicInteger(0);
     private int packageCountTotal = 0;
@@ -84,6 +86,9 @@ public class Neo4jLinkageParser {
         startTime = System.currentTimeMillis();
         ActorSystem system = ActorSystem.create();
 
+        /* Resolution blocks on Bolt calls, so it gets its own threads instead of the common pool */
+        this.linkageExecutor = StageExecutor.fromProperty("linkage", "dgm.linkage-threads", this.parallel);
+
 
         Function<StringPair, CompletionStage<String>> stage = (packageIdAndRepo) -> {
             return CompletableFuture.supplyAsync(() -> {
@@ -101,9 +106,9 @@ public class Neo4jLinkageParser {
 
                         /* Get information of nodes and edges of original dependency edge */
 
-                        List<StringPair> fromDependencies = neo4jDatabaseController.sendCypherRequestWithResponseList(session,
+                        List<Map.Entry<String, String>> fromDependencies = neo4jDatabaseController.sendCypherRequestWithResponseList(session,
                                 "MATCH (a:Artifact)-[d:dependentOn {resolved: false}]->(:Package {id:$packageId}) RETURN a.id AS aid, d.version AS dv",
-                                r -> new StringPair(r.get("aid").asString(), r.get("dv").asString()), packageProp);
+                                r -> Map.entry(r.get("aid").asString(), r.get("dv").asString()), packageProp);
 
                         List<StringPair> toArtefacts = neo4jDatabaseController.sendCypherRequestWithResponseList(session,
                                 "MATCH (a:Artifact)<-[:version]-(:Package {id:$packageId}) RETURN a.id AS aid, a.version AS av",
@@ -117,20 +122,15 @@ public class Neo4jLinkageParser {
 
                         ArrayList<Map<String, Object>> dependencyParameters = new ArrayList<>();
 
-                        /* For every dependency */
-                        for (StringPair fromDependency : fromDependencies) {
-                            String fromVersionString = fromDependency.Second;
-                            String fromArtefactId = fromDependency.First;
-
-                            /* For every possible Artifact*/
-                            Set<String> containedVersions = rangeResolver.findMatchingVersions(packageRepo, fromVersionString, versionToIdLookup.keySet());
-                            for (String toArtefactVersion : containedVersions) {
-                                String toArtefactId = versionToIdLookup.get(toArtefactVersion);
-                                Map<String, Object> props = new HashMap<>();
-                                props.put("artefactId", fromArtefactId);
-                                props.put("dependentArtefactId", toArtefactId);
-                                dependencyParameters.add(props);
-                            }
+                        /* Resolve all dependencies at once, every distinct version specification is only resolved once */
+                        List<Map.Entry<String, String>> resolvedDependencies = rangeResolver.findMatchingVersions(packageRepo, fromDependencies, versionToIdLookup.keySet());
+
+                        for (Map.Entry<String, String> resolvedDependency : resolvedDependencies) {
+                            Map<String, Object> props = new HashMap<>();
+                            props.put("artefactId", resolvedDependency.getKey());
+                            props.put("dependentArtefactId", versionToIdLookup.get(resolvedDependency.getValue()));
+                            dependencyParameters.add(props);
+
                             if(dependencyParameters.size()>batchSize){
                                 processDependencies(session, dependencyParameters);
                             }
@@ -150,7 +150,7 @@ public class Neo4jLinkageParser {
                     if(session != null && session.isOpen()) session.close();
                 }
                 return null;
-            });
+            }, linkageExecutor);
         };
 
 
@@ -182,8 +182,10 @@ public class Neo4jLinkageParser {
                 this.neo4jDatabaseController.drainCollisionBuffer();
                 this.endTime = System.currentTimeMillis();
                 this.printPercentage();
+                rangeResolver.logStatistics();
                 task.setStatus(Status.FINISHED);
                 neo4jDatabaseController.close();
+                linkageExecutor.close();
                 system.terminate();
             } catch (Exception ex){
                 logger.error("Uncaught error in completion stage",  ex);
@@ -196,6 +198,7 @@ public class Neo4jLinkageParser {
             this.endTime = System.currentTimeMillis();
             task.setStatus(Status.ERROR);
             neo4jDatabaseController.close();
+            linkageExecutor.close();
             system.terminate();
             return null;
         };
@@ -220,6 +223,7 @@ public class Neo4jLinkageParser {
             } else {
                 float timespan = ((float) (System.currentTimeMillis() - this.startTime)) / 1000 / 60;
                 logger.info("=> " + percentage + "%" + " [" + this.packageCountCurrent + "/" + packageCountTotal + "] Packages / [" + this.oldDepCount.get() + " -> " + this.newDepCount.get() + " (" + df.format(((float) this.newDepCount.get() / (float) this.oldDepCount.get())) + ")] Dependencies, time " + df.format(timespan) + " minutes <=");
+                if(this.linkageExecutor != null) logger.info("   Stages: " + this.linkageExecutor.getStatus());
             }
         } else {
             float generatingTime = ((float) (this.endTime - startTime) / 1000) / 60 / 60;
@@ -232,6 +236,7 @@ public class Neo4jLinkageParser {
      */
     public void stop(){
         this.neo4jDatabaseController.close();
+        if(this.linkageExecutor != null) this.linkageExecutor.close();
         Thread.currentThread().interrupt();
     }
 
@@ -0,0 +1,200 @@
+package Database;
+
+import Application.ExceptionLogger;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.exceptions.TransientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Writer for dependency edges that routes every edge to one of several single-threaded lanes, chosen by the hash of the
+ * target package id. All writes that lock the same target package are therefore executed by the same thread one after
+ * another, while edges to unrelated targets are still written in parallel. Creating an edge also locks its source, and
+ * the sources of edges are spread over all lanes. Each lane therefore takes all edges waiting in its queue, but writes
+ * them in one transaction per source package, with one statement per query of up to a maximum number of rows. Lanes
+ * then share at most one locked node per transaction, the source, so that they can wait for each other but cannot
+ * deadlock, unless packages depend on each other.
+ */
+public class Neo4jWriterLanes implements AutoCloseable {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final int LANE_CAPACITY = 10000;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final Driver driver;
+    private final int maxRowsPerStatement;
+    private final BiConsumer<String, Map<String, Object>> collisionHandler;
+
+    private final List<BlockingQueue<LaneRow>> queues;
+    private final List<Thread> threads;
+    private volatile boolean running = true;
+
+    private final AtomicLong pendingRows = new AtomicLong(0);
+    private final AtomicLong transactionCount = new AtomicLong(0);
+    private final AtomicLong rowCount = new AtomicLong(0);
+    private final AtomicLong transientErrors = new AtomicLong(0);
+
+    /**
+     * Creates and starts a new set of writer lanes.
+     * @param driver Driver to open sessions with
+     * @param laneCount Number of lanes
+     * @param maxRowsPerStatement Maximum number of rows per statement, no limit if not positive
+     * @param collisionHandler Handler for statements that still collide after the transaction retries
+     */
+    public Neo4jWriterLanes(Driver driver, int laneCount, int maxRowsPerStatement,
+                            BiConsumer<String, Map<String, Object>> collisionHandler){
+        this.driver = driver;
+        this.maxRowsPerStatement = maxRowsPerStatement > 0 ? maxRowsPerStatement : Integer.MAX_VALUE;
+        this.collisionHandler = collisionHandler;
+
+        this.queues = new ArrayList<>(laneCount);
+        this.threads = new ArrayList<>(laneCount);
+
+        for(int i = 0; i < laneCount; i++){
+            BlockingQueue<LaneRow> queue = new ArrayBlockingQueue<>(LANE_CAPACITY);
+            Thread thread = new Thread(() -> runLane(queue), "neo4j-writer-lane-" + i);
+            thread.setDaemon(true);
+
+            queues.add(queue);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Adds the given dependency rows to the lanes of their target packages. Blocks while the lane of a row is full.
+     * @param sourceId Id of the package the rows belong to, rows of different packages are written in separate transactions
+     * @param query Query that UNWINDs $dependencies to write the rows with
+     * @param rows Rows to write, each with a 'packageId' entry holding the target package id
+     */
+    public void add(String sourceId, String query, List<Map<String, Object>> rows){
+        for(Map<String, Object> row : rows){
+            String targetId = row.get("packageId").toString();
+            BlockingQueue<LaneRow> queue = queues.get(Math.floorMod(targetId.hashCode(), queues.size()));
+
+            pendingRows.incrementAndGet();
+            try {
+                queue.put(new LaneRow(sourceId, query, row));
+            } catch (InterruptedException ex){
+                pendingRows.decrementAndGet();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until all rows added so far have been written.
+     */
+    public void flush(){
+        synchronized (pendingRows) {
+            while(pendingRows.get() > 0){
+                try {
+                    pendingRows.wait(POLL_INTERVAL_MILLIS);
+                } catch (InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of lane transactions that failed with transient errors, e.g. deadlocks, including those that were
+     * retried successfully.
+     * @return Number of transient errors
+     */
+    public long getTransientErrorCount() { return transientErrors.get(); }
+
+    /**
+     * Writes all pending rows and stops all lanes.
+     */
+    @Override
+    public void close(){
+        flush();
+        running = false;
+
+        for(Thread thread : threads){
+            try {
+                thread.join();
+            } catch (InterruptedException ex){
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if(transactionCount.get() > 0){
+            logger.info("Writer lanes: " + rowCount.get() + " dependency rows in " + transactionCount.get() +
+                    " transactions on " + threads.size() + " lanes");
+        }
+    }
+
+    private void runLane(BlockingQueue<LaneRow> queue){
+        while(running || !queue.isEmpty()){
+            try {
+                LaneRow first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null) continue;
+
+                List<LaneRow> rows = new ArrayList<>();
+                rows.add(first);
+                queue.drainTo(rows, maxRowsPerStatement - 1);
+
+                // Rows of one source package are written together, in the order the packages were added
+                Map<String, List<LaneRow>> rowsBySource = new LinkedHashMap<>();
+                for(LaneRow row : rows) rowsBySource.computeIfAbsent(row.sourceId, s -> new ArrayList<>()).add(row);
+
+                for(List<LaneRow> sourceRows : rowsBySource.values()) write(sourceRows);
+            } catch (InterruptedException ex){
+                if(!running) return;
+            }
+        }
+    }
+
+    private void write(List<LaneRow> rows){
+        Map<String, List<Map<String, Object>>> rowsByQuery = new LinkedHashMap<>();
+        for(LaneRow row : rows) rowsByQuery.computeIfAbsent(row.query, q -> new ArrayList<>()).add(row.row);
+
+        AtomicLong attempts = new AtomicLong(0);
+
+        try (Session session = driver.session()) {
+            // Transaction functions retry transient errors with backoff before giving up, every retry follows one
+            session.writeTransaction(tx -> {
+                if(attempts.getAndIncrement() > 0) transientErrors.incrementAndGet();
+                rowsByQuery.forEach((query, queryRows) -> tx.run(query, Map.of("dependencies", queryRows)).consume());
+                return null;
+            });
+            transactionCount.incrementAndGet();
+            rowCount.addAndGet(rows.size());
+        } catch (TransientException ex){
+            transientErrors.incrementAndGet();
+            rowsByQuery.forEach((query, queryRows) -> collisionHandler.accept(query, Map.of("dependencies", queryRows)));
+        } catch (Exception ex){
+            logger.error("Failed to write " + rows.size() + " dependency rows", ex);
+            ExceptionLogger.add(ex, this.getClass().getName());
+        } finally {
+            if(pendingRows.addAndGet(-rows.size()) == 0){
+                synchronized (pendingRows) { pendingRows.notifyAll(); }
+            }
+        }
+    }
+
+    private static class LaneRow {
+        final String sourceId;
+        final String query;
+        final Map<String, Object> row;
+
+        LaneRow(String sourceId, String query, Map<String, Object> row){
+            this.sourceId = sourceId;
+            this.query = query;
+            this.row = row;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package Repositories;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Thread-safe cache that is bounded by the total weight of its entries. It is shared by all threads that use a
+ * VersionRangeResolver, so lookups must not block each other:
+ *  - Reads are lock-free, they only access a ConcurrentHashMap and mark the entry as recently used.
+ *  - Eviction follows the CLOCK (second chance) policy: Entries are kept in insertion order, recently used entries are
+ *    skipped once and moved to the back, the first entry that has not been used since is evicted. This approximates LRU
+ *    in amortized O(1) per evicted entry.
+ *  - Admission follows TinyLFU: The frequency of lookups per key is estimated by a count-min sketch of 4 bit counters,
+ *    which are halved periodically so that old lookups fade. If a new entry would evict an entry whose key has been
+ *    looked up more often, the new entry is rejected instead, so that keys that are used only once (e.g. unusual
+ *    specifications) do not push out frequently used ones.
+ * Null values are not stored. Hits, misses, evictions and rejections are counted and can be retrieved via
+ * getStatistics().
+ *
+ * @param <K> Type of keys
+ * @param <V> Type of values
+ */
+public class BoundedConcurrentCache<K, V> {
+
+    private final Map<K, Node<K, V>> theCache = new ConcurrentHashMap<>();
+    private final Queue<Node<K, V>> clockQueue = new ConcurrentLinkedQueue<>();
+
+    private final long maxWeight;
+    private final ToIntBiFunction<K, V> weigher;
+    private final AtomicLong totalWeight = new AtomicLong(0);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private final FrequencySketch sketch;
+
+    /**
+     * Creates a new cache that holds at most maxEntries entries.
+     * @param maxEntries Maximum number of entries
+     */
+    public BoundedConcurrentCache(long maxEntries){
+        this(maxEntries, (key, value) -> 1);
+    }
+
+    /**
+     * Creates a new cache that is bounded by the total weight of its entries.
+     * @param maxWeight Maximum total weight of all entries
+     * @param weigher Function computing the weight of an entry, must be positive
+     */
+    public BoundedConcurrentCache(long maxWeight, ToIntBiFunction<K, V> weigher){
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.sketch = new FrequencySketch(maxWeight);
+    }
+
+    /**
+     * Retrieves the value associated with the given key.
+     * @param key Key to look up
+     * @return Value, or null if there is no entry for the key
+     */
+    public V get(K key){
+        sketch.increment(key.hashCode());
+        Node<K, V> node = theCache.get(key);
+
+        if(node == null){
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        // Plain volatile read before the write avoids invalidating the cache line for hot entries
+        if(!node.referenced) node.referenced = true;
+        return node.value;
+    }
+
+    /**
+     * Associates the given value with the given key if there is no entry for the key yet. Evicts entries if the maximum
+     * weight is exceeded afterwards, or drops the new entry again if its key is looked up less often than the entry it
+     * would evict.
+     * @param key Key to store
+     * @param value Value to store, ignored if null
+     * @return The value now associated with the key, i.e. either an existing value or the given one
+     */
+    public V putIfAbsent(K key, V value){
+        if(value == null) return null;
+
+        int weight = weigher.applyAsInt(key, value);
+
+        // Entries that could never fit are not cached at all
+        if(weight > maxWeight) return value;
+
+        Node<K, V> node = new Node<>(key, value, weight);
+        Node<K, V> existing = theCache.putIfAbsent(key, node);
+
+        if(existing != null) return existing.value;
+
+        clockQueue.offer(node);
+
+        if(totalWeight.addAndGet(weight) > maxWeight) evict(node);
+
+        return value;
+    }
+
+    /**
+     * Removes all entries from this cache. Statistics are not reset.
+     */
+    public void clear(){
+        for(Node<K, V> node : theCache.values()){
+            removeNode(node);
+        }
+
+        clockQueue.removeIf(node -> node.removed);
+    }
+
+    /**
+     * Retrieves the number of entries currently stored in this cache.
+     * @return Number of entries
+     */
+    public int size() { return theCache.size(); }
+
+    /**
+     * Retrieves a snapshot of the statistics of this cache.
+     * @return Cache statistics
+     */
+    public CacheStatistics getStatistics(){
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum(), rejections.sum(), theCache.size(), totalWeight.get());
+    }
+
+    private void evict(Node<K, V> candidate){
+        // Every entry is skipped at most once per pass, so scanning twice the number of entries guarantees progress even
+        // if all entries are in use
+        long remainingSkips = 2L * theCache.size();
+
+        while(totalWeight.get() > maxWeight){
+            Node<K, V> node = clockQueue.poll();
+
+            if(node == null) return;
+            if(node.removed) continue;
+
+            if(node.referenced && remainingSkips-- > 0){
+                node.referenced = false;
+                clockQueue.offer(node);
+            } else if(candidate != null && node != candidate && !candidate.removed &&
+                    sketch.frequency(candidate.key.hashCode()) < sketch.frequency(node.key.hashCode())){
+                // The victim is used more often than the new entry, it keeps its place and the new entry is dropped
+                clockQueue.offer(node);
+                if(removeNode(candidate)) rejections.increment();
+                candidate = null;
+            } else if(removeNode(node)) {
+                // All other entries have been used since, the new entry is the first one not in use
+                if(node == candidate) rejections.increment();
+                else evictions.increment();
+            }
+        }
+    }
+
+    private boolean removeNode(Node<K, V> node){
+        if(theCache.remove(node.key, node)){
+            node.removed = true;
+            totalWeight.addAndGet(-node.weight);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Count-min sketch with four 4 bit counters per key, packed into longs. Updates are not atomic, lost increments
+     * under contention only make the estimate slightly less accurate. Once the number of increments reaches ten times
+     * the number of counters, all counters are halved.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int counterMask;
+        private final int resetThreshold;
+        private final AtomicLong increments = new AtomicLong(0);
+
+        private FrequencySketch(long expectedEntries){
+            // 16 counters per long, four counters per expected entry, between 2^10 and 2^20 counters
+            int counters = Integer.highestOneBit((int) Math.max(1 << 10, Math.min(1 << 20, 4 * expectedEntries)) * 2 - 1);
+            this.table = new long[counters / 16];
+            this.counterMask = counters - 1;
+            this.resetThreshold = 10 * counters;
+        }
+
+        private void increment(int hash){
+            for(int i = 0; i < SEEDS.length; i++){
+                int counter = indexOf(hash, i);
+                int index = counter >>> 4;
+                int shift = (counter & 15) << 2;
+
+                if(((table[index] >>> shift) & 15) < 15) table[index] += 1L << shift;
+            }
+
+            if(increments.incrementAndGet() >= resetThreshold) reset();
+        }
+
+        private int frequency(int hash){
+            int frequency = 15;
+
+            for(int i = 0; i < SEEDS.length; i++){
+                int counter = indexOf(hash, i);
+                frequency = Math.min(frequency, (int) ((table[counter >>> 4] >>> ((counter & 15) << 2)) & 15));
+            }
+
+            return frequency;
+        }
+
+        private void reset(){
+            if(increments.getAndSet(0) < resetThreshold) return;
+
+            for(int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & HALF_MASK;
+        }
+
+        private int indexOf(int hash, int i){
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & counterMask;
+        }
+    }
+
+    private static class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final int weight;
+
+        private volatile boolean referenced = false;
+        private volatile boolean removed = false;
+
+        private Node(K key, V value, int weight){
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the statistics of a BoundedConcurrentCache.
+     */
+    public static class CacheStatistics {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long rejectionCount;
+        private final int entryCount;
+        private final long weight;
+
+        private CacheStatistics(long hitCount, long missCount, long evictionCount, long rejectionCount, int entryCount, long weight){
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.rejectionCount = rejectionCount;
+            this.entryCount = entryCount;
+            this.weight = weight;
+        }
+
+        public long getHitCount() { return hitCount; }
+
+        public long getMissCount() { return missCount; }
+
+        public long getEvictionCount() { return evictionCount; }
+
+        /**
+         * Retrieves the number of new entries that were dropped by the admission policy.
+         * @return Number of rejected entries
+         */
+        public long getRejectionCount() { return rejectionCount; }
+
+        public int getEntryCount() { return entryCount; }
+
+        public long getWeight() { return weight; }
+
+        /**
+         * Retrieves the ratio of lookups that were served from the cache.
+         * @return Hit rate between 0 and 1, 0 if there have been no lookups
+         */
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0.0 : (double) hitCount / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d entries (weight %d), %d hits, %d misses (%.1f%% hit rate), %d evictions, %d rejections",
+                    entryCount, weight, hitCount, missCount, getHitRate() * 100, evictionCount, rejectionCount);
+        }
+    }
+}
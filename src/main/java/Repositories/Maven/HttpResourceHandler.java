@@ -29,7 +29,7 @@ public class HttpResourceHandler implements ResourceHandler {
 
     @Override
     public void close() throws IOException {
-        this.resource.close();
+        if(this.resource != null) this.resource.close();
     }
 }
 
@@ -63,6 +63,6 @@ class HttpResource implements ResourceHandler.Resource {
      * @throws IOException In case the closing operation fails
      */
     public void close() throws IOException {
-        inStream.close();
+        if(inStream != null) inStream.close();
     }
 }
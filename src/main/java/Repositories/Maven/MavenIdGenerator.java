@@ -2,12 +2,14 @@ package Repositories.Maven;
 
 import Application.ExceptionLogger;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import Repositories.RepositoryController;
+import org.apache.maven.index.reader.ChunkReader;
 import org.apache.maven.index.reader.IndexReader;
+import org.apache.maven.index.reader.ResourceHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,7 +18,8 @@ import static Utilities.GlobalUtilities.*;
 
 /**
  * Id Generator implementation for the Maven Central repository. Uses the official Maven Index Reader implementation to
- * access the Maven Central lucene index via HTTP.
+ * access the Maven Central lucene index via HTTP. If enabled, the index is read from a local mirror, so that in update
+ * mode only the incremental index chunks published since the last completely read and mined index are enumerated.
  */
 public class MavenIdGenerator implements RepositoryController.IdGenerator {
 
@@ -26,64 +29,135 @@ public class MavenIdGenerator implements RepositoryController.IdGenerator {
     private final int offset;
     private static final String urlBase = "https://repo1.maven.org/maven2/";
     private int uniquePackageCount = 0;
+    private final boolean useMirror;
+    private final File mirrorDirectory;
+    /** Mirror of the last completely read index, its state is committed once the generated ids have been mined */
+    private MavenIndexMirror completeMirror;
 
     /** Constructor of the Name Generator, gets a limit and offset for the list of names to generate */
     public MavenIdGenerator() {
         Properties props = System.getProperties();
         this.limit = Integer.parseInt(props.getOrDefault("dgm.limit","0").toString());
         this.offset = Integer.parseInt(props.getOrDefault("dgm.offset","0").toString());
+        this.useMirror = Boolean.parseBoolean(props.getOrDefault("dgm.maven.index-mirror","false").toString());
+        this.mirrorDirectory = new File(props.getOrDefault("dgm.maven.index-directory","maven-index").toString());
     }
 
     @Override
     public List<String> generateIds() {
+        return generateIds(false);
+    }
+
+    @Override
+    public List<String> generateUpdatedIds() {
+        // Without mirror there is no local index state to continue from
+        return generateIds(useMirror);
+    }
+
+    @Override
+    public void commitGeneratedIds() {
+        if(completeMirror == null) return;
+
+        try {
+            completeMirror.commitState();
+            logger.info("Committed Maven Central index state, later updates continue from this index");
+        } catch (IOException e) {
+            logger.error("Could not commit Maven Central index state", e);
+            ExceptionLogger.add(e,this.getClass().getName());
+        }
+        completeMirror = null;
+    }
+
+    private List<String> generateIds(boolean incremental) {
         long startTime = System.currentTimeMillis();
         logger.info("== Mining of Maven Package names ==");
 
-        ArrayList<String> packageIds = new ArrayList<>();
-        ArrayList<String> uniquePackageIds = new ArrayList<>();
+        // Duplicates are dropped while reading the index, the linked set keeps the order of the index
+        Set<String> uniquePackageIds = new LinkedHashSet<>();
+
+        MavenIndexMirror mirror = null;
+        ResourceHandler remote = null;
+        boolean complete = true;
+        completeMirror = null;
 
         try {
-            IndexReader indexReader = new IndexReader(null, new HttpResourceHandler(urlBase + ".index/"));
-            Iterator<Map<String, String>> iterator = indexReader.iterator().next().iterator();
-            while (iterator.hasNext()) {
-                String[] propertyU = iterator.next().toString().split(", u=");
-                try {
-                    propertyU = propertyU[1].split(", i=");
-                    propertyU = propertyU[0].split("[|]");
-                    String newPackageId = propertyU[0].replaceAll("[.]", "/") + "/" + propertyU[1];
-                    packageIds.add(newPackageId);
-
-                    /* For every 100000 packages, start collecting package names without duplicates */
-                    if(packageIds.size()>=100000) {
-                        uniquePackageIds.addAll(packageIds.stream().distinct().collect(Collectors.toList()));
-                        packageIds = new ArrayList<>();
-                        uniquePackageIds = uniquePackageIds.stream().distinct().collect(Collectors.toCollection(ArrayList::new));
-                        int currentSize = uniquePackageIds.size();
-                        if(currentSize-uniquePackageCount>50000){
-                            printPercentage(currentSize);
-                            uniquePackageCount = currentSize;
+            if(useMirror) {
+                mirror = new MavenIndexMirror(urlBase + ".index/", mirrorDirectory);
+                remote = mirror;
+            } else {
+                remote = new HttpResourceHandler(urlBase + ".index/");
+            }
+
+            IndexReader indexReader = new IndexReader(incremental ? mirror.getStateHandler() : null, remote);
+            if(incremental) {
+                if(indexReader.isIncremental()) logger.info("Reading " + indexReader.getChunkNames().size() + " incremental index chunks");
+                else logger.info("No previous index state matches the published index, reading the full index");
+            }
+
+            Iterator<ChunkReader> chunks = indexReader.iterator();
+            while (complete && chunks.hasNext()) {
+                try (ChunkReader chunk = chunks.next()) {
+                    Iterator<Map<String, String>> iterator = chunk.iterator();
+                    while (iterator.hasNext()) {
+                        String newPackageId = getPackageId(iterator.next());
+
+                        if (newPackageId != null && uniquePackageIds.add(newPackageId)) {
+                            int currentSize = uniquePackageIds.size();
+                            if(currentSize-uniquePackageCount>=50000){
+                                printPercentage(currentSize);
+                                uniquePackageCount = currentSize;
+                            }
+                            if(currentSize>=(limit+offset)&&limit!=0) {
+                                complete = false;
+                                break;
+                            }
                         }
-                        if(currentSize>(limit+offset)&&limit!=0)
-                            break;
                     }
-                } catch (IndexOutOfBoundsException ex) {
-                    //Logger.add(ex,this.getClass().getName());
                 }
             }
-        } catch (IOException e) {
+
+            // Later updates only continue from indexes that have been read completely, and only once mining succeeded
+            completeMirror = complete ? mirror : null;
+        } catch (IOException | IllegalArgumentException e) {
             logger.error("Error while reading Maven Central index", e);
             ExceptionLogger.add(e,this.getClass().getName());
+        } finally {
+            try {
+                if(remote != null) remote.close();
+            } catch (IOException e) {
+                ExceptionLogger.add(e,this.getClass().getName());
+            }
         }
 
-        uniquePackageIds = uniquePackageIds.stream().distinct().collect(Collectors.toCollection(ArrayList::new));
         if (this.limit == 0) {
-            this.limit = uniquePackageIds.size() - offset;
+            this.limit = Math.max(0, uniquePackageIds.size() - offset);
         }
         long endTime = System.currentTimeMillis();
         int generatingTime = Math.round(((float) (endTime - startTime) / 1000) / 60);
         logger.info("=> Time for mining of the " + this.limit + " package names: " + generatingTime + " minutes <=");
 
-        return new ArrayList<>(uniquePackageIds.subList(offset, limit+offset-1));
+        List<String> packageIds = new ArrayList<>(uniquePackageIds);
+        return new ArrayList<>(packageIds.subList(Math.min(offset, packageIds.size()), Math.min(limit+offset, packageIds.size())));
+    }
+
+    /**
+     * Builds the package id group/path/artifactId from the "u" field of an index record, which has the form
+     * groupId|artifactId|version|classifier|extension.
+     * @param record Index record
+     * @return Package id, or null if the record describes no artifact
+     */
+    static String getPackageId(Map<String, String> record) {
+        String uinfo = record.get("u");
+        if (uinfo == null) return null;
+
+        int groupEnd = uinfo.indexOf('|');
+        if (groupEnd <= 0) return null;
+
+        int artifactEnd = uinfo.indexOf('|', groupEnd + 1);
+        if (artifactEnd < 0) artifactEnd = uinfo.length();
+        if (artifactEnd == groupEnd + 1) return null;
+
+        return uinfo.substring(0, groupEnd).replace('.', '/') + "/" + uinfo.substring(groupEnd + 1, artifactEnd);
     }
 
     private void printPercentage( int total) {
@@ -0,0 +1,230 @@
+package Repositories.Maven;
+
+import org.apache.maven.index.reader.ResourceHandler;
+import org.apache.maven.index.reader.WritableResourceHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Local mirror of the Maven Central index, used as remote ResourceHandler of the maven index reader. Index files are
+ * downloaded to the mirror directory before they are read. Interrupted downloads are resumed with HTTP Range requests,
+ * the full index chunk is revalidated with its ETag or Last-Modified date and incremental chunks, which never change,
+ * are only downloaded once. The index properties of the last completely read index are kept as local state, so that
+ * later runs can read only the incremental chunks published since.
+ */
+class MavenIndexMirror implements ResourceHandler {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final String PROPERTIES_FILE = "nexus-maven-repository-index.properties";
+    private static final String FULL_CHUNK_FILE = "nexus-maven-repository-index.gz";
+    private static final String PART_SUFFIX = ".part";
+    private static final String META_SUFFIX = ".meta";
+    private static final int MAX_ATTEMPTS = 10;
+    private static final int READ_TIMEOUT_MILLIS = 300000;
+
+    private final String url;
+    private final File directory;
+    private final File stateDirectory;
+    private final List<InputStream> openStreams = new ArrayList<>();
+
+    /**
+     * Creates a new mirror of the index at the given base URL.
+     * @param url Base URL of the index
+     * @param directory Directory to mirror index files to, is created if it does not exist
+     * @throws IOException If the directory cannot be created
+     */
+    MavenIndexMirror(String url, File directory) throws IOException {
+        this.url = url;
+        this.directory = directory;
+        this.stateDirectory = new File(directory, "state");
+
+        Files.createDirectories(stateDirectory.toPath());
+    }
+
+    @Override
+    public Resource locate(String name) {
+        return () -> {
+            File file;
+            if (name.equals(PROPERTIES_FILE)) {
+                try {
+                    file = download(name, false);
+                } catch (IOException ex) {
+                    // Without connection, the mirrored index can still be read
+                    file = new File(directory, name);
+                    if (!file.isFile()) throw ex;
+                    logger.warn("Could not download " + name + ", using mirrored copy", ex);
+                }
+            } else {
+                file = download(name, !name.equals(FULL_CHUNK_FILE));
+            }
+
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            synchronized (openStreams) {
+                openStreams.add(in);
+            }
+            return in;
+        };
+    }
+
+    /**
+     * Gets the handler of the local state, which holds the index properties of the last completely read index.
+     * @return Local resource handler
+     */
+    WritableResourceHandler getStateHandler() {
+        return new FileResourceHandler(stateDirectory);
+    }
+
+    /**
+     * Stores the properties of the mirrored index as local state. Must only be called once the index has been read
+     * completely and its packages have been mined, later runs then continue with the incremental chunks published after it.
+     * @throws IOException If the state cannot be written
+     */
+    void commitState() throws IOException {
+        Files.copy(new File(directory, PROPERTIES_FILE).toPath(), new File(stateDirectory, PROPERTIES_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (openStreams) {
+            for (InputStream in : openStreams) in.close();
+            openStreams.clear();
+        }
+    }
+
+    /**
+     * Downloads the given index file to the mirror directory, unless an up-to-date copy exists. Partial downloads are
+     * resumed if the remote file has not changed in the meantime.
+     */
+    private File download(String name, boolean immutable) throws IOException {
+        File target = new File(directory, name);
+        File part = new File(directory, name + PART_SUFFIX);
+        File metaFile = new File(directory, name + META_SUFFIX);
+
+        if (immutable && target.isFile()) return target;
+
+        IOException lastException = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            Properties meta = loadMeta(metaFile);
+            String validator = meta.getProperty("etag", meta.getProperty("lastModified"));
+
+            HttpURLConnection http = (HttpURLConnection) new URL(url + name).openConnection();
+            try {
+                http.setRequestMethod("GET");
+                http.setReadTimeout(READ_TIMEOUT_MILLIS);
+                http.setRequestProperty("User-Agent", "DependencyGraphMiner");
+
+                long offset = part.isFile() && validator != null ? part.length() : 0;
+                if (offset > 0) {
+                    http.setRequestProperty("Range", "bytes=" + offset + "-");
+                    http.setRequestProperty("If-Range", validator);
+                } else if (target.isFile()) {
+                    if (meta.getProperty("etag") != null) http.setRequestProperty("If-None-Match", meta.getProperty("etag"));
+                    if (meta.getProperty("lastModified") != null) http.setRequestProperty("If-Modified-Since", meta.getProperty("lastModified"));
+                }
+
+                int status = http.getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && offset == 0) return target;
+                if (status == 416) {
+                    // The partial download does not fit the remote file anymore, start over
+                    Files.deleteIfExists(part.toPath());
+                    throw new IOException("Range of partial download " + name + " not satisfiable");
+                }
+                if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL)
+                    throw new IOException("Unexpected status " + status + " for " + url + name);
+
+                boolean append = status == HttpURLConnection.HTTP_PARTIAL;
+                if (!append) {
+                    // The remote file is new or has changed, the validators of the partial download no longer apply
+                    offset = 0;
+                    meta = new Properties();
+                    if (http.getHeaderField("ETag") != null) meta.setProperty("etag", http.getHeaderField("ETag"));
+                    if (http.getHeaderField("Last-Modified") != null) meta.setProperty("lastModified", http.getHeaderField("Last-Modified"));
+                    storeMeta(metaFile, meta);
+                }
+
+                long expectedLength = http.getContentLengthLong() < 0 ? -1 : offset + http.getContentLengthLong();
+                if (offset > 0) logger.info("Resuming download of " + name + " at " + offset + " bytes");
+                else logger.info("Downloading " + name + " to " + directory);
+
+                try (InputStream in = http.getInputStream(); OutputStream out = new FileOutputStream(part, append)) {
+                    in.transferTo(out);
+                }
+
+                if (expectedLength >= 0 && part.length() != expectedLength)
+                    throw new IOException("Download of " + name + " ended after " + part.length() + " of " + expectedLength + " bytes");
+
+                Files.move(part.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return target;
+            } catch (IOException ex) {
+                lastException = ex;
+                logger.warn("Download of " + name + " failed (attempt " + attempt + " of " + MAX_ATTEMPTS + ")", ex);
+            } finally {
+                http.disconnect();
+            }
+        }
+
+        throw lastException;
+    }
+
+    private static Properties loadMeta(File metaFile) throws IOException {
+        Properties meta = new Properties();
+        if (metaFile.isFile()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(metaFile), StandardCharsets.UTF_8)) {
+                meta.load(reader);
+            }
+        }
+        return meta;
+    }
+
+    private static void storeMeta(File metaFile, Properties meta) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(metaFile), StandardCharsets.UTF_8)) {
+            meta.store(writer, null);
+        }
+    }
+
+    /**
+     * File implementation of the Maven WritableResourceHandler, resources that do not exist are read as null.
+     */
+    static class FileResourceHandler implements WritableResourceHandler {
+        private final File directory;
+
+        FileResourceHandler(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public WritableResource locate(String name) {
+            File file = new File(directory, name);
+
+            return new WritableResource() {
+                @Override
+                public InputStream read() throws IOException {
+                    return file.isFile() ? new FileInputStream(file) : null;
+                }
+
+                @Override
+                public OutputStream write() throws IOException {
+                    return new FileOutputStream(file);
+                }
+
+                @Override
+                public void close() { }
+            };
+        }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -5,6 +5,7 @@ import Model.*;
 import Model.Package;
 import Repositories.Miner;
 import Repositories.RepositoryController;
+import Utilities.HttpUtilities;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -12,15 +13,15 @@ import org.json.XML;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static Utilities.GlobalUtilities.*;
@@ -39,12 +40,19 @@ public class MavenMiner extends Miner {
     private final AtomicInteger timeoutCounter;
     private final AtomicInteger formatErrorCounter;
 
+    /** Maximum number of POM files of one package that are downloaded concurrently */
+    private final int pomParallel;
+    /** Limits the number of POM downloads in flight across all packages */
+    private final Semaphore pomRequests;
+
     /**
      * Create a new instance of the Maven Central miner.
      */
     public MavenMiner() {
         timeoutCounter = new AtomicInteger(0);
         formatErrorCounter = new AtomicInteger(0);
+        pomParallel = Math.max(1, Integer.parseInt(System.getProperties().getOrDefault("dgm.maven.pom-parallel","8").toString()));
+        pomRequests = new Semaphore(Math.max(1, Integer.parseInt(System.getProperties().getOrDefault("dgm.maven.pom-requests","64").toString())));
     }
 
     /** Fixed Http client */
@@ -58,20 +66,9 @@ public class MavenMiner extends Miner {
     @Override
     public JSONObject minePackage(String packageName) {
         try {
-            CompletableFuture<String> result = httpClient.sendAsync(
-                            HttpRequest.newBuilder(URI.create("https://repo1.maven.org/maven2/"
-                                            + packageName + "/maven-metadata.xml"))
-                                    .build(),
-                            HttpResponse.BodyHandlers.ofString())
-                    .thenApplyAsync((resp) -> {
-                        int status = resp.statusCode();
-                        if (status != 200) {
-                            return "no Metadata";
-                        } else {
-                            return resp.body();
-                        }
-                    });
-            String response = result.get();
+            HttpUtilities.TextResponse resp = HttpUtilities.getContentAsText(httpClient,
+                    "https://repo1.maven.org/maven2/" + packageName + "/maven-metadata.xml", null, false);
+            String response = resp.getStatusCode() != 200 ? "no Metadata" : resp.getBody();
             if (Objects.equals(response, "no Metadata"))
                 return minePomFilesWithoutMetadata(packageName);
 
@@ -81,7 +78,7 @@ public class MavenMiner extends Miner {
                 String ga = metadata.getJSONObject("metadata").get("groupId") + ":" + metadata.getJSONObject("metadata").get("artifactId");
 
                 JSONObject versions = metadata.getJSONObject("metadata").getJSONObject("versioning").getJSONObject("versions");
-                JSONArray pomFiles = new JSONArray();
+                List<String> missingVersions = new ArrayList<>();
                 if (versions.has("version") && !versions.isNull("version")) {
                     try {
                         JSONArray versionsArray = versions.getJSONArray("version");
@@ -90,22 +87,18 @@ public class MavenMiner extends Miner {
                                 String currentVersion = versionsArray.get(i).toString();
 
                                 if(!artifactAlreadyPresent(RepositoryName + ":" + ga , currentVersion)){
-                                    JSONObject pomJson = minePomFile(versionsArray.get(i).toString(), packageName, true);
-                                    if (pomJson != null)
-                                        pomFiles.put(pomJson);
+                                    missingVersions.add(currentVersion);
                                 }
                             }
                         }
                     } catch (org.json.JSONException exception) {
                         String versionName = versions.get("version").toString();
                         if(!artifactAlreadyPresent(RepositoryName + ":" + ga , versionName)) {
-                            JSONObject pomJson = minePomFile(versionName, packageName, true);
-                            if (pomJson != null)
-                                pomFiles.put(pomJson);
+                            missingVersions.add(versionName);
                         }
                     }
                 }
-                metadata.append("pomfiles", pomFiles);
+                metadata.append("pomfiles", minePomFiles(missingVersions, packageName, true));
                 return metadata;
             } else {
                 formatErrorCounter.incrementAndGet();
@@ -116,6 +109,7 @@ public class MavenMiner extends Miner {
             ExceptionLogger.add(exception,this.getClass().getName());
             return null;
         } catch (Exception ex) {
+            HttpUtilities.recordFailure(ex);
             logger.error("Unexpected error while mining Maven package", ex);
             ExceptionLogger.add(ex,this.getClass().getName());
             return null;
@@ -134,34 +128,27 @@ public class MavenMiner extends Miner {
             i++;
         }
         metadata.put("metadata", new JSONObject().put("groupId", packNameSplit[0]).put("artifactId", artifactId));
+        List<String> missingVersions = new ArrayList<>();
         try {
-            CompletableFuture<String> result = httpClient.sendAsync(
-                            HttpRequest.newBuilder(URI.create("https://repo1.maven.org/maven2/" + packageName + "/"))
-                                    .build(),
-                            HttpResponse.BodyHandlers.ofString())
-                    .thenApplyAsync((resp) -> {
-                        int status = resp.statusCode();
-                        if (status == 200) {
-                            return resp.body();
-                        } else {
-                            return "";
-                        }
-                    });
-            String response = result.get();
+            HttpUtilities.TextResponse resp = HttpUtilities.getContentAsText(httpClient,
+                    "https://repo1.maven.org/maven2/" + packageName + "/", null, false);
+            String response = resp.getStatusCode() == 200 ? resp.getBody() : "";
             String[] responseArray = response.split("<a href=\"");
             int pointer = 0;
             while (pointer + 1 < responseArray.length) {
                 pointer++;
                 String version = responseArray[pointer].split("/\">")[0];
                 if (checkString(version) && !artifactAlreadyPresent(RepositoryName + ":" + packNameSplit[0]+ ":" + artifactId, version)) {
-                    pomFiles.put(minePomFile(version, packageName, false));
+                    missingVersions.add(version);
                 }
                 pointer++;
             }
+            pomFiles = minePomFiles(missingVersions, packageName, false);
         } catch (org.json.JSONException | java.lang.StringIndexOutOfBoundsException ex) {
             logger.warn("Invalid package format", ex);
             ExceptionLogger.add(ex,this.getClass().getName());
         } catch (Exception ex) {
+            HttpUtilities.recordFailure(ex);
             ex.printStackTrace();
             ExceptionLogger.add(ex,this.getClass().getName());
         }
@@ -169,6 +156,35 @@ public class MavenMiner extends Miner {
         return metadata;
     }
 
+    /**
+     * Mines the POM files of the given versions concurrently. At most pomParallel downloads of this package are in
+     * flight at a time, and at most pomRequests across all packages. POM files that cannot be mined are left out, the
+     * others keep the order of their versions.
+     */
+    private JSONArray minePomFiles(List<String> versionNames, String packageName, boolean countTimeouts) throws InterruptedException {
+        Semaphore packagePermits = new Semaphore(pomParallel);
+        List<CompletableFuture<JSONObject>> pomJsons = new ArrayList<>(versionNames.size());
+
+        try {
+            for (String versionName : versionNames) {
+                packagePermits.acquire();
+                pomJsons.add(CompletableFuture.supplyAsync(() -> minePomFile(versionName, packageName, countTimeouts), executorService)
+                        .whenComplete((pomJson, ex) -> packagePermits.release()));
+            }
+        } catch (InterruptedException ex) {
+            pomJsons.forEach(pomJson -> pomJson.cancel(true));
+            throw ex;
+        }
+
+        JSONArray pomFiles = new JSONArray();
+        for (CompletableFuture<JSONObject> pomJson : pomJsons) {
+            JSONObject pomFile = pomJson.join();
+            if (pomFile != null)
+                pomFiles.put(pomFile);
+        }
+        return pomFiles;
+    }
+
     /** Function to mine the .pom file for more metadata of the maven package */
     private JSONObject minePomFile(String versionName, String packageName, Boolean countTimeouts) {
         try {
@@ -176,29 +192,31 @@ public class MavenMiner extends Miner {
                 return null;
             }
             String[] artifact = packageName.split("/");
-            CompletableFuture<String> result = httpClient.sendAsync(
-                            HttpRequest.newBuilder(URI.create("https://repo1.maven.org/maven2/" + packageName
-                                            + "/" + versionName + "/" + artifact[artifact.length - 1]
-                                            + "-" + versionName + ".pom"))
-                                    .build(),
-                            HttpResponse.BodyHandlers.ofString())
-                    .thenApplyAsync((resp) -> {
-                        int status = resp.statusCode();
-                        if (status == 404) {
-                            if(countTimeouts)
-                                if(versionName.matches("(.*)(\\d){8}.(\\d){6}(-(\\d){0,2})?") && !packageName.contains("jetty")){
-                                    String newVersionName = versionName.substring(0,versionName.length()-18);
-                                    minePomFile(newVersionName,packageName,true);
-                                }
-                                else {
-                                    //timedoutCounter++;
-                                }
-                            return null;
-                        } else {
-                            return resp.body();
-                        }
-                    });
-            String response = result.get();
+            HttpUtilities.TextResponse resp;
+            pomRequests.acquire();
+            try {
+                // Released POMs never change, so cached copies of them need no revalidation
+                resp = HttpUtilities.getContentAsText(httpClient,
+                        "https://repo1.maven.org/maven2/" + packageName + "/" + versionName + "/"
+                                + artifact[artifact.length - 1] + "-" + versionName + ".pom",
+                        null, !versionName.contains("SNAPSHOT"));
+            } finally {
+                pomRequests.release();
+            }
+            String response;
+            if (resp.getStatusCode() == 404) {
+                if(countTimeouts)
+                    if(versionName.matches("(.*)(\\d){8}.(\\d){6}(-(\\d){0,2})?") && !packageName.contains("jetty")){
+                        String newVersionName = versionName.substring(0,versionName.length()-18);
+                        minePomFile(newVersionName,packageName,true);
+                    }
+                    else {
+                        //timedoutCounter++;
+                    }
+                response = null;
+            } else {
+                response = resp.getBody();
+            }
             try {
                 return XML.toJSONObject(response);
             } catch (NullPointerException | IllegalArgumentException | JSONException exception) {
@@ -209,6 +227,7 @@ public class MavenMiner extends Miner {
             //Logger.add(ex,this.getClass().getName());
             return null;
         } catch (Exception exception) {
+            HttpUtilities.recordFailure(exception);
             logger.error("Error while mining POM file", exception);
             ExceptionLogger.add(exception,this.getClass().getName());
             return null;
@@ -297,6 +316,15 @@ public class MavenMiner extends Miner {
 
     /** Get functions */
 
+    @Override
+    public String getPackageName(String packageId) {
+        // Package ids have the form group/path/artifactId, package names groupId:artifactId
+        int separator = packageId.lastIndexOf('/');
+        if (separator <= 0 || separator == packageId.length() - 1) return null;
+
+        return packageId.substring(0, separator).replace('/', '.') + ":" + packageId.substring(separator + 1);
+    }
+
     @Override
     public int getFormatErrorCounter() {
         return formatErrorCounter.intValue();
@@ -1,18 +1,17 @@
 package Repositories.Maven;
 
 import Application.ExceptionLogger;
-import Repositories.VersionRangeResolver;
+import Repositories.RangeSpecMatcher;
+import Repositories.SegmentVersionRangeResolver;
+import Repositories.VersionRangeNode;
 
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * VersionRangeResolver implementation for Maven Central. Based on <a href="https://docs.oracle.com/middleware/1212/core/MAVEN/maven_version.htm#CJHDEHAB"> official Maven specifications</a>.
  */
-public class MavenVersionRangeResolver extends VersionRangeResolver<MavenVersionRangeResolver.MavenVersionRangeRepresentation> {
-    private static final String pattern = "(v?)((((\\d)+|x).){0,2}((\\d)+|x))(((.)?)((\\w)*))?";
-    private final String prefixes = "((\\()|(\\[))";
-    private final String suffixes = "((\\))|(]))";
-    private final String divider = ",";
+public class MavenVersionRangeResolver extends SegmentVersionRangeResolver {
 
     @Override
     protected boolean isValidVersionReference(String potentialVersionRangeSpec){
@@ -40,363 +39,99 @@ public class MavenVersionRangeResolver extends VersionRangeResolver<MavenVersion
         String normalizedVersion = versionRef;
         try{
             if(normalizedVersion.startsWith("[") && normalizedVersion.endsWith("]"))
-                normalizedVersion =  normalizedVersion.replaceAll("\\[","").replaceAll("]","");
+                normalizedVersion =  normalizedVersion.replace("[","").replace("]","");
 
             if(normalizedVersion.contains("-SNAPSHOT"))
                 normalizedVersion = normalizedVersion.replace("-SNAPSHOT", "");
 
-            normalizedVersion = normalizedVersion.replaceAll("[.][+]","");
+            normalizedVersion = normalizedVersion.replace(".+","");
 
         } catch (Exception ex){
             ExceptionLogger.add(ex,"MavenVersionRangeResolver");
         }
 
-        return normalizedVersion.replaceAll(" ","");
+        return normalizedVersion.replace(" ","");
     }
 
     @Override
-    protected MavenVersionRangeRepresentation buildVersionRangeRepresentation(String versionRangeSpec) {
-        MavenVersionRangeRepresentation repr = new MavenVersionRangeRepresentation();
-        String normalizedVersionRangeSpec = versionRangeSpec.replaceAll(" ", "").split("[-]")[0]
-                .split("[@]")[0].replaceAll("(\\*|X)", "x").replaceAll("(\"|\')", "").replaceAll("-SNAPSHOT","").replaceAll("[.][+]","");
-        repr.NormalizedRangeString = normalizedVersionRangeSpec;
-
-        try {
-
-            /* X.X.X or [X.X.X]*/
-            if (!normalizedVersionRangeSpec.contains(",")&&normalizedVersionRangeSpec.matches("(\\[)?" + pattern + "(])?")) {
-                repr.RangeType = MavenRangeType.STANDARD;
-                return repr;
-            }
-
-            // [,X.X.X)
-            if (normalizedVersionRangeSpec.matches("(\\[)?" + divider + pattern + "(\\))?")) {
-                String[] split = normalizedVersionRangeSpec.split("[.]");
-                repr.NormalizedRangeString = shrinkVersionRange(normalizedVersionRangeSpec);
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = MavenRangeType.LOWER1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = MavenRangeType.LOWER2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = MavenRangeType.LOWER3;
-                        return repr;
-                    }
-                }
-            }
-
-            // (X.X.X,]
-            if (normalizedVersionRangeSpec.matches("(\\()?" + pattern + divider + "(])?")) {
-                String[] split = normalizedVersionRangeSpec.split("[.]");
-                repr.NormalizedRangeString = shrinkVersionRange(normalizedVersionRangeSpec);
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = MavenRangeType.HIGHER1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = MavenRangeType.HIGHER2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = MavenRangeType.HIGHER3;
-                        return repr;
-                    }
-                }
-            }
-
-            // (,X.X.X]
-            if (normalizedVersionRangeSpec.matches(prefixes+"?" + divider + pattern + "(])?")) {
-                String[] split = normalizedVersionRangeSpec.split("[.]");
-                repr.NormalizedRangeString = shrinkVersionRange(normalizedVersionRangeSpec);
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = MavenRangeType.LOWEREQUAL1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = MavenRangeType.LOWEREQUAL2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = MavenRangeType.LOWEREQUAL3;
-                        return repr;
-                    }
-                }
-            }
+    protected String normalizeVersion(String version) {
+        return version.replace(" ", "").replace("-SNAPSHOT","");
+    }
 
-            // [X.X.X,)
-            if (normalizedVersionRangeSpec.matches("(\\[)?" + pattern + divider + suffixes+"?")) {
-                String[] split = normalizedVersionRangeSpec.split("[.]");
-                repr.NormalizedRangeString = shrinkVersionRange(normalizedVersionRangeSpec);
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = MavenRangeType.HIGHEREQUAL1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = MavenRangeType.HIGHEREQUAL2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = MavenRangeType.HIGHEREQUAL3;
-                        return repr;
-                    }
-                }
-            }
+    @Override
+    protected String toCanonicalRangeSpec(String versionRangeSpec) {
+        // Representations are built from the normalized specification only
+        return normalizeSpec(versionRangeSpec);
+    }
 
-            /* Or Pattern: [[X.X.X],[X.X.X]] */
-            if (normalizedVersionRangeSpec.matches(prefixes+"?"
-                    + prefixes + pattern + suffixes + divider +
-                    prefixes + pattern + suffixes + suffixes +"?"
-            )) {
-                repr.RangeType = MavenRangeType.OR;
-                return repr;
-            }
+    private static String normalizeSpec(String spec) {
+        return firstSplitPart(firstSplitPart(spec.replace(" ", ""), '-'), '@')
+                .replace('*', 'x').replace('X', 'x').replace("\"", "").replace("'", "").replace("-SNAPSHOT","").replace(".+","");
+    }
 
-            /* AND Pattern: [X.X.X,X.X.X] */
-            if (normalizedVersionRangeSpec.matches(
-                    prefixes + pattern + divider + pattern + suffixes)) {
-                repr.RangeType = MavenRangeType.AND;
-                return repr;
+    @Override
+    protected VersionRangeNode buildVersionRangeRepresentation(String versionRangeSpec) {
+        String normalizedVersionRangeSpec = normalizeSpec(versionRangeSpec);
+        List<VersionRangeNode> restrictions = new ArrayList<>();
+
+        // Multiple restrictions, e.g. [1.0,2.0),[3.0,4.0), are separated by commas following a closing bracket
+        int start = 0;
+        int depth = 0;
+        for(int i = 0; i < normalizedVersionRangeSpec.length(); i++){
+            char c = normalizedVersionRangeSpec.charAt(i);
+
+            if(c == '[' || c == '(') depth++;
+            else if(c == ']' || c == ')') depth--;
+            else if(c == ',' && depth == 0 && i > 0 && ")]".indexOf(normalizedVersionRangeSpec.charAt(i - 1)) >= 0){
+                restrictions.add(parseRestriction(normalizedVersionRangeSpec.substring(start, i)));
+                start = i + 1;
             }
-        } catch (Exception ex){
-        ExceptionLogger.add(ex,"MavenVersionRangeResolver");
         }
 
-        repr.RangeType = MavenRangeType.UNKNOWN;
-        return repr;
+        restrictions.add(parseRestriction(normalizedVersionRangeSpec.substring(start)));
+        return VersionRangeNode.anyOf(restrictions);
     }
 
-    @Override
-    protected boolean isVersionInRange(String originalVersionRangeSpec, MavenVersionRangeRepresentation versionRangeRepresentation, String originalVersion) {
+    /**
+     * Parses a single restriction, i.e. a fixed version like [1.0] or a range with up to two bounds like [1.0,2.0).
+     * Brackets are optional. Restrictions that are not understood only match versions equal to them.
+     *
+     * As before, an upper bound closed by ']' is only inclusive if the lower bound is exclusive, e.g. [1.0,2.0] does
+     * not contain 2.0, but (1.0,2.0] does.
+     */
+    private static VersionRangeNode parseRestriction(String restriction) {
+        int divider = restriction.indexOf(',');
 
-        /* Short down version string for comparison */
-        String version = originalVersion.replaceAll(" ", "").replaceAll("-SNAPSHOT","");
+        /* X.X.X or [X.X.X]*/
+        if(divider < 0){
+            if(RangeSpecMatcher.of(restriction).optional("[").version().optional("]").matches())
+                return VersionRangeNode.compare(VersionRangeNode.Operator.EQUAL, restriction.replace("[", "").replace("]", ""));
 
-        /* Version definitions with $ cannot be compared here and empty versions cannot be used*/
-        if (version.contains("$")||version.equals("")) {
-            return false;
+            return VersionRangeNode.compare(VersionRangeNode.Operator.EQUAL, restriction);
         }
 
-        String versionRange = versionRangeRepresentation.NormalizedRangeString;
-        MavenRangeType rangeCase = versionRangeRepresentation.RangeType;
-        boolean returnValue = false;
-
-        try {
-            switch (rangeCase) {
-                case STANDARD, UNKNOWN -> returnValue = (versionRange.equals(version) || fixedRangeEquals(versionRange, version));
-                case HIGHER1 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=1){
-                        returnValue = (fromSplit[0].equals("x"))||(parseNumber(toSplit[0])>parseNumber(fromSplit[0]));
-                    }
-                }
-                case HIGHER2 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=2){
-                        returnValue = (fromSplit[1].equals("x"))
-                                || ((parseNumber(toSplit[0])>parseNumber(fromSplit[0]))
-                                || (parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])>parseNumber(fromSplit[1])));
-                    }
-                }
-                case HIGHER3 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=3){
-                        returnValue = (fromSplit[2].equals("x"))
-                                ||((parseNumber(toSplit[0])>parseNumber(fromSplit[0]))
-                                ||(parseNumber(toSplit[0])==parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])>parseNumber(fromSplit[1])))
-                                ||(parseNumber(toSplit[0])==parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])==parseNumber(fromSplit[1])&&(parseNumber(toSplit[2])>parseNumber(fromSplit[2])))));
-                    }
-                }
-
-                case LOWER1 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=1){
-                        returnValue = (fromSplit[0].equals("x"))||(parseNumber(toSplit[0])<parseNumber(fromSplit[0]));
-                    }
-                }
-                case LOWER2 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=2){
-                        returnValue = (fromSplit[1].equals("x"))
-                                || ((parseNumber(toSplit[0])<parseNumber(fromSplit[0]))
-                                || (parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])<parseNumber(fromSplit[1])));
-                    }
-                }
-                case LOWER3 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=3){
-                        returnValue = (fromSplit[2].equals("x"))||
-                                ((parseNumber(toSplit[0])<parseNumber(fromSplit[0]))||(parseNumber(toSplit[1])<parseNumber(fromSplit[1]))||(parseNumber(toSplit[2])<parseNumber(fromSplit[2])));
-                    }
-                }
+        if(restriction.indexOf(',', divider + 1) >= 0) return VersionRangeNode.compare(VersionRangeNode.Operator.EQUAL, restriction);
 
-                case HIGHEREQUAL1 -> {
-                    if(!(versionRange.equals(version)|| fixedRangeEquals(versionRange,version))){
-                        String[] fromSplit = versionRange.split("[.]");
-                        String[] toSplit = version.split("[.]");
-                        if(toSplit.length>=1){
-                            returnValue = (fromSplit[0].equals("x"))||(parseNumber(toSplit[0])>parseNumber(fromSplit[0]));
-                        }
-                    } else {
-                        returnValue = true;
-                    }
-                }
-                case HIGHEREQUAL2 -> {
-                    if(!(versionRange.equals(version)|| fixedRangeEquals(versionRange,version))){
-                        String[] fromSplit = versionRange.split("[.]");
-                        String[] toSplit = version.split("[.]");
-                        if(toSplit.length>=2){
-                            returnValue = (fromSplit[1].equals("x"))
-                                    || ((parseNumber(toSplit[0])>parseNumber(fromSplit[0]))
-                                    || (parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])>parseNumber(fromSplit[1])));
-                        }
-                    } else {
-                        returnValue = true;
-                    }
-                }
-                case HIGHEREQUAL3 -> {
-                    if(!(versionRange.equals(version)|| fixedRangeEquals(versionRange,version))){
-                        String[] fromSplit = versionRange.split("[.]");
-                        String[] toSplit = version.split("[.]");
-                        if(toSplit.length>=3){
-                            returnValue = (fromSplit[2].equals("x"))
-                                    ||((parseNumber(toSplit[0])>parseNumber(fromSplit[0]))
-                                    ||(parseNumber(toSplit[0])==parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])>parseNumber(fromSplit[1])))
-                                    ||(parseNumber(toSplit[0])==parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])==parseNumber(fromSplit[1])&&(parseNumber(toSplit[2])>parseNumber(fromSplit[2])))));
-                        }
-                    } else {
-                        returnValue = true;
-                    }
-                }
+        char open = restriction.charAt(0) == '[' || restriction.charAt(0) == '(' ? restriction.charAt(0) : 0;
+        char close = restriction.endsWith("]") || restriction.endsWith(")") ? restriction.charAt(restriction.length() - 1) : 0;
 
-                case LOWEREQUAL1 -> {
-                    if(!(versionRange.equals(version)|| fixedRangeEquals(versionRange,version))){
-                        String[] fromSplit = versionRange.split("[.]");
-                        String[] toSplit = version.split("[.]");
-                        if(toSplit.length>=1){
-                            returnValue = (fromSplit[0].equals("x"))||(parseNumber(toSplit[0])<parseNumber(fromSplit[0]));
-                        }
-                    } else {
-                        returnValue = true;
-                    }
-                }
-                case LOWEREQUAL2 -> {
-                    if(!(versionRange.equals(version)|| fixedRangeEquals(versionRange,version))){
-                        String[] fromSplit = versionRange.split("[.]");
-                        String[] toSplit = version.split("[.]");
-                        if(toSplit.length>=2){
-                            returnValue = (fromSplit[1].equals("x"))
-                                    || ((parseNumber(toSplit[0])<parseNumber(fromSplit[0]))
-                                    || (parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])<parseNumber(fromSplit[1])));
-                        }
-                    } else {
-                        returnValue = true;
-                    }
-                }
-                case LOWEREQUAL3 -> {
-                    if(!(versionRange.equals(version)|| fixedRangeEquals(versionRange,version))){
-                        String[] fromSplit = versionRange.split("[.]");
-                        String[] toSplit = version.split("[.]");
-                        if(toSplit.length>=3){
-                            returnValue = (fromSplit[2].equals("x"))||
-                                    ((parseNumber(toSplit[0])<parseNumber(fromSplit[0]))||(parseNumber(toSplit[1])<parseNumber(fromSplit[1]))||(parseNumber(toSplit[2])<parseNumber(fromSplit[2])));
-                        }
-                    } else {
-                        returnValue = true;
-                    }
-                }
+        String lower = restriction.substring(open == 0 ? 0 : 1, divider);
+        String upper = restriction.substring(divider + 1, restriction.length() - (close == 0 ? 0 : 1));
 
-                case OR -> {
-                    if(versionRange.split(divider).length==2) {
-                        // Separate the the or cases
+        List<VersionRangeNode> bounds = new ArrayList<>(2);
 
-                        String[] splitVersionRanges = versionRange.replaceAll(prefixes, "").replaceAll(suffixes, "").split(divider);
-                        MavenVersionRangeRepresentation recursiveOne = new MavenVersionRangeRepresentation();
-                        recursiveOne.RangeType = MavenRangeType.RECURSIVE;
-                        recursiveOne.NormalizedRangeString = splitVersionRanges[0];
-                        MavenVersionRangeRepresentation recursiveTwo = new MavenVersionRangeRepresentation();
-                        recursiveTwo.RangeType = MavenRangeType.RECURSIVE;
-                        recursiveTwo.NormalizedRangeString = splitVersionRanges[1];
+        if(!lower.isEmpty())
+            bounds.add(parseBound(open == '(' ? VersionRangeNode.Operator.GREATER : VersionRangeNode.Operator.GREATER_EQUAL, lower, restriction));
+        if(!upper.isEmpty())
+            bounds.add(parseBound(open == '(' && close == ']' ? VersionRangeNode.Operator.LESS_EQUAL : VersionRangeNode.Operator.LESS, upper, restriction));
 
-                        // recursive call of function
-                        if (!versionRange.equals(recursiveOne.NormalizedRangeString) && !versionRange.equals(recursiveTwo.NormalizedRangeString) && !Objects.equals(recursiveOne.NormalizedRangeString, recursiveTwo.NormalizedRangeString)) {
-                            returnValue = ((isVersionInRange(originalVersionRangeSpec, recursiveOne, version))
-                                    || (isVersionInRange(originalVersionRangeSpec, recursiveTwo, version)));
-                        }
-                    }
-                }
-
-                case AND -> {
-                    // Separate the and cases
-                    if(versionRange.split(divider).length==2) {
-                        String[] splitVersionRanges = versionRange.replaceFirst(prefixes, "").replaceFirst(suffixes, "").split(divider);
-                        MavenVersionRangeRepresentation recursiveOne = new MavenVersionRangeRepresentation();
-                        recursiveOne.RangeType = MavenRangeType.RECURSIVE;
-                        recursiveOne.NormalizedRangeString = versionRange.replaceAll(splitVersionRanges[1], "");
-                        MavenVersionRangeRepresentation recursiveTwo = new MavenVersionRangeRepresentation();
-                        recursiveTwo.RangeType = MavenRangeType.RECURSIVE;
-                        recursiveTwo.NormalizedRangeString = versionRange.replaceAll(splitVersionRanges[0], "");
-                        // recursive call of function
-                        if (!versionRange.equals(recursiveOne.NormalizedRangeString) && !versionRange.equals(recursiveTwo.NormalizedRangeString) && !Objects.equals(recursiveOne.NormalizedRangeString, recursiveTwo.NormalizedRangeString)) {
-                            returnValue = ((isVersionInRange(originalVersionRangeSpec, recursiveOne, version))
-                                    && (isVersionInRange(originalVersionRangeSpec, recursiveTwo, version)));
-                        }
-                    }
-                }
-
-                case RECURSIVE -> {
-                    MavenVersionRangeRepresentation recursiveRangeRepresentation = buildVersionRangeRepresentation(versionRange);
-                    returnValue = isVersionInRange(originalVersionRangeSpec, recursiveRangeRepresentation, version);
-                }
-            }
-        } catch (Exception ex){
-            ExceptionLogger.add(ex,"MavenVersionRangeResolver");
-        }
-        return returnValue;
-    }
-
-    /**
-     * Class for representation maven version ranges that have been processed already.
-     */
-    static class MavenVersionRangeRepresentation {
-        public MavenRangeType RangeType;
-        public String NormalizedRangeString;
+        return bounds.isEmpty() ? VersionRangeNode.compare(VersionRangeNode.Operator.EQUAL, restriction) : VersionRangeNode.allOf(bounds);
     }
 
-    enum MavenRangeType {
-        UNKNOWN,
-        STANDARD,
-        HIGHER1,
-        HIGHER2,
-        HIGHER3,
-        HIGHEREQUAL1,
-        HIGHEREQUAL2,
-        HIGHEREQUAL3,
-        LOWER1,
-        LOWER2,
-        LOWER3,
-        LOWEREQUAL1,
-        LOWEREQUAL2,
-        LOWEREQUAL3,
-        OR,
-        AND,
-        RECURSIVE
-    }
+    private static VersionRangeNode parseBound(VersionRangeNode.Operator operator, String version, String restriction) {
+        // Ranges with a single bound are only distinguished for up to three segments
+        if(RangeSpecMatcher.isVersion(version) && isBoundSegmentCount(version)) return VersionRangeNode.compare(operator, version);
 
-    private String shrinkVersionRange(String versionRange){
-        return versionRange.replaceAll("(\\()?","").replaceAll("(])?","").replaceAll(",","");
+        return VersionRangeNode.compare(VersionRangeNode.Operator.EQUAL, restriction);
     }
-
 }
@@ -22,6 +22,26 @@ public abstract class Miner {
      */
     public abstract Package parsePackage(JSONObject p);
 
+    /**
+     * Default function to check whether the miner mines and parses packages in one step, can be implemented by Miner
+     * @return always false in default function
+     */
+    public boolean supportsDirectParsing(){
+        return false;
+    }
+
+    /**
+     * Function to mine and parse a software package in one step, without building a JSON object of its metadata.
+     * The default function chains minePackage and parsePackage.
+     * @param packageId given package id
+     * @return metadata as package object, or null if mining or parsing failed
+     */
+    public Package mineAndParsePackage(String packageId){
+        JSONObject metadata = minePackage(packageId);
+
+        return metadata == null ? null : parsePackage(metadata);
+    }
+
     /**
      * Default function to get an optional format error counter, can be implemented by Miner
      * @return always 0 in default function, only used in console output
@@ -38,6 +58,16 @@ public abstract class Miner {
         return 0;
     }
 
+    /**
+     * Default function to derive the package name from a generated package id without mining it, can be implemented
+     * by Miner. Used to pre-seed package nodes before mining starts.
+     * @param packageId given package id
+     * @return package name, or null if the name cannot be derived from the id
+     */
+    public String getPackageName(String packageId){
+        return null;
+    }
+
     /**
      * Shutdown any resources used by the miner
      */
@@ -4,10 +4,16 @@ import Application.ExceptionLogger;
 import Model.*;
 import Model.Package;
 import Repositories.Miner;
+import Utilities.GlobalUtilities;
 import Utilities.HttpUtilities;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -16,26 +22,134 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class NpmMiner extends Miner {
 
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private final AtomicInteger timeoutCounter;
     private final AtomicInteger formatErrorCounter;
+    private final boolean streaming;
+    private final boolean abbreviated;
+    private final AtomicInteger abbreviatedCounter;
+    private final AtomicInteger fullCounter;
 
     private static final String baseUrl = "https://registry.npmjs.com/";
 
+    // Abbreviated install metadata only contains what is needed to install a package, i.e. no READMEs or maintainers
+    private static final String abbreviatedMetadataType = "application/vnd.npm.install-v1+json; q=1.0, application/json; q=0.8, */*";
+
     /** Constructor of the NpmMiner */
     public NpmMiner() {
         timeoutCounter = new AtomicInteger(0);
         formatErrorCounter = new AtomicInteger(0);
+        abbreviatedCounter = new AtomicInteger(0);
+        fullCounter = new AtomicInteger(0);
+        streaming = Boolean.parseBoolean(System.getProperties().getOrDefault("dgm.npm.streaming","true").toString());
+        abbreviated = Boolean.parseBoolean(System.getProperties().getOrDefault("dgm.npm.abbreviated","true").toString());
+    }
+
+    @Override
+    public boolean supportsDirectParsing() {
+        return streaming;
+    }
+
+    /**
+     * Streams the package document from the registry and only extracts the name, latest version and dependencies,
+     * instead of parsing the whole document into a JSON object first. If enabled, the abbreviated document is
+     * requested first, and the full document only if the abbreviated one lacks required fields.
+     * @param packageId given package id
+     * @return metadata as package object, or null if mining or parsing failed
+     */
+    @Override
+    public Package mineAndParsePackage(String packageId) {
+        if(!streaming) return super.mineAndParsePackage(packageId);
+
+        try {
+            if(abbreviated){
+                try (InputStream content = HttpUtilities.getContentAsStream(baseUrl + packageId, abbreviatedMetadataType)) {
+                    if(content == null){
+                        timeoutCounter.incrementAndGet();
+                        return null;
+                    }
+
+                    Package newPackage = NpmPackumentParser.parse(content, this::artifactAlreadyPresent, true);
+                    if(newPackage != null){
+                        abbreviatedCounter.incrementAndGet();
+                        return newPackage;
+                    }
+                }
+                logger.debug("Abbreviated metadata of " + packageId + " is incomplete, requesting full document");
+            }
+
+            try (InputStream content = HttpUtilities.getContentAsStream(baseUrl + packageId)) {
+                if(content == null){
+                    timeoutCounter.incrementAndGet();
+                    return null;
+                }
+
+                Package newPackage = NpmPackumentParser.parse(content, this::artifactAlreadyPresent);
+                if(newPackage == null) formatErrorCounter.incrementAndGet();
+                else fullCounter.incrementAndGet();
+
+                return newPackage;
+            }
+        } catch (JsonProcessingException ex) {
+            ExceptionLogger.add(ex,this.getClass().getName());
+            formatErrorCounter.incrementAndGet();
+        } catch (IOException ex) {
+            if(!GlobalUtilities.isBoolPropertyEnabled("dgm.drop-http-errors"))
+                ExceptionLogger.add(ex,this.getClass().getName());
+            timeoutCounter.incrementAndGet();
+        }
+
+        return null;
     }
 
     @Override
     public JSONObject minePackage(String packageId) {
+        if(abbreviated){
+            JSONObject o = HttpUtilities.getContentAsJSON(baseUrl + packageId, abbreviatedMetadataType);
+
+            if(o == null){
+                timeoutCounter.incrementAndGet();
+                return null;
+            }
+
+            if(o.has("name") && o.has("versions")){
+                abbreviatedCounter.incrementAndGet();
+                return o;
+            }
+            logger.debug("Abbreviated metadata of " + packageId + " is incomplete, requesting full document");
+        }
+
         JSONObject o = HttpUtilities.getContentAsJSON(baseUrl + packageId);
 
         if(o == null) timeoutCounter.incrementAndGet();
+        else fullCounter.incrementAndGet();
 
         return o;
     }
 
+    /**
+     * Gets the number of packages that were mined from abbreviated metadata documents.
+     * @return Number of abbreviated documents used
+     */
+    public int getAbbreviatedCounter() {
+        return abbreviatedCounter.intValue();
+    }
+
+    /**
+     * Gets the number of packages that were mined from full metadata documents.
+     * @return Number of full documents used
+     */
+    public int getFullCounter() {
+        return fullCounter.intValue();
+    }
+
+    @Override
+    public void shutdown() {
+        if(abbreviatedCounter.get() > 0 || fullCounter.get() > 0)
+            logger.info("NPM metadata: " + abbreviatedCounter.get() + " abbreviated and " + fullCounter.get() + " full documents");
+    }
+
     @Override
     public Package parsePackage(JSONObject p) {
         Package newPackage;
@@ -98,6 +212,12 @@ public class NpmMiner extends Miner {
         return null;
     }
 
+    @Override
+    public String getPackageName(String packageId) {
+        // Package ids are the plain package names
+        return packageId.replaceAll("[\"|\'|(|)]", "");
+    }
+
     @Override
     public int getFormatErrorCounter() {
         return formatErrorCounter.intValue();
@@ -0,0 +1,155 @@
+package Repositories.NPM;
+
+import Model.Artifact;
+import Model.Dependency;
+import Model.Package;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+
+/**
+ * Streaming parser for NPM package documents (packuments). Reads the document token by token and only keeps the
+ * package name, the latest version and the dependencies of every version. READMEs, file lists and all other metadata
+ * are skipped without being materialized, so that memory usage does not grow with the size of the document.
+ */
+class NpmPackumentParser {
+
+    private static final JsonFactory jsonFactory = JsonFactory.builder().disable(StreamReadFeature.AUTO_CLOSE_SOURCE).build();
+
+    /**
+     * Parses the given packument into a package.
+     * @param in Stream of the packument, is not closed
+     * @param artifactPresent Predicate on package id and version, artifacts it matches are skipped
+     * @return Package with all artifacts, or null if the document has no name
+     * @throws IOException If the stream cannot be read or is no valid JSON object
+     */
+    static Package parse(InputStream in, BiPredicate<String, String> artifactPresent) throws IOException {
+        return parse(in, artifactPresent, false);
+    }
+
+    /**
+     * Parses the given packument, or abbreviated packument, into a package.
+     * @param in Stream of the packument, is not closed
+     * @param artifactPresent Predicate on package id and version, artifacts it matches are skipped
+     * @param requireVersions If true, documents without versions yield no package
+     * @return Package with all artifacts, or null if the document has no name or required versions
+     * @throws IOException If the stream cannot be read or is no valid JSON object
+     */
+    static Package parse(InputStream in, BiPredicate<String, String> artifactPresent, boolean requireVersions) throws IOException {
+        String name = null;
+        String latest = null;
+        Map<String, List<Dependency>> versions = null;
+
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new JsonParseException(parser, "Package document is no JSON object");
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if (field.equals("name") && value.isScalarValue()) {
+                    name = parser.getText();
+                } else if (field.equals("dist-tags") && value == JsonToken.START_OBJECT) {
+                    latest = readLatest(parser);
+                } else if (field.equals("versions") && value == JsonToken.START_OBJECT) {
+                    versions = new LinkedHashMap<>();
+                    readVersions(parser, versions);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (name == null || (requireVersions && versions == null)) return null;
+
+        name = name.replaceAll("[\"|\'|(|)]", "");
+        Package newPackage = new Package(name, "npm");
+        if (latest != null) newPackage.setCustomAttribute("latest", latest);
+
+        if (versions == null) return newPackage;
+
+        for (Map.Entry<String, List<Dependency>> version : versions.entrySet()) {
+            // Only add artifact to package if it is not already present
+            if (artifactPresent.test(newPackage.getId(), version.getKey())) continue;
+
+            Artifact newArtifact = new Artifact(version.getKey(), name, "npm");
+            for (Dependency dependency : version.getValue()) newArtifact.addDependency(dependency);
+            newPackage.addArtifact(newArtifact);
+        }
+
+        return newPackage;
+    }
+
+    private static String readLatest(JsonParser parser) throws IOException {
+        String latest = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String tag = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if (tag.equals("latest") && value.isScalarValue()) latest = parser.getText();
+            else parser.skipChildren();
+        }
+
+        return latest;
+    }
+
+    private static void readVersions(JsonParser parser, Map<String, List<Dependency>> versions) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String version = parser.getCurrentName();
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            List<Dependency> dependencies = new ArrayList<>();
+            List<Dependency> devDependencies = new ArrayList<>();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+
+                if (field.equals("dependencies") && value == JsonToken.START_OBJECT) {
+                    readDependencies(parser, dependencies, false);
+                } else if (field.equals("devDependencies") && value == JsonToken.START_OBJECT) {
+                    readDependencies(parser, devDependencies, true);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            // Dependencies precede dev dependencies, regardless of their order in the document
+            dependencies.addAll(devDependencies);
+            versions.put(version, dependencies);
+        }
+    }
+
+    private static void readDependencies(JsonParser parser, List<Dependency> dependencies, boolean isDevDependency) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String depName = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            // Version ranges are strings, malformed documents may contain structured values that are ignored
+            if (!value.isScalarValue()) {
+                parser.skipChildren();
+                continue;
+            }
+
+            Dependency dependency = new Dependency(depName, parser.getText());
+            if (isDevDependency) dependency.setCustomAttribute("type", "devDependency");
+            dependencies.add(dependency);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package Repositories.Nuget;
 
+import Repositories.ParsedVersion;
+import Repositories.VersionInterval;
 import Repositories.VersionRangeResolver;
 
-import javax.annotation.Nullable;
-import java.util.Objects;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * VersionRangeResolver implementation for Nuget.org. Based on <a href="https://learn.microsoft.com/en-us/nuget/concepts/package-versioning">the official specifications.</a>
@@ -26,22 +28,22 @@ public class NugetVersionRangeResolver extends VersionRangeResolver<NugetVersion
 
     @Override
     protected boolean isVersionInRange(String originalVersionRangeSpec, NugetVersionRange versionRangeRepresentation, String version) {
-        SimpleVersion versionToCheck = new SimpleVersion(version);
+        ParsedVersion versionToCheck = ParsedVersion.of(version);
 
         if(versionRangeRepresentation.lowerBoundVersion != null){
 
-            if(versionToCheck.isLowerThan(versionRangeRepresentation.lowerBoundVersion))
+            if(versionToCheck.compareTo(versionRangeRepresentation.lowerBoundVersion) < 0)
                 return false;
-            else if(!versionRangeRepresentation.lowerBoundInclusive && versionToCheck.equalsNoSuffix(versionRangeRepresentation.lowerBoundVersion))
+            else if(!versionRangeRepresentation.lowerBoundInclusive && versionToCheck.hasSameRelease(versionRangeRepresentation.lowerBoundVersion))
                 return false;
 
         }
 
         if(versionRangeRepresentation.upperBoundVersion != null){
 
-            if(versionToCheck.isGreaterThan(versionRangeRepresentation.upperBoundVersion))
+            if(versionToCheck.compareTo(versionRangeRepresentation.upperBoundVersion) > 0)
                 return false;
-            else if(!versionRangeRepresentation.upperBoundInclusive && versionToCheck.equalsNoSuffix(versionRangeRepresentation.upperBoundVersion))
+            else if(!versionRangeRepresentation.upperBoundInclusive && versionToCheck.hasSameRelease(versionRangeRepresentation.upperBoundVersion))
                 return false;
         }
 
@@ -50,12 +52,46 @@ public class NugetVersionRangeResolver extends VersionRangeResolver<NugetVersion
         return true;
     }
 
+    @Override
+    protected Comparator<ParsedVersion> getVersionOrder() {
+        return Comparator.naturalOrder();
+    }
+
+    @Override
+    protected List<VersionInterval> toIntervals(NugetVersionRange versionRangeRepresentation) {
+        // Exclusive bounds exclude all versions with the same release parts, regardless of their suffix
+        ParsedVersion lower = versionRangeRepresentation.lowerBoundVersion;
+        ParsedVersion upper = versionRangeRepresentation.upperBoundVersion;
+
+        VersionInterval interval = VersionInterval.all();
+
+        if(lower != null){
+            interval = versionRangeRepresentation.lowerBoundInclusive ?
+                    VersionInterval.atLeast(v -> v.compareTo(lower) >= 0) :
+                    VersionInterval.atLeast(v -> v.compareRelease(lower) > 0);
+        }
+
+        if(upper != null){
+            interval = interval.intersect(versionRangeRepresentation.upperBoundInclusive ?
+                    VersionInterval.atMost(v -> v.compareTo(upper) <= 0) :
+                    VersionInterval.atMost(v -> v.compareRelease(upper) < 0));
+        }
+
+        return List.of(interval);
+    }
+
     @Override
     public boolean fixedRangeEquals(String range, String version){
         // Fixed references are equal to a target version if all parts + suffix match. I.e. [1.0.0-abc] only matches "1.0.0-abc", not "1.0.0"
-        SimpleVersion rangeV = new SimpleVersion(range);
-        SimpleVersion versionV = new SimpleVersion(version);
-        return rangeV.equals(versionV);
+        ParsedVersion rangeV = ParsedVersion.of(range);
+        ParsedVersion versionV = ParsedVersion.of(version);
+        return rangeV.compareTo(versionV) == 0;
+    }
+
+    @Override
+    protected String toCanonicalRangeSpec(String versionRangeSpec) {
+        // Surrounding whitespace is ignored when building representations
+        return versionRangeSpec.trim();
     }
 
     @Override
@@ -76,7 +112,7 @@ public class NugetVersionRangeResolver extends VersionRangeResolver<NugetVersion
             repr.lowerBoundInclusive = true;
             repr.upperBoundInclusive = false;
             repr.upperBoundVersion = null;
-            repr.lowerBoundVersion = new SimpleVersion(rangeString);
+            repr.lowerBoundVersion = ParsedVersion.of(rangeString);
         } else {
             if(firstChar == '('){
                 repr.lowerBoundInclusive = false;
@@ -103,16 +139,16 @@ public class NugetVersionRangeResolver extends VersionRangeResolver<NugetVersion
                 repr.upperBoundVersion = null;
             } else if(rangeString.charAt(0) == ',' && parts.length == 1){
                 repr.lowerBoundVersion = null;
-                repr.upperBoundVersion = new SimpleVersion(parts[0].trim());
+                repr.upperBoundVersion = ParsedVersion.of(parts[0].trim());
             } else if(rangeString.charAt(rangeString.length() - 1) == ',' && parts.length == 1){
                 repr.upperBoundVersion = null;
-                repr.lowerBoundVersion = new SimpleVersion(parts[0]);
+                repr.lowerBoundVersion = ParsedVersion.of(parts[0]);
             } else if(parts.length == 2){
                 if(parts[0].isBlank()) repr.lowerBoundVersion = null;
-                else repr.lowerBoundVersion = new SimpleVersion(parts[0].trim());
+                else repr.lowerBoundVersion = ParsedVersion.of(parts[0].trim());
 
                 if(parts[1].isBlank()) repr.upperBoundVersion = null;
-                else repr.upperBoundVersion = new SimpleVersion(parts[1].trim());
+                else repr.upperBoundVersion = ParsedVersion.of(parts[1].trim());
             } else {
                 throw new IllegalArgumentException("Invalid NuGet version range: " + versionRangeSpec);
             }
@@ -149,12 +185,10 @@ public class NugetVersionRangeResolver extends VersionRangeResolver<NugetVersion
 
         String lowerVersion = lowerVersionBuilder.toString();
 
-        range.lowerBoundVersion = new SimpleVersion(lowerVersion);
+        range.lowerBoundVersion = ParsedVersion.of(lowerVersion);
 
         if(starIndex > 0) {
-            SimpleVersion upperBoundVersion = new SimpleVersion(lowerVersion);
-            upperBoundVersion.increaseAt(starIndex - 1, 1);
-            range.upperBoundVersion = upperBoundVersion;
+            range.upperBoundVersion = range.lowerBoundVersion.withIncreasedReleasePart(starIndex - 1, 1);
         } else {
             range.upperBoundVersion = null;
         }
@@ -172,129 +206,10 @@ public class NugetVersionRangeResolver extends VersionRangeResolver<NugetVersion
      * Simple representation of nuget versions. They have an upper- and lower-bound, both may be inclusive or exclusive.
      */
     static class NugetVersionRange {
-        public SimpleVersion lowerBoundVersion;
-        public SimpleVersion upperBoundVersion;
+        public ParsedVersion lowerBoundVersion;
+        public ParsedVersion upperBoundVersion;
 
         public boolean lowerBoundInclusive;
         public boolean upperBoundInclusive;
     }
-
-    /**
-     * Simple version implementation that allows for arbitrary length of semantic versions (dot-separated) with an optional suffix
-     * in the end, separated by a dash. Provides functionality to compare versions based on Nuget.org specifications.
-     */
-    static class SimpleVersion implements Comparable<SimpleVersion> {
-
-        private final String raw;
-
-        private final int[] parts;
-
-        private String suffix = null;
-
-        public SimpleVersion(String version) {
-            this.raw = version;
-
-            String[] verAndSuffix = this.raw.split("-");
-
-            if(verAndSuffix.length > 1){
-                this.suffix = verAndSuffix[1];
-            }
-
-            String[] tmp = verAndSuffix[0].split("\\.");
-
-            this.parts = new int[tmp.length];
-
-            for(int i = 0; i < tmp.length; i++){
-                try{
-                    String curr = tmp[i];
-
-                    this.parts[i] = Integer.parseInt(curr);
-                } catch (NumberFormatException nfx){
-                    // Very simple handling
-                    this.parts[i] = 0;
-                }
-
-            }
-        }
-
-        public int[] getParts(){
-            return this.parts;
-        }
-
-        public String getRaw(){
-            return this.raw;
-        }
-
-        public String getSuffix() { return this.suffix; }
-
-        public void increaseAt(int index, int delta) {
-            if(index >= 0 && index < parts.length){
-                this.parts[index] += delta;
-            }
-        }
-
-        public boolean isGreaterThan(SimpleVersion other) {
-            return this.compareTo(other) > 0;
-        }
-
-        public boolean isLowerThan(SimpleVersion other){
-            return this.compareTo(other) < 0;
-        }
-
-        /**
-         * Notice that 1.0-abc === 1.0.0-abc
-         * @param other
-         * @return
-         */
-        @Override
-        public boolean equals(Object other){
-            if(other instanceof SimpleVersion){
-                SimpleVersion o = (SimpleVersion) other;
-
-                if(!equalsNoSuffix(o)) return false;
-
-                return Objects.equals(o.getSuffix(), this.suffix);
-            }
-            return false;
-        }
-
-        public boolean equalsNoSuffix(SimpleVersion o){
-            int[] oParts = o.getParts();
-
-            int maxL = Math.max(oParts.length, this.parts.length);
-
-            for(int i = 0; i < maxL; i++){
-                int currPart = i < this.parts.length ? this.parts[i] : 0;
-                int oPart = i < oParts.length ? oParts[i] : 0;
-
-                if(oPart != currPart) return false;
-            }
-
-            return true;
-        }
-
-
-        @Override
-        public int compareTo(@Nullable SimpleVersion other) {
-            if(other == null) return 1;
-
-            int[] oParts = other.getParts();
-
-            int maxL = Math.max(this.parts.length, oParts.length);
-
-            for(int i = 0; i < maxL; i++){
-                int currPart = i < this.parts.length ? this.parts[i] : 0;
-                int oPart = i < oParts.length ? oParts[i] : 0;
-
-                if(currPart > oPart) return 1;
-                else if(currPart < oPart) return -1;
-            }
-
-            if(this.suffix == null && other.getSuffix() != null) return 1;
-            else if(this.suffix == null) return 0;
-            else if(other.getSuffix() == null) return -1;
-            else return this.suffix.compareTo(other.getSuffix());
-
-        }
-    }
 }
@@ -0,0 +1,263 @@
+package Repositories;
+
+/**
+ * Immutable, pre-parsed representation of a version string as used by all VersionRangeResolver implementations. Every
+ * distinct version string is split and converted into numeric components only once, subsequent lookups via
+ * {@link #of(String)} are served from a shared cache.
+ *
+ * A version is represented in two ways:
+ *  - Segments: The raw string split at every dot, each segment with a lenient numeric value (all non-digit characters
+ *    removed, -1 if none are left) and a wildcard flag (segment equals 'x'). Used by the NPM, PyPi and Maven resolvers.
+ *  - Release parts and qualifier: The part before the first dash split at every dot and parsed strictly (0 if not a
+ *    number), and the part after the first dash as qualifier. Used for ordering versions, e.g. by the NuGet resolver.
+ */
+public final class ParsedVersion implements Comparable<ParsedVersion> {
+
+    private static final BoundedConcurrentCache<String, ParsedVersion> cache = new BoundedConcurrentCache<>(200000);
+
+    private final String raw;
+
+    private final String[] segments;
+    private final int[] numbers;
+    private final boolean[] wildcards;
+
+    private final int[] releaseParts;
+    private final String qualifier;
+
+    /**
+     * Retrieves the parsed representation of the given version string. Representations are cached and shared between
+     * all resolvers.
+     * @param version Version string to parse
+     * @return Parsed representation of the version
+     */
+    public static ParsedVersion of(String version) {
+        ParsedVersion parsed = cache.get(version);
+
+        if(parsed == null){
+            parsed = cache.putIfAbsent(version, new ParsedVersion(version));
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Gets the statistics of the cache shared by all parsed versions.
+     * @return Snapshot of the cache statistics
+     */
+    public static BoundedConcurrentCache.CacheStatistics getCacheStatistics() { return cache.getStatistics(); }
+
+    private ParsedVersion(String version) {
+        this.raw = version;
+
+        // Single escaped character: String.split takes its fast path and does not compile a regex
+        this.segments = version.split("\\.");
+        this.numbers = new int[segments.length];
+        this.wildcards = new boolean[segments.length];
+
+        for(int i = 0; i < segments.length; i++){
+            numbers[i] = parseLenientNumber(segments[i]);
+            wildcards[i] = segments[i].equals("x");
+        }
+
+        String[] verAndQualifier = version.split("-");
+        this.qualifier = verAndQualifier.length > 1 ? verAndQualifier[1] : null;
+
+        String[] release = verAndQualifier.length > 0 ? verAndQualifier[0].split("\\.") : new String[]{ "" };
+        this.releaseParts = new int[release.length];
+
+        for(int i = 0; i < release.length; i++){
+            try {
+                releaseParts[i] = Integer.parseInt(release[i]);
+            } catch (NumberFormatException nfx){
+                // Very simple handling
+                releaseParts[i] = 0;
+            }
+        }
+    }
+
+    private ParsedVersion(ParsedVersion base, int[] releaseParts) {
+        this.raw = base.raw;
+        this.segments = base.segments;
+        this.numbers = base.numbers;
+        this.wildcards = base.wildcards;
+        this.qualifier = base.qualifier;
+        this.releaseParts = releaseParts;
+    }
+
+    /**
+     * Parses a version segment into an integer by removing all non-digit characters. Segments longer than 12 characters
+     * are cut to their first 11 characters beforehand.
+     * @param segment Segment to parse
+     * @return Parsed integer, -1 if the segment does not contain a number or the number is out of range
+     */
+    public static int parseLenientNumber(String segment) {
+        int maxsize = 12;
+        int length = segment.length() > maxsize ? maxsize - 1 : segment.length();
+
+        long value = 0;
+        boolean hasDigit = false;
+
+        for(int i = 0; i < length; i++){
+            char c = segment.charAt(i);
+
+            if(c >= '0' && c <= '9'){
+                hasDigit = true;
+                value = value * 10 + (c - '0');
+                if(value > Integer.MAX_VALUE) return -1;
+            }
+        }
+
+        return hasDigit ? (int) value : -1;
+    }
+
+    /**
+     * Retrieves the original version string.
+     * @return Version string
+     */
+    public String getRaw() { return raw; }
+
+    /**
+     * Retrieves the number of dot-separated segments of this version.
+     * @return Number of segments
+     */
+    public int getSegmentCount() { return segments.length; }
+
+    /**
+     * Retrieves the raw segment at the given index.
+     * @param index Segment index
+     * @return Segment string
+     * @throws ArrayIndexOutOfBoundsException If there is no such segment
+     */
+    public String getSegment(int index) { return segments[index]; }
+
+    /**
+     * Retrieves the lenient numeric value of the segment at the given index.
+     * @param index Segment index
+     * @return Numeric value of the segment, -1 if it does not contain a number
+     * @throws ArrayIndexOutOfBoundsException If there is no such segment
+     */
+    public int getNumber(int index) { return numbers[index]; }
+
+    /**
+     * Checks whether the segment at the given index is a wildcard ('x').
+     * @param index Segment index
+     * @return True if the segment is a wildcard
+     * @throws ArrayIndexOutOfBoundsException If there is no such segment
+     */
+    public boolean isWildcard(int index) { return wildcards[index]; }
+
+    /**
+     * Checks whether any of the first count segments is a wildcard ('x').
+     * @param count Number of segments to check
+     * @return True if there is a wildcard among the segments
+     * @throws ArrayIndexOutOfBoundsException If there are less than count segments
+     */
+    public boolean hasWildcard(int count) {
+        for(int i = 0; i < count; i++){
+            if(wildcards[i]) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Lexicographically compares the lenient numeric values of the first count segments of both versions.
+     * @param other Version to compare to
+     * @param count Number of segments to compare
+     * @return Negative, zero or positive value if this version is lower, equal or greater than the other
+     * @throws ArrayIndexOutOfBoundsException If one of the versions has less than count segments
+     */
+    public int compareNumbers(ParsedVersion other, int count) {
+        for(int i = 0; i < count; i++){
+            int comparison = Integer.compare(this.numbers[i], other.numbers[i]);
+            if(comparison != 0) return comparison;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Retrieves the strictly parsed release parts of this version, i.e. all numbers before the qualifier.
+     * @return Release parts, must not be modified
+     */
+    public int[] getReleaseParts() { return releaseParts; }
+
+    /**
+     * Retrieves the qualifier of this version, i.e. the part after the first dash.
+     * @return Qualifier or null if there is none
+     */
+    public String getQualifier() { return qualifier; }
+
+    /**
+     * Creates a copy of this version where the release part at the given index is increased by delta. Copies are not
+     * cached. If the index does not exist, the release parts are left unchanged.
+     * @param index Index of the release part to increase
+     * @param delta Value to add
+     * @return New version object
+     */
+    public ParsedVersion withIncreasedReleasePart(int index, int delta) {
+        int[] parts = releaseParts.clone();
+
+        if(index >= 0 && index < parts.length){
+            parts[index] += delta;
+        }
+
+        return new ParsedVersion(this, parts);
+    }
+
+    /**
+     * Checks whether both versions have the same release parts, ignoring qualifiers. Missing parts are treated as zero,
+     * so 1.0 has the same release as 1.0.0-abc.
+     * @param other Version to compare to
+     * @return True if release parts are equal
+     */
+    public boolean hasSameRelease(ParsedVersion other) {
+        return compareRelease(other) == 0;
+    }
+
+    /**
+     * Compares the release parts of both versions, ignoring qualifiers. Missing parts are treated as zero.
+     * @param other Version to compare to
+     * @return Negative, zero or positive value if this release is lower, equal or greater than the other
+     */
+    public int compareRelease(ParsedVersion other) {
+        int[] oParts = other.releaseParts;
+
+        int maxL = Math.max(this.releaseParts.length, oParts.length);
+
+        for(int i = 0; i < maxL; i++){
+            int currPart = i < this.releaseParts.length ? this.releaseParts[i] : 0;
+            int oPart = i < oParts.length ? oParts[i] : 0;
+
+            if(currPart > oPart) return 1;
+            else if(currPart < oPart) return -1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Orders versions by their release parts first. For equal releases, versions without qualifier are greater than
+     * versions with qualifier, qualifiers are compared lexicographically. Note that this ordering is not consistent with
+     * equals, 1.0 and 1.0.0 compare as equal.
+     * @param other Version to compare to
+     * @return Negative, zero or positive value if this version is lower, equal or greater than the other
+     */
+    @Override
+    public int compareTo(ParsedVersion other) {
+        if(other == null) return 1;
+
+        int releaseComparison = compareRelease(other);
+        if(releaseComparison != 0) return releaseComparison;
+
+        if(this.qualifier == null && other.qualifier != null) return 1;
+        else if(this.qualifier == null) return 0;
+        else if(other.qualifier == null) return -1;
+        else return this.qualifier.compareTo(other.qualifier);
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
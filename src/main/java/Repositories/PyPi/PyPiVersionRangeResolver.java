@@ -1,14 +1,15 @@
 package Repositories.PyPi;
 
-import Application.ExceptionLogger;
-import Repositories.VersionRangeResolver;
+import Repositories.ParsedVersion;
+import Repositories.RangeSpecMatcher;
+import Repositories.SegmentVersionRangeResolver;
+import Repositories.VersionRangeNode;
 
-import javax.accessibility.AccessibleValue;
 
 /**
  * VersionRangeResolver implementation for PyPi.
  */
-public class PyPiVersionRangeResolver extends VersionRangeResolver<PyPiVersionRangeResolver.PyPiVersionRangeRepresentation> {
+public class PyPiVersionRangeResolver extends SegmentVersionRangeResolver {
 
     @Override
     protected boolean isValidVersionReference(String potentialVersionRangeSpec){
@@ -27,8 +28,7 @@ public class PyPiVersionRangeResolver extends VersionRangeResolver<PyPiVersionRa
 
     @Override
     protected boolean isRangeSpecification(String potentialVersionRangeSpec) {
-        String pattern = "(v?)((((\\d)+|x).){0,2}((\\d)+|x))(((.)?)((\\w)*))?";
-        return !potentialVersionRangeSpec.matches(pattern);
+        return !RangeSpecMatcher.isVersion(potentialVersionRangeSpec);
     }
 
     @Override
@@ -36,449 +36,52 @@ public class PyPiVersionRangeResolver extends VersionRangeResolver<PyPiVersionRa
         if(versionRef.contains("workspace:"))
             versionRef = versionRef.split("[workspace:]")[1];
 
-        return versionRef.replaceAll(" ", "").split("[-]")[0]
-                .split("[@]")[0].replaceAll("(\\*|X)", "x").replaceAll("(\"|\')", "").replaceAll(" ","");
+        return normalizeSpec(versionRef.replace(" ", ""));
     }
 
     @Override
-    protected boolean isVersionInRange(String originalVersionRangeSpec,
-                                       PyPiVersionRangeRepresentation versionRangeRepresentation,
-                                       String originalToVersion) {
-
-        /* Case ALL */
-        if(versionRangeRepresentation.RangeType.equals(PyPiRangeType.ALL)){
-            return true;
-        }
-
-        /* Short down version string for comparison */
-        String version = originalToVersion.replaceAll(" ", "");
-
-        /* Version definitions with $ cannot be compared here and empty versions cannot be used*/
-        if (version.contains("$")||version.equals("")) {
-            return false;
-        }
-
-        String versionRange = versionRangeRepresentation.NormalizedRangeString;
-
-        boolean returnValue = false;
-        try {
-            switch (versionRangeRepresentation.RangeType){
-                case STANDARD, UNKNOWN -> returnValue = (versionRange.equals(version)|| fixedRangeEquals(versionRange,version));
-                case DASH1,HIGHEREQUAL1 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=1){
-                        returnValue = (fromSplit[0].equals("x"))||(parseNumber(toSplit[0])>=parseNumber(fromSplit[0]));
-                    }
-                }
-                case DASH2 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=2){
-                        returnValue = (fromSplit[1].equals("x"))||
-                                ((parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])>=parseNumber(fromSplit[1])));
-                    }
-                }
-                case DASH3 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=3){
-                        returnValue = (fromSplit[2].equals("x"))||
-                                ((parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])>parseNumber(fromSplit[1])))||
-                                ((parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])>=parseNumber(fromSplit[1]))&&(parseNumber(toSplit[2])>=parseNumber(fromSplit[2])));
-                    }
-                }
-
-                case HIGHEREQUAL2 -> {
-                    if(!fixedRangeEquals(versionRange,version)){
-                        PyPiVersionRangeRepresentation repr = new PyPiVersionRangeRepresentation();
-                        repr.RangeType= PyPiRangeType.HIGHER2;
-                        repr.NormalizedRangeString = versionRange;
-                        returnValue = isVersionInRange(originalVersionRangeSpec,repr,version);
-                    } else {
-                        returnValue = true;
-                    }
-                }
-                case HIGHEREQUAL3 -> {
-                    if(!fixedRangeEquals(versionRange,version)){
-                        PyPiVersionRangeRepresentation repr = new PyPiVersionRangeRepresentation();
-                        repr.RangeType= PyPiRangeType.HIGHER3;
-                        repr.NormalizedRangeString = versionRange;
-                        returnValue = isVersionInRange(originalVersionRangeSpec,repr,version);
-                    } else {
-                        returnValue = true;
-                    }
-                }
-
-                case LOWEREQUAL1 -> {
-                    if(!fixedRangeEquals(versionRange,version)){
-                        PyPiVersionRangeRepresentation repr = new PyPiVersionRangeRepresentation();
-                        repr.RangeType= PyPiRangeType.LOWER1;
-                        repr.NormalizedRangeString = versionRange;
-                        returnValue = isVersionInRange(originalVersionRangeSpec,repr,version);
-                    } else {
-                        returnValue = true;
-                    }
-                }
-                case LOWEREQUAL2 -> {
-                    if(!fixedRangeEquals(versionRange,version)){
-                        PyPiVersionRangeRepresentation repr = new PyPiVersionRangeRepresentation();
-                        repr.RangeType= PyPiRangeType.LOWER2;
-                        repr.NormalizedRangeString = versionRange;
-                        returnValue = isVersionInRange(originalVersionRangeSpec,repr,version);
-                    } else {
-                        returnValue = true;
-                    }
-                }
-                case LOWEREQUAL3 -> {
-                    if(!fixedRangeEquals(versionRange,version)){
-                        PyPiVersionRangeRepresentation repr = new PyPiVersionRangeRepresentation();
-                        repr.RangeType= PyPiRangeType.LOWER3;
-                        repr.NormalizedRangeString = versionRange;
-                        returnValue = isVersionInRange(originalVersionRangeSpec,repr,version);
-                    } else {
-                        returnValue = true;
-                    }
-                }
-
-                case HIGHER1 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=1){
-                        returnValue = (fromSplit[0].equals("x"))||(parseNumber(toSplit[0])>parseNumber(fromSplit[0]));
-                    }
-                }
-                case HIGHER2 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=2){
-                        returnValue = (fromSplit[1].equals("x"))
-                                || ((parseNumber(toSplit[0])>parseNumber(fromSplit[0]))
-                                || (parseNumber(toSplit[0])>=parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])>parseNumber(fromSplit[1])));
-                    }
-                }
-                case HIGHER3 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=3){
-                        returnValue = (fromSplit[2].equals("x"))
-                                ||((parseNumber(toSplit[0])>parseNumber(fromSplit[0]))
-                                ||(parseNumber(toSplit[0])>=parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])>parseNumber(fromSplit[1])))
-                                ||(parseNumber(toSplit[0])>=parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])>=parseNumber(fromSplit[1])&&(parseNumber(toSplit[2])>parseNumber(fromSplit[2])))));
-                    }
-                }
-
-                case LOWER1 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=1){
-                        returnValue = (fromSplit[0].equals("x"))||(parseNumber(toSplit[0])<parseNumber(fromSplit[0]));
-                    }
-                }
-                case LOWER2 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=2){
-                        returnValue = (fromSplit[1].equals("x"))
-                                || ((parseNumber(toSplit[0])<parseNumber(fromSplit[0]))
-                                || (parseNumber(toSplit[0])==parseNumber(fromSplit[0]))&&(parseNumber(toSplit[1])<parseNumber(fromSplit[1])));
-                    }
-                }
-                case LOWER3 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=3){
-                        returnValue = (fromSplit[2].equals("x"))
-                                ||((parseNumber(toSplit[0])<parseNumber(fromSplit[0]))
-                                ||(parseNumber(toSplit[0])<=parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])<parseNumber(fromSplit[1])))
-                                ||(parseNumber(toSplit[0])<=parseNumber(fromSplit[0])&&(parseNumber(toSplit[1])<=parseNumber(fromSplit[1])&&(parseNumber(toSplit[2])<parseNumber(fromSplit[2])))));
-                    }
-                }
-
-                case TILDE1 -> {
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=1){
-                        returnValue = true;
-                    }
-                }
-                case TILDE2 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=1){
-                        returnValue = (fromSplit[1].equals("x"))||
-                                ((parseNumber(toSplit[0])==parseNumber(fromSplit[0]))
-                                        && (((parseNumber(toSplit[1])>=parseNumber(fromSplit[1]))) || (fromSplit[2].equals("x"))));
-                    }
-                }
-                case TILDE3 -> {
-                    String[] fromSplit = versionRange.split("[.]");
-                    String[] toSplit = version.split("[.]");
-                    if(toSplit.length>=2){
-                        returnValue =
-                                ((parseNumber(toSplit[0])==parseNumber(fromSplit[0]))
-                                && (((parseNumber(toSplit[1])==parseNumber(fromSplit[1]))) || (fromSplit[2].equals("x")))
-                                && (((parseNumber(toSplit[2])>=parseNumber(fromSplit[2]))) || (fromSplit[3].equals("x"))));
-                    }
-                }
-
-                case NOT ->
-                        {
-                            if(versionRange.split("[.]").length<3){
-                                versionRange=extendVersionRange(versionRange);
-                            }
-                            returnValue = !(versionRange.equals(version)|| fixedRangeEquals(versionRange,version));
-                        }
-
-                case OR -> {
-                    String orOperator = "(\\|\\|)";
-                    String[] splitVersionRanges = versionRange.split(orOperator);
-
-                    PyPiVersionRangeRepresentation recursiveReprOne = new PyPiVersionRangeRepresentation();
-                    recursiveReprOne.RangeType= PyPiRangeType.RECURSIVE;
-                    recursiveReprOne.NormalizedRangeString = splitVersionRanges[0];
-
-                    PyPiVersionRangeRepresentation recursiveReprTwo = new PyPiVersionRangeRepresentation();
-                    recursiveReprTwo.RangeType= PyPiRangeType.RECURSIVE;
-                    recursiveReprTwo.NormalizedRangeString = splitVersionRanges[1];
-
-                    returnValue = (isVersionInRange(originalVersionRangeSpec,recursiveReprOne,version) || isVersionInRange(originalVersionRangeSpec,recursiveReprTwo,version));
-                }
-
-                case AND -> {
-                    String andOperator = ",";
-                    String[] splitVersionRanges = versionRange.split(andOperator);
-
-                    PyPiVersionRangeRepresentation recursiveReprOne = new PyPiVersionRangeRepresentation();
-                    recursiveReprOne.RangeType= PyPiRangeType.RECURSIVE;
-                    recursiveReprOne.NormalizedRangeString = splitVersionRanges[0];
-
-                    PyPiVersionRangeRepresentation recursiveReprTwo = new PyPiVersionRangeRepresentation();
-                    recursiveReprTwo.RangeType= PyPiRangeType.RECURSIVE;
-                    recursiveReprTwo.NormalizedRangeString = splitVersionRanges[1];
-
-                    returnValue = (isVersionInRange(originalVersionRangeSpec,recursiveReprOne,version) && isVersionInRange(originalVersionRangeSpec,recursiveReprTwo,version));
-                }
+    protected String toCanonicalRangeSpec(String versionRangeSpec) {
+        // Representations are built from the normalized specification only
+        return normalizeSpec(versionRangeSpec);
+    }
 
-                case RECURSIVE -> {
-                    if(versionRange.contains("workspace:"))
-                        versionRange = versionRange.split("[workspace:]")[1];
-                    PyPiVersionRangeRepresentation recursiveRangeRepresentation = buildVersionRangeRepresentation(versionRange);
-                    returnValue = isVersionInRange(originalVersionRangeSpec, recursiveRangeRepresentation, version);
-                }
-            }
-        } catch (Exception ex){
-            ExceptionLogger.add(ex,this.getClass().toString());
-        }
-        return returnValue;
+    private static String normalizeSpec(String spec) {
+        return firstSplitPart(firstSplitPart(spec, '-'), '@')
+                .replace('*', 'x').replace('X', 'x').replace("\"", "").replace("'", "").replace(" ","");
     }
 
     @Override
-    protected PyPiVersionRangeRepresentation buildVersionRangeRepresentation(String versionRangeSpec) {
-        PyPiVersionRangeRepresentation repr = new PyPiVersionRangeRepresentation();
-
-        String fromVersionRange = versionRangeSpec.split("[-]")[0]
-                .split("[@]")[0].replaceAll("(\\*|X)", "x").replaceAll("(\"|\')", "").replaceAll(" ","");
-        repr.NormalizedRangeString = fromVersionRange;
+    protected VersionRangeNode buildVersionRangeRepresentation(String versionRangeSpec) {
+        return parseComparatorSets(normalizeSpec(versionRangeSpec), PyPiVersionRangeResolver::parseComparator);
+    }
 
+    /**
+     * Parses a single clause, e.g. "~=1.2", ">=1.0.0" or "!=1.5". Empty clauses match all versions, clauses that are not
+     * understood only match versions equal to them.
+     */
+    private static VersionRangeNode parseComparator(String comparator) {
         /* Empty versionRanges are equal to all Versions in PyPi */
-        if(fromVersionRange.equals("")){
-            repr.RangeType=PyPiRangeType.ALL;
-            return repr;
-        }
-
-        String pattern = "(v?)((((\\d)+|x).){0,2}((\\d)+|x))(((.)?)((\\w)*))?";
-        String prefixes = "(\\^|~|>|(>=)|<|(<=)|==|===|~=|(!=))";
-        String orOperator = "(\\|\\|)";
-        String andOperator = "(,)";
-
-        try {
-            /* X.X.X */
-            if(fromVersionRange.matches("((==)|(===))?"+pattern)){
-                repr.RangeType = PyPiRangeType.STANDARD;
-                return repr;
-            }
-
-            // ^X.X.X
-            if (fromVersionRange.matches("\\^" + pattern)) {
-                repr.NormalizedRangeString = fromVersionRange.replaceAll("(,)?","").replaceAll("\\^","");
-                String[] split = fromVersionRange.split("[.]");
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = PyPiRangeType.DASH1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = PyPiRangeType.DASH2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = PyPiRangeType.DASH3;
-                        return repr;
-                    }
-                }
-            }
-
-            // >X.X.X
-            if (fromVersionRange.matches(">"+pattern)) {
-                String[] split = fromVersionRange.split("[.]");
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = PyPiRangeType.HIGHER1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = PyPiRangeType.HIGHER2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = PyPiRangeType.HIGHER3;
-                        return repr;
-                    }
-                }
-            }
+        if(comparator.isEmpty()) return VersionRangeNode.all();
 
-            // >=X.X.X
-            if (fromVersionRange.matches(">="+pattern)) {
-                String[] split = fromVersionRange.split("[.]");
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = PyPiRangeType.HIGHEREQUAL1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = PyPiRangeType.HIGHEREQUAL2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = PyPiRangeType.HIGHEREQUAL3;
-                        return repr;
-                    }
-                }
-            }
+        String operator = operatorOf(comparator);
+        String version = comparator.substring(operator.length());
 
-            // <X.X.X
-            if (fromVersionRange.matches("<"+pattern)) {
-                String[] split = fromVersionRange.split("[.]");
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = PyPiRangeType.LOWER1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = PyPiRangeType.LOWER2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = PyPiRangeType.LOWER3;
-                        return repr;
-                    }
-                }
-            }
+        if(!RangeSpecMatcher.isVersion(version)) return VersionRangeNode.compare(VersionRangeNode.Operator.EQUAL, comparator);
 
-            // <=X.X.X
-            if (fromVersionRange.matches("<="+pattern)) {
-                String[] split = fromVersionRange.split("[.]");
-                switch (split.length) {
-                    case 1 -> {
-                        repr.RangeType = PyPiRangeType.LOWEREQUAL1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = PyPiRangeType.LOWEREQUAL2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = PyPiRangeType.LOWEREQUAL3;
-                        return repr;
-                    }
-                }
-            }
+        // Exclusions only exclude the exact version, i.e. "!=1.2" excludes "1.2.0"
+        if(operator.equals("!") || operator.equals("!="))
+            return VersionRangeNode.compare(VersionRangeNode.Operator.NOT_EQUAL, extendVersionRange(version));
 
-            // ~X.X.X
-            if (fromVersionRange.matches("~(=)?"+pattern)) {
-                String[] split = fromVersionRange.split("[.]");
-                switch (split.length){
-                    case 1 -> {
-                        repr.RangeType = PyPiRangeType.TILDE1;
-                        return repr;
-                    }
-                    case 2 -> {
-                        repr.RangeType = PyPiRangeType.TILDE2;
-                        return repr;
-                    }
-                    case 3 -> {
-                        repr.RangeType = PyPiRangeType.TILDE3;
-                        return repr;
-                    }
-                }
-            }
+        // Ranges with a single bound are only distinguished for up to three segments
+        VersionRangeNode.Operator boundOperator = toBoundOperator(operator);
+        if(boundOperator != null && isBoundSegmentCount(version))
+            return VersionRangeNode.compare(boundOperator, version);
 
-            // !X.X.X
-            if (fromVersionRange.matches("!(\\=)?"+pattern)||fromVersionRange.matches("!\\=(\\d)+")) {
-                repr.RangeType = PyPiRangeType.NOT;
-                return repr;
-            }
-
-            /* OR */
-            if(fromVersionRange.matches(prefixes+"?"+pattern+orOperator+prefixes+"?"+pattern)){
-                repr.RangeType = PyPiRangeType.OR;
-                return repr;
-            }
-
-            /* And */
-            if(fromVersionRange.matches(prefixes+"?"+pattern+andOperator+prefixes+"?"+pattern)){
-                repr.RangeType = PyPiRangeType.AND;
-                return repr;
-            }
-
-            /* Unknown */
-            repr.RangeType = PyPiRangeType.UNKNOWN;
-            return repr;
-        } catch (Exception ex){
-            ExceptionLogger.add(ex,this.getClass().toString());
-        }
-        return repr;
-    }
-
-    static class PyPiVersionRangeRepresentation {
-        public PyPiRangeType RangeType;
-        public String NormalizedRangeString;
-    }
-
-    enum PyPiRangeType {
-        UNKNOWN,
-        STANDARD,
-        RECURSIVE,
-        AND,
-        OR,
-        DASH1,
-        DASH2,
-        DASH3,
-        HIGHER1,
-        HIGHER2,
-        HIGHER3,
-        HIGHEREQUAL1,
-        HIGHEREQUAL2,
-        HIGHEREQUAL3,
-        LOWER1,
-        LOWER2,
-        LOWER3,
-        LOWEREQUAL1,
-        LOWEREQUAL2,
-        LOWEREQUAL3,
-        TILDE1,
-        TILDE2,
-        TILDE3,
-        NOT,
-        ALL
+        return VersionRangeNode.compare(VersionRangeNode.Operator.EQUAL, version);
     }
 
-    private String extendVersionRange(String version){
-        version=version.replaceAll("!=","");
-        String[] versionSplit = version.split("[.]");
-
-        return switch (versionSplit.length) {
-            case 0 -> "";
+    private static String extendVersionRange(String version){
+        return switch (ParsedVersion.of(version).getSegmentCount()) {
             case 1 -> version + ".0.0";
             case 2 -> version + ".0";
             default -> version;
@@ -0,0 +1,199 @@
+package Repositories;
+
+import java.util.BitSet;
+
+/**
+ * Hand-written matcher for version range specifications. It replaces chains of String.matches calls, which compile
+ * their regular expression on every invocation, by a single pass over the specification per grammar element.
+ *
+ * A matcher keeps the set of positions in the specification that can be reached by the elements matched so far, just
+ * like a backtracking regex engine would explore them. Every element advances all positions at once, so the result is
+ * exactly the one of the equivalent regular expression. Example: The regex "\^" + VERSION + "(,)?" corresponds to
+ *
+ *     RangeSpecMatcher.of(spec).literal("^").version().optional(",").matches()
+ *
+ * The version element corresponds to the regex (v?)((((\d)+|x).){0,2}((\d)+|x))(((.)?)((\w)*))? used by the resolvers
+ * to detect single versions. Note that the dot in that regex matches any character.
+ */
+public final class RangeSpecMatcher {
+
+    private final String spec;
+    private final int length;
+
+    private BitSet positions;
+
+    private RangeSpecMatcher(String spec) {
+        this.spec = spec;
+        this.length = spec.length();
+        this.positions = new BitSet(length + 1);
+        this.positions.set(0);
+    }
+
+    /**
+     * Starts matching the given specification at its first character.
+     * @param spec Specification to match
+     * @return New matcher
+     */
+    public static RangeSpecMatcher of(String spec) {
+        return new RangeSpecMatcher(spec);
+    }
+
+    /**
+     * Checks whether the whole given string is a single version, i.e. whether it matches the version element.
+     * @param spec String to check
+     * @return True if the string is a single version
+     */
+    public static boolean isVersion(String spec) {
+        return of(spec).version().matches();
+    }
+
+    /**
+     * Matches the given literal.
+     * @param literal Literal to match
+     * @return This matcher
+     */
+    public RangeSpecMatcher literal(String literal) {
+        BitSet next = new BitSet(length + 1);
+
+        for(int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)){
+            if(spec.startsWith(literal, p)) next.set(p + literal.length());
+        }
+
+        positions = next;
+        return this;
+    }
+
+    /**
+     * Matches the given literal or nothing, i.e. the regex (literal)?
+     * @param literal Literal to match optionally
+     * @return This matcher
+     */
+    public RangeSpecMatcher optional(String literal) {
+        return anyOf("", literal);
+    }
+
+    /**
+     * Matches any one of the given literals, i.e. the regex (a|b|c). An empty literal makes the element optional.
+     * @param literals Alternatives to match
+     * @return This matcher
+     */
+    public RangeSpecMatcher anyOf(String... literals) {
+        BitSet next = new BitSet(length + 1);
+
+        for(int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)){
+            for(String literal : literals){
+                if(spec.startsWith(literal, p)) next.set(p + literal.length());
+            }
+        }
+
+        positions = next;
+        return this;
+    }
+
+    /**
+     * Matches a non-empty sequence of digits, i.e. the regex (\d)+
+     * @return This matcher
+     */
+    public RangeSpecMatcher digits() {
+        BitSet next = new BitSet(length + 1);
+
+        for(int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)){
+            addDigitEnds(p, next);
+        }
+
+        positions = next;
+        return this;
+    }
+
+    /**
+     * Matches a single version, i.e. the regex (v?)((((\d)+|x).){0,2}((\d)+|x))(((.)?)((\w)*))?
+     * @return This matcher
+     */
+    public RangeSpecMatcher version() {
+        BitSet next = new BitSet(length + 1);
+
+        BitSet current = new BitSet(length + 1);
+        for(int p = positions.nextSetBit(0); p >= 0; p = positions.nextSetBit(p + 1)){
+            current.set(p);
+            if(p < length && spec.charAt(p) == 'v') current.set(p + 1);
+        }
+
+        // One to three numbers or wildcards, separated by any character
+        BitSet numberEnds = new BitSet(length + 1);
+        current = numbers(current);
+        numberEnds.or(current);
+
+        for(int i = 0; i < 2 && !current.isEmpty(); i++){
+            current = numbers(anyCharacter(current));
+            numberEnds.or(current);
+        }
+
+        // Optional suffix: Any character followed by word characters
+        for(int p = numberEnds.nextSetBit(0); p >= 0; p = numberEnds.nextSetBit(p + 1)){
+            next.set(p, wordEnd(p) + 1);
+
+            if(p < length && !isLineTerminator(spec.charAt(p))){
+                next.set(p + 1, wordEnd(p + 1) + 1);
+            }
+        }
+
+        positions = next;
+        return this;
+    }
+
+    /**
+     * Checks whether the elements matched so far cover the whole specification.
+     * @return True if the specification matches
+     */
+    public boolean matches() {
+        return positions.get(length);
+    }
+
+    private BitSet numbers(BitSet starts) {
+        BitSet ends = new BitSet(length + 1);
+
+        for(int p = starts.nextSetBit(0); p >= 0; p = starts.nextSetBit(p + 1)){
+            if(p < length && spec.charAt(p) == 'x') ends.set(p + 1);
+            addDigitEnds(p, ends);
+        }
+
+        return ends;
+    }
+
+    private BitSet anyCharacter(BitSet starts) {
+        BitSet ends = new BitSet(length + 1);
+
+        for(int p = starts.nextSetBit(0); p >= 0; p = starts.nextSetBit(p + 1)){
+            if(p < length && !isLineTerminator(spec.charAt(p))) ends.set(p + 1);
+        }
+
+        return ends;
+    }
+
+    private void addDigitEnds(int start, BitSet ends) {
+        int p = start;
+        while(p < length && isDigit(spec.charAt(p))){
+            p++;
+            ends.set(p);
+        }
+    }
+
+    private int wordEnd(int start) {
+        int p = start;
+        while(p < length && isWordCharacter(spec.charAt(p))) p++;
+        return p;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    // Characters not matched by the regex dot without DOTALL
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -37,6 +37,22 @@ public class RepositoryController {
          * @return String list of ids
          */
         List<String> generateIds();
+
+        /**
+         * Function to generate a list of ids for the update mode. Implementations that can tell which packages changed
+         * since the last run may return only those, by default all ids are generated.
+         * @return String list of ids
+         */
+        default List<String> generateUpdatedIds() {
+            return generateIds();
+        }
+
+        /**
+         * Function called once the ids generated last have been mined successfully. Implementations that keep state
+         * between runs, e.g. the position in an index to continue from, must only persist it here, so that ids of a
+         * failed or aborted run are generated again. By default, nothing is done.
+         */
+        default void commitGeneratedIds() { }
     }
 
 
@@ -0,0 +1,233 @@
+package Repositories;
+
+import Application.ExceptionLogger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Base class of the resolvers for Maven, npm and PyPi, whose versions are compared segment by segment. Range
+ * specifications are parsed once into a VersionRangeNode tree, from which both the containment check of single
+ * versions and the intervals for interval-based resolution are derived. Subclasses only implement the parser.
+ *
+ * Comparisons use the lenient numbers of the first n segments of the bound version, where n is its number of segments
+ * and only versions with at least n segments can be in range. A wildcard ('x') in the last segment of a bound matches
+ * all such versions. For ^ and ~ ranges, the first segment (or the first two segments of a three segment ~ range) must
+ * be equal, the remaining segments must be greater or equal.
+ */
+public abstract class SegmentVersionRangeResolver extends VersionRangeResolver<VersionRangeNode> {
+
+    private static final String OPERATOR_CHARS = "<>=!^~";
+
+    // Longer operators first, so that the longest matching operator is found
+    private static final String[] operators = { "===", ">=", "<=", "~=", "!=", "==", ">", "<", "^", "~", "!", "=" };
+
+    private static final Map<String, VersionRangeNode.Operator> boundOperators = Map.of(
+            ">", VersionRangeNode.Operator.GREATER,
+            ">=", VersionRangeNode.Operator.GREATER_EQUAL,
+            "<", VersionRangeNode.Operator.LESS,
+            "<=", VersionRangeNode.Operator.LESS_EQUAL,
+            "^", VersionRangeNode.Operator.CARET,
+            "~", VersionRangeNode.Operator.TILDE,
+            "~=", VersionRangeNode.Operator.TILDE);
+
+    /**
+     * Normalizes a target version before it is compared. By default, spaces are removed.
+     * @param version Target version
+     * @return Normalized version
+     */
+    protected String normalizeVersion(String version) {
+        return version.replace(" ", "");
+    }
+
+    @Override
+    protected boolean isVersionInRange(String originalVersionRangeSpec, VersionRangeNode versionRange, String originalToVersion) {
+        String version = normalizeVersion(originalToVersion);
+
+        /* Version definitions with $ cannot be compared here and empty versions cannot be used*/
+        if (version.contains("$")||version.equals("")) {
+            return false;
+        }
+
+        ParsedVersion to = ParsedVersion.of(version);
+        return versionRange.contains(comparison -> isVersionInComparison(comparison, version, to));
+    }
+
+    private boolean isVersionInComparison(VersionRangeNode.Comparison comparison, String version, ParsedVersion to) {
+        ParsedVersion from = comparison.getBound();
+        int segments = from.getSegmentCount();
+
+        try {
+            boolean hasSegments = to.getSegmentCount() >= segments;
+            boolean isLastWildcard = from.isWildcard(segments - 1);
+
+            return switch (comparison.getOperator()){
+                case EQUAL -> isEqual(comparison, version);
+                case NOT_EQUAL -> !isEqual(comparison, version);
+                case GREATER -> hasSegments && (isLastWildcard || to.compareNumbers(from, segments) > 0);
+                case GREATER_EQUAL -> isEqual(comparison, version) || (hasSegments && (isLastWildcard || to.compareNumbers(from, segments) > 0));
+                case LESS -> hasSegments && (isLastWildcard || to.compareNumbers(from, segments) < 0);
+                case LESS_EQUAL -> isEqual(comparison, version) || (hasSegments && (isLastWildcard || to.compareNumbers(from, segments) < 0));
+                case TILDE -> segments == 1 ? hasSegments : (segments == 3 ?
+                        hasSegments && to.getNumber(0) == from.getNumber(0) && (from.isWildcard(2) ||
+                                (to.getNumber(1) == from.getNumber(1) && to.getNumber(2) >= from.getNumber(2))) :
+                        // Two segment ~ ranges are equal to ^ ranges
+                        isInCaretRange(from, to, segments));
+                case CARET -> isInCaretRange(from, to, segments);
+            };
+        } catch (Exception ex){
+            ExceptionLogger.add(ex,this.getClass().toString());
+            return false;
+        }
+    }
+
+    private static boolean isInCaretRange(ParsedVersion from, ParsedVersion to, int segments) {
+        return to.getSegmentCount() >= segments && (from.isWildcard(segments - 1) ||
+                ((segments == 1 || to.getNumber(0) == from.getNumber(0)) && to.compareNumbers(from, segments) >= 0));
+    }
+
+    private boolean isEqual(VersionRangeNode.Comparison comparison, String version) {
+        return comparison.getVersion().equals(version) || fixedRangeEquals(comparison.getVersion(), version);
+    }
+
+    @Override
+    protected Comparator<ParsedVersion> getVersionOrder() {
+        return VersionInterval.SEGMENT_NUMBER_ORDER;
+    }
+
+    @Override
+    protected ParsedVersion toOrderedVersion(String originalToVersion) {
+        String version = normalizeVersion(originalToVersion);
+
+        if (version.contains("$")||version.equals("")) {
+            return null;
+        }
+
+        return ParsedVersion.of(version);
+    }
+
+    @Override
+    protected List<VersionInterval> toIntervals(VersionRangeNode versionRange) {
+        return versionRange.toIntervals(this::toComparisonIntervals);
+    }
+
+    private List<VersionInterval> toComparisonIntervals(VersionRangeNode.Comparison comparison) {
+        VersionRangeNode.Operator operator = comparison.getOperator();
+        ParsedVersion from = comparison.getBound();
+        int segments = from.getSegmentCount();
+
+        // Equality is not contiguous in version order, as fixedRangeEquals skips wildcards in any segment
+        if(operator == VersionRangeNode.Operator.EQUAL || operator == VersionRangeNode.Operator.NOT_EQUAL) return null;
+
+        boolean isTilde3 = operator == VersionRangeNode.Operator.TILDE && segments == 3;
+
+        if(!isTilde3 && from.isWildcard(segments - 1)){
+            return VersionInterval.forSegmentCounts(VersionInterval.all(), segments);
+        }
+
+        VersionInterval interval = switch (operator){
+            case GREATER -> VersionInterval.aboveNumbers(from, segments, false);
+            case LESS -> VersionInterval.belowNumbers(from, segments, false);
+            // Ranges including their bound use fixedRangeEquals, which skips wildcards in any segment
+            case GREATER_EQUAL -> from.hasWildcard(segments) ? null : VersionInterval.aboveNumbers(from, segments, true);
+            case LESS_EQUAL -> from.hasWildcard(segments) ? null : VersionInterval.belowNumbers(from, segments, true);
+            case TILDE, CARET -> {
+                if(segments == 1) yield operator == VersionRangeNode.Operator.TILDE ? VersionInterval.all() : VersionInterval.aboveNumbers(from, 1, true);
+                if(isTilde3) yield from.isWildcard(2) ? null :
+                        VersionInterval.aboveNumbers(from, 3, true).intersect(VersionInterval.belowNumbers(from, 2, true));
+                yield VersionInterval.aboveNumbers(from, segments, true).intersect(VersionInterval.belowNumbers(from, 1, true));
+            }
+            default -> null;
+        };
+
+        return interval == null ? null : VersionInterval.forSegmentCounts(interval, segments);
+    }
+
+    /**
+     * Parses a union of comparator sets, e.g. ">=1.0.0<2.0.0||^3.0.0". The union has one member per part separated by
+     * "||", each being the intersection of its comparators.
+     * @param spec Normalized range specification
+     * @param comparatorParser Parses a single comparator, or a part without any comparators
+     * @return Parsed range
+     */
+    protected static VersionRangeNode parseComparatorSets(String spec, Function<String, VersionRangeNode> comparatorParser) {
+        List<VersionRangeNode> comparatorSets = new ArrayList<>();
+
+        for(String comparatorSet : splitAtLiteral(spec, "||")){
+            int workspaceIndex = comparatorSet.indexOf("workspace:");
+            if(workspaceIndex >= 0) comparatorSet = comparatorSet.substring(workspaceIndex + "workspace:".length());
+
+            List<VersionRangeNode> comparators = new ArrayList<>();
+            for(String comparator : splitComparators(comparatorSet)){
+                comparators.add(comparatorParser.apply(comparator));
+            }
+
+            comparatorSets.add(comparators.isEmpty() ? comparatorParser.apply(comparatorSet) : VersionRangeNode.allOf(comparators));
+        }
+
+        return VersionRangeNode.anyOf(comparatorSets);
+    }
+
+    /**
+     * Splits a set of comparators into single comparators. Comparators are separated by commas, or start with an
+     * operator directly following the version of the previous comparator (spaces have been removed), e.g.
+     * ">=1.0.0<2.0.0" or ">=1.0,!=1.5". Empty comparators are dropped.
+     * @param comparatorSet Normalized set of comparators
+     * @return List of comparators
+     */
+    protected static List<String> splitComparators(String comparatorSet) {
+        List<String> comparators = new ArrayList<>();
+        int start = 0;
+
+        for(int i = 0; i < comparatorSet.length(); i++){
+            char c = comparatorSet.charAt(i);
+
+            if(c == ','){
+                if(i > start) comparators.add(comparatorSet.substring(start, i));
+                start = i + 1;
+            } else if(i > start && OPERATOR_CHARS.indexOf(c) >= 0 && OPERATOR_CHARS.indexOf(comparatorSet.charAt(i - 1)) < 0){
+                comparators.add(comparatorSet.substring(start, i));
+                start = i;
+            }
+        }
+
+        if(start < comparatorSet.length()) comparators.add(comparatorSet.substring(start));
+
+        return comparators;
+    }
+
+    /**
+     * Finds the longest operator the given comparator starts with.
+     * @param comparator Single comparator
+     * @return Operator, empty if the comparator does not start with an operator
+     */
+    protected static String operatorOf(String comparator) {
+        for(String operator : operators){
+            if(comparator.startsWith(operator)) return operator;
+        }
+
+        return "";
+    }
+
+    /**
+     * Maps an operator that bounds a range, e.g. ">=" or "^", to the operator of the range node.
+     * @param operator Operator as returned by operatorOf
+     * @return Operator of the range node, or null if the operator does not bound a range
+     */
+    protected static VersionRangeNode.Operator toBoundOperator(String operator) {
+        return boundOperators.get(operator);
+    }
+
+    /**
+     * Checks whether the given bound version has a number of segments ranges are distinguished for (one to three).
+     * @param version Bound version
+     * @return True if the version can be used as bound
+     */
+    protected static boolean isBoundSegmentCount(String version) {
+        int segments = ParsedVersion.of(version).getSegmentCount();
+        return segments >= 1 && segments <= 3;
+    }
+}
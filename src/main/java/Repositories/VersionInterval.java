@@ -0,0 +1,372 @@
+package Repositories;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A contiguous interval of versions with respect to the version order of a VersionRangeResolver. Intervals are defined by
+ * two bound predicates instead of concrete bound versions, so that resolvers can express their exact containment
+ * semantics (e.g. exclusive bounds ignoring qualifiers for NuGet). Both predicates have to be monotone with respect to the
+ * resolver's version order:
+ *  - The lower bound predicate is false for all versions below the interval, and true for all others.
+ *  - The upper bound predicate is true for all versions up to the end of the interval, and false for all others.
+ * A null predicate means the interval is unbounded in that direction.
+ *
+ * Intervals of the SEGMENT_NUMBER_ORDER that only compare segment numbers additionally carry their bounds as packed
+ * keys (see packKeys). This allows to locate them in the versions of a package by comparing primitive keys instead of
+ * evaluating the bound predicates.
+ */
+public class VersionInterval {
+
+    // Packed keys: Segment class in the top bits, followed by the first three segment numbers (+1, so that -1 fits)
+    private static final int[] NUMBER_KEY_BITS = { 26, 17, 17 };
+    private static final int SEGMENT_CLASS_SHIFT = 60;
+    private static final long NUMBER_KEY_MASK = (1L << SEGMENT_CLASS_SHIFT) - 1;
+
+    // Key bounds are either not available, relative to any segment class (numbers only), or restricted to one class
+    private static final int KEYS_NONE = 0;
+    private static final int KEYS_NUMBERS = 1;
+    private static final int KEYS_RESTRICTED = 2;
+
+    private static final VersionInterval ALL = new VersionInterval(null, null, KEYS_NUMBERS, 0, NUMBER_KEY_MASK, 0);
+
+    /**
+     * Number of leading segments distinguished by the segment number order.
+     */
+    public static final int ORDERED_SEGMENTS = 3;
+
+    private static final ToIntFunction<ParsedVersion> segmentClass = v -> Math.min(v.getSegmentCount(), ORDERED_SEGMENTS);
+
+    /**
+     * Version order for resolvers that compare the lenient numbers of up to three segments. Versions are partitioned by
+     * their number of segments (1, 2, 3 or more) first, and sorted by their segment numbers within each partition.
+     */
+    public static final Comparator<ParsedVersion> SEGMENT_NUMBER_ORDER = (a, b) -> {
+        int classA = segmentClass.applyAsInt(a);
+        int classB = segmentClass.applyAsInt(b);
+
+        if(classA != classB) return Integer.compare(classA, classB);
+
+        return a.compareNumbers(b, classA);
+    };
+
+    private final Predicate<ParsedVersion> lowerBound;
+    private final Predicate<ParsedVersion> upperBound;
+
+    private final int keyState;
+    private final long lowerKey;
+    private final long upperKey;
+    private final int keySegments;
+
+    private VersionInterval(Predicate<ParsedVersion> lowerBound, Predicate<ParsedVersion> upperBound) {
+        this(lowerBound, upperBound, KEYS_NONE, 0, 0, 0);
+    }
+
+    private VersionInterval(Predicate<ParsedVersion> lowerBound, Predicate<ParsedVersion> upperBound, int keyState,
+                            long lowerKey, long upperKey, int keySegments) {
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.keyState = keyState;
+        this.lowerKey = lowerKey;
+        this.upperKey = upperKey;
+        this.keySegments = keySegments;
+    }
+
+    /**
+     * Creates an interval containing all versions.
+     * @return Unbounded interval
+     */
+    public static VersionInterval all() { return ALL; }
+
+    /**
+     * Creates an interval that is only bounded below.
+     * @param lowerBound Lower bound predicate, true for all versions at or above the lower bound
+     * @return Interval
+     */
+    public static VersionInterval atLeast(Predicate<ParsedVersion> lowerBound) {
+        return new VersionInterval(lowerBound, null);
+    }
+
+    /**
+     * Creates an interval that is only bounded above.
+     * @param upperBound Upper bound predicate, true for all versions at or below the upper bound
+     * @return Interval
+     */
+    public static VersionInterval atMost(Predicate<ParsedVersion> upperBound) {
+        return new VersionInterval(null, upperBound);
+    }
+
+    /**
+     * Creates an interval that is bounded in both directions.
+     * @param lowerBound Lower bound predicate, true for all versions at or above the lower bound
+     * @param upperBound Upper bound predicate, true for all versions at or below the upper bound
+     * @return Interval
+     */
+    public static VersionInterval between(Predicate<ParsedVersion> lowerBound, Predicate<ParsedVersion> upperBound) {
+        return new VersionInterval(lowerBound, upperBound);
+    }
+
+    /**
+     * Creates an interval of all versions whose first count segment numbers are lexicographically greater than (or equal
+     * to) those of the given bound. Only valid for version orders that sort by segment numbers first.
+     * @param bound Bound version
+     * @param count Number of segments to compare
+     * @param inclusive Whether versions with equal segment numbers are contained
+     * @return Interval
+     */
+    public static VersionInterval aboveNumbers(ParsedVersion bound, int count, boolean inclusive) {
+        Predicate<ParsedVersion> lowerBound = inclusive ?
+                v -> v.compareNumbers(bound, count) >= 0 :
+                v -> v.compareNumbers(bound, count) > 0;
+
+        long key = inclusive ? numberKey(bound, count, false) : numberKey(bound, count, true);
+
+        if(key < 0) return atLeast(lowerBound);
+
+        return new VersionInterval(lowerBound, null, KEYS_NUMBERS, inclusive ? key : key + 1, NUMBER_KEY_MASK, count);
+    }
+
+    /**
+     * Creates an interval of all versions whose first count segment numbers are lexicographically lower than (or equal
+     * to) those of the given bound. Only valid for version orders that sort by segment numbers first.
+     * @param bound Bound version
+     * @param count Number of segments to compare
+     * @param inclusive Whether versions with equal segment numbers are contained
+     * @return Interval
+     */
+    public static VersionInterval belowNumbers(ParsedVersion bound, int count, boolean inclusive) {
+        Predicate<ParsedVersion> upperBound = inclusive ?
+                v -> v.compareNumbers(bound, count) <= 0 :
+                v -> v.compareNumbers(bound, count) < 0;
+
+        long key = inclusive ? numberKey(bound, count, true) : numberKey(bound, count, false);
+
+        if(key < 0) return atMost(upperBound);
+
+        return new VersionInterval(null, upperBound, KEYS_NUMBERS, 0, inclusive ? key : key - 1, count);
+    }
+
+    /**
+     * For the SEGMENT_NUMBER_ORDER, creates one interval per segment partition that has at least minSegments segments.
+     * The given interval may only compare the numbers of the first minSegments segments.
+     * @param interval Interval to apply to each partition
+     * @param minSegments Minimum number of segments a version needs to be contained
+     * @return List of intervals, one per partition
+     */
+    public static List<VersionInterval> forSegmentCounts(VersionInterval interval, int minSegments) {
+        List<VersionInterval> intervals = new ArrayList<>(ORDERED_SEGMENTS);
+
+        for(int segmentCount = Math.max(minSegments, 1); segmentCount <= ORDERED_SEGMENTS; segmentCount++){
+            VersionInterval restricted = interval.restrictTo(segmentClass, segmentCount);
+
+            // Keys of a segment class only compare the numbers of that many segments
+            if(interval.keyState == KEYS_NUMBERS && interval.keySegments <= segmentCount){
+                long classKey = (long) segmentCount << SEGMENT_CLASS_SHIFT;
+                restricted = new VersionInterval(restricted.lowerBound, restricted.upperBound, KEYS_RESTRICTED,
+                        classKey + interval.lowerKey, classKey + interval.upperKey, interval.keySegments);
+            }
+
+            intervals.add(restricted);
+        }
+
+        return intervals;
+    }
+
+    /**
+     * Intersects two unions of intervals of the same version order.
+     * @param intervalsOne First list of intervals
+     * @param intervalsTwo Second list of intervals
+     * @return List of intervals containing exactly the versions contained in both unions
+     */
+    public static List<VersionInterval> intersect(List<VersionInterval> intervalsOne, List<VersionInterval> intervalsTwo) {
+        List<VersionInterval> intervals = new ArrayList<>(intervalsOne.size() * intervalsTwo.size());
+
+        for(VersionInterval intervalOne : intervalsOne){
+            for(VersionInterval intervalTwo : intervalsTwo){
+                intervals.add(intervalOne.intersect(intervalTwo));
+            }
+        }
+
+        return intervals;
+    }
+
+    /**
+     * Restricts this interval to a single partition of a version order that sorts by partition first.
+     * @param partition Function assigning each version its partition
+     * @param partitionIndex Partition to restrict to
+     * @return Interval containing only versions of this interval that are in the given partition
+     */
+    public VersionInterval restrictTo(ToIntFunction<ParsedVersion> partition, int partitionIndex) {
+        Predicate<ParsedVersion> lower = this.lowerBound;
+        Predicate<ParsedVersion> upper = this.upperBound;
+
+        return new VersionInterval(
+                v -> {
+                    int p = partition.applyAsInt(v);
+                    return p > partitionIndex || (p == partitionIndex && (lower == null || lower.test(v)));
+                },
+                v -> {
+                    int p = partition.applyAsInt(v);
+                    return p < partitionIndex || (p == partitionIndex && (upper == null || upper.test(v)));
+                });
+    }
+
+    /**
+     * Intersects this interval with another interval of the same version order.
+     * @param other Interval to intersect with
+     * @return Interval containing only versions contained in both intervals
+     */
+    public VersionInterval intersect(VersionInterval other) {
+        Predicate<ParsedVersion> lower = and(this.lowerBound, other.lowerBound);
+        Predicate<ParsedVersion> upper = and(this.upperBound, other.upperBound);
+
+        if(this.keyState == KEYS_NONE || this.keyState != other.keyState) return new VersionInterval(lower, upper);
+
+        return new VersionInterval(lower, upper, keyState, Math.max(this.lowerKey, other.lowerKey),
+                Math.min(this.upperKey, other.upperKey), Math.max(this.keySegments, other.keySegments));
+    }
+
+    /**
+     * Checks whether the bounds of this interval are available as packed keys, i.e. whether it can be located using
+     * firstIndexIn(long[]) and endIndexIn(long[]). This is the case for intervals of a single segment class of the
+     * SEGMENT_NUMBER_ORDER whose bounds only compare segment numbers.
+     * @return True if packed key bounds are available
+     */
+    public boolean hasPackedKeys() { return keyState == KEYS_RESTRICTED; }
+
+    /**
+     * Packs versions sorted by the SEGMENT_NUMBER_ORDER into keys whose numeric order is that version order: The segment
+     * class is followed by the numbers of the segments compared within that class.
+     * @param sortedVersions Versions sorted by the SEGMENT_NUMBER_ORDER
+     * @return Packed keys, or null if any version has segment numbers that do not fit
+     */
+    public static long[] packKeys(ParsedVersion[] sortedVersions) {
+        long[] keys = new long[sortedVersions.length];
+
+        for(int i = 0; i < sortedVersions.length; i++){
+            int segments = segmentClass.applyAsInt(sortedVersions[i]);
+            long key = numberKey(sortedVersions[i], segments, false);
+
+            if(key < 0) return null;
+
+            keys[i] = ((long) segments << SEGMENT_CLASS_SHIFT) | key;
+        }
+
+        return keys;
+    }
+
+    /**
+     * Finds the index of the first version in the given sorted array that is contained in this interval.
+     * @param sortedVersions Versions sorted by the resolver's version order
+     * @return Index of the first contained version, or sortedVersions.length if there is none
+     */
+    public int firstIndexIn(ParsedVersion[] sortedVersions) {
+        if(lowerBound == null) return 0;
+
+        return binarySearch(sortedVersions, lowerBound, true);
+    }
+
+    /**
+     * Finds the index after the last version in the given sorted array that is contained in this interval.
+     * @param sortedVersions Versions sorted by the resolver's version order
+     * @return Exclusive end index of the contained versions
+     */
+    public int endIndexIn(ParsedVersion[] sortedVersions) {
+        if(upperBound == null) return sortedVersions.length;
+
+        return binarySearch(sortedVersions, upperBound, false);
+    }
+
+    /**
+     * Finds the index of the first version contained in this interval, using packed keys. Only valid if this interval
+     * has packed keys.
+     * @param sortedKeys Keys of versions sorted by the SEGMENT_NUMBER_ORDER, as returned by packKeys
+     * @return Index of the first contained version, or sortedKeys.length if there is none
+     */
+    public int firstIndexIn(long[] sortedKeys) {
+        if(lowerBound == null) return 0;
+
+        return binarySearch(sortedKeys, lowerKey);
+    }
+
+    /**
+     * Finds the index after the last version contained in this interval, using packed keys. Only valid if this interval
+     * has packed keys.
+     * @param sortedKeys Keys of versions sorted by the SEGMENT_NUMBER_ORDER, as returned by packKeys
+     * @return Exclusive end index of the contained versions
+     */
+    public int endIndexIn(long[] sortedKeys) {
+        if(upperBound == null) return sortedKeys.length;
+
+        return binarySearch(sortedKeys, upperKey + 1);
+    }
+
+    /**
+     * Packs the numbers of the first count segments of the given version, the remaining key fields are filled with
+     * their minimum or maximum value.
+     * @return Key of the numbers, or -1 if they do not fit into the key fields
+     */
+    private static long numberKey(ParsedVersion version, int count, boolean fillMaximum) {
+        if(count > version.getSegmentCount() || count > ORDERED_SEGMENTS) return -1;
+
+        long key = 0;
+
+        for(int i = 0; i < ORDERED_SEGMENTS; i++){
+            // Maximum field value is reserved for filling, so that numbers compare strictly below it
+            long fieldMaximum = (1L << NUMBER_KEY_BITS[i]) - 1;
+            long field = fillMaximum ? fieldMaximum : 0;
+
+            if(i < count){
+                field = (long) version.getNumber(i) + 1;
+                if(field < 0 || field >= fieldMaximum) return -1;
+            }
+
+            key = (key << NUMBER_KEY_BITS[i]) | field;
+        }
+
+        return key;
+    }
+
+    /**
+     * Finds the first index of a key greater than or equal to the given key.
+     */
+    private static int binarySearch(long[] sortedKeys, long key) {
+        int low = 0;
+        int high = sortedKeys.length;
+
+        while(low < high){
+            int mid = (low + high) >>> 1;
+
+            if(sortedKeys[mid] >= key) high = mid;
+            else low = mid + 1;
+        }
+
+        return low;
+    }
+
+    /**
+     * Finds the first index at which the given monotone predicate evaluates to the given target value.
+     */
+    private static int binarySearch(ParsedVersion[] sortedVersions, Predicate<ParsedVersion> predicate, boolean target) {
+        int low = 0;
+        int high = sortedVersions.length;
+
+        while(low < high){
+            int mid = (low + high) >>> 1;
+
+            if(predicate.test(sortedVersions[mid]) == target) high = mid;
+            else low = mid + 1;
+        }
+
+        return low;
+    }
+
+    private static Predicate<ParsedVersion> and(Predicate<ParsedVersion> a, Predicate<ParsedVersion> b) {
+        if(a == null) return b;
+        if(b == null) return a;
+        return a.and(b);
+    }
+}
@@ -0,0 +1,217 @@
+package Repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Parsed version range specification. A range is a tree of n-ary unions (e.g. npm "a || b || c", Maven "[1,2),[3,4)")
+ * and intersections (e.g. npm ">=1.0.0 <2.0.0", PyPi ">=1.0, !=1.5") whose leaves compare the target version with a
+ * single bound version. The meaning of the comparisons is defined by the resolver that evaluates the tree, the tree
+ * only fixes how the results of its leaves are combined.
+ */
+public abstract class VersionRangeNode {
+
+    private static final VersionRangeNode ALL = new All();
+
+    /**
+     * Comparison operators of range leaves.
+     */
+    public enum Operator {
+        EQUAL(""),
+        NOT_EQUAL("!="),
+        GREATER(">"),
+        GREATER_EQUAL(">="),
+        LESS("<"),
+        LESS_EQUAL("<="),
+        CARET("^"),
+        TILDE("~");
+
+        private final String symbol;
+
+        Operator(String symbol) { this.symbol = symbol; }
+
+        /**
+         * Retrieves the npm-style symbol of this operator, as used by toString.
+         * @return Symbol, empty for EQUAL
+         */
+        public String getSymbol() { return symbol; }
+    }
+
+    /**
+     * Retrieves the range containing all versions.
+     * @return Range node
+     */
+    public static VersionRangeNode all() { return ALL; }
+
+    /**
+     * Creates a leaf comparing the target version with the given bound version.
+     * @param operator Comparison operator
+     * @param version Bound version
+     * @return Range node
+     */
+    public static VersionRangeNode compare(Operator operator, String version) {
+        return new Comparison(operator, version);
+    }
+
+    /**
+     * Creates the union of the given ranges. A union of no ranges contains no version, a union of a single range is that
+     * range.
+     * @param ranges Ranges to unite
+     * @return Range node
+     */
+    public static VersionRangeNode anyOf(List<VersionRangeNode> ranges) {
+        return ranges.size() == 1 ? ranges.get(0) : new Union(ranges);
+    }
+
+    /**
+     * Creates the intersection of the given ranges. An intersection of a single range is that range.
+     * @param ranges Ranges to intersect, must not be empty
+     * @return Range node
+     */
+    public static VersionRangeNode allOf(List<VersionRangeNode> ranges) {
+        return ranges.size() == 1 ? ranges.get(0) : new Intersection(ranges);
+    }
+
+    /**
+     * Checks whether a version is contained in this range.
+     * @param comparisonTest Evaluates a single comparison leaf for the version
+     * @return True if the version is in range
+     */
+    public abstract boolean contains(Predicate<Comparison> comparisonTest);
+
+    /**
+     * Converts this range into a list of version intervals, a version is in range iff it is contained in any of them.
+     * @param comparisonIntervals Converts a single comparison leaf, may return null if the leaf is not contiguous
+     * @return List of intervals, or null if any of the leaves could not be converted
+     */
+    public abstract List<VersionInterval> toIntervals(Function<Comparison, List<VersionInterval>> comparisonIntervals);
+
+    /**
+     * Leaf comparing the target version with a single bound version.
+     */
+    public static final class Comparison extends VersionRangeNode {
+        private final Operator operator;
+        private final String version;
+        private final ParsedVersion bound;
+
+        private Comparison(Operator operator, String version) {
+            this.operator = operator;
+            this.version = version;
+            this.bound = ParsedVersion.of(version);
+        }
+
+        public Operator getOperator() { return operator; }
+
+        /**
+         * Retrieves the bound version as it was given in the specification.
+         * @return Version string
+         */
+        public String getVersion() { return version; }
+
+        /**
+         * Retrieves the parsed bound version.
+         * @return Parsed version
+         */
+        public ParsedVersion getBound() { return bound; }
+
+        @Override
+        public boolean contains(Predicate<Comparison> comparisonTest) {
+            return comparisonTest.test(this);
+        }
+
+        @Override
+        public List<VersionInterval> toIntervals(Function<Comparison, List<VersionInterval>> comparisonIntervals) {
+            return comparisonIntervals.apply(this);
+        }
+
+        @Override
+        public String toString() { return operator.getSymbol() + version; }
+    }
+
+    private static final class Union extends VersionRangeNode {
+        private final List<VersionRangeNode> ranges;
+
+        private Union(List<VersionRangeNode> ranges) { this.ranges = List.copyOf(ranges); }
+
+        @Override
+        public boolean contains(Predicate<Comparison> comparisonTest) {
+            for(VersionRangeNode range : ranges){
+                if(range.contains(comparisonTest)) return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public List<VersionInterval> toIntervals(Function<Comparison, List<VersionInterval>> comparisonIntervals) {
+            List<VersionInterval> intervals = new ArrayList<>();
+
+            for(VersionRangeNode range : ranges){
+                List<VersionInterval> rangeIntervals = range.toIntervals(comparisonIntervals);
+                if(rangeIntervals == null) return null;
+
+                intervals.addAll(rangeIntervals);
+            }
+
+            return intervals;
+        }
+
+        @Override
+        public String toString() {
+            return ranges.stream().map(VersionRangeNode::toString).collect(Collectors.joining(" || ", "(", ")"));
+        }
+    }
+
+    private static final class Intersection extends VersionRangeNode {
+        private final List<VersionRangeNode> ranges;
+
+        private Intersection(List<VersionRangeNode> ranges) {
+            if(ranges.isEmpty()) throw new IllegalArgumentException("Intersection of no ranges");
+            this.ranges = List.copyOf(ranges);
+        }
+
+        @Override
+        public boolean contains(Predicate<Comparison> comparisonTest) {
+            for(VersionRangeNode range : ranges){
+                if(!range.contains(comparisonTest)) return false;
+            }
+
+            return true;
+        }
+
+        @Override
+        public List<VersionInterval> toIntervals(Function<Comparison, List<VersionInterval>> comparisonIntervals) {
+            List<VersionInterval> intervals = null;
+
+            for(VersionRangeNode range : ranges){
+                List<VersionInterval> rangeIntervals = range.toIntervals(comparisonIntervals);
+                if(rangeIntervals == null) return null;
+
+                intervals = intervals == null ? rangeIntervals : VersionInterval.intersect(intervals, rangeIntervals);
+            }
+
+            return intervals;
+        }
+
+        @Override
+        public String toString() {
+            return ranges.stream().map(VersionRangeNode::toString).collect(Collectors.joining(" ", "(", ")"));
+        }
+    }
+
+    private static final class All extends VersionRangeNode {
+        @Override
+        public boolean contains(Predicate<Comparison> comparisonTest) { return true; }
+
+        @Override
+        public List<VersionInterval> toIntervals(Function<Comparison, List<VersionInterval>> comparisonIntervals) {
+            return List.of(VersionInterval.all());
+        }
+
+        @Override
+        public String toString() { return "*"; }
+    }
+}
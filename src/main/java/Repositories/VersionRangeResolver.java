@@ -3,7 +3,9 @@ package Repositories;
 import Application.ExceptionLogger;
 
 import java.util.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Abstract superclass for all version range resolver implementations. Based on a given version range specification and
@@ -14,12 +16,32 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public abstract class VersionRangeResolver<T> {
 
-    protected int totalRangeSpecsProcessed = 0;
-    protected int totalRanges = 0;
-    protected int totalFixedVersionReferences = 0;
-
-    protected final VersionRangeContainmentCache rangeContainmentCache = new VersionRangeContainmentCache();
-    protected final VersionRangeRepresentationCache<T> rangeReprCache = new VersionRangeRepresentationCache<>();
+    // Resolvers are shared between all linkage workers, so statistics and caches need to be thread-safe
+    protected final AtomicInteger totalRangeSpecsProcessed = new AtomicInteger(0);
+    protected final AtomicInteger totalRanges = new AtomicInteger(0);
+    protected final AtomicInteger totalFixedVersionReferences = new AtomicInteger(0);
+
+    // Default cache limits: 5000 range representations, containment results for 5000 * 3000 target versions. Containment
+    // results are weighted by the number of versions of the target package they cover.
+    private final BoundedConcurrentCache<ContainmentKey, BitSet> rangeContainmentCache =
+            new BoundedConcurrentCache<>(5000 * 3000, (key, matches) -> Math.max(key.targetVersions.count, 1));
+    protected final BoundedConcurrentCache<String, T> rangeReprCache = new BoundedConcurrentCache<>(5000);
+    private final BoundedConcurrentCache<String, String> canonicalSpecCache = new BoundedConcurrentCache<>(5000);
+    private final BoundedConcurrentCache<String, Optional<List<VersionInterval>>> rangeIntervalCache = new BoundedConcurrentCache<>(5000);
+
+    // Version sets are identified by a fingerprint of their content, as callers usually pass a new set (e.g. a keySet
+    // view) per call. Indices are weighted by their number of versions, 500000 target versions are indexed at most.
+    private final BoundedConcurrentCache<VersionSetKey, VersionIndex> versionIndexCache =
+            new BoundedConcurrentCache<>(500000, (key, index) -> Math.max(key.count, 1));
+    private final int minVersionsForIntervalResolution = 16;
+
+    private volatile boolean intervalResolutionEnabled = true;
+    private volatile boolean packedKeyResolutionEnabled = true;
+
+    // Number of raw specifications that have been mapped to a different canonical form, per canonical form
+    private final Map<String, LongAdder> collapsedSpecCounts = new ConcurrentHashMap<>();
+    private final LongAdder totalCollapsedSpecs = new LongAdder();
+    private final int maxCollapsedSpecCounts = 10000;
 
     /**
      * For the given dependency specification and set of target artifact versions, finds all versions addressed by the
@@ -30,43 +52,38 @@ public abstract class VersionRangeResolver<T> {
      * @return Unordered List of all target versions matching the dependency specification
      */
     public Set<String> findMatchingVersions(String versionRangeSpec, Set<String> allVersions){
-        totalRangeSpecsProcessed += 1;
+        totalRangeSpecsProcessed.incrementAndGet();
 
         // Check if versionRange contains illegal characters
         if(isValidVersionReference(versionRangeSpec)) {
 
             // Check if versionSpec is single version or range
             if (isRangeSpecification(versionRangeSpec)) {
-                totalRanges += 1;
+                totalRanges.incrementAndGet();
 
-                T preprocessedRange;
+                // Equivalent specifications share their cache entries
+                String canonicalRangeSpec = getCanonicalRangeSpec(versionRangeSpec);
 
-                if (rangeReprCache.hasEntry(versionRangeSpec)) {
-                    preprocessedRange = rangeReprCache.getEntry(versionRangeSpec);
-                } else {
-                    preprocessedRange = buildVersionRangeRepresentation(versionRangeSpec);
-                    rangeReprCache.pushEntry(versionRangeSpec, preprocessedRange);
-                }
-
-                Set<String> resultSet = new HashSet<>();
+                T preprocessedRange = rangeReprCache.get(canonicalRangeSpec);
 
-                for (String version : allVersions) {
-                    Boolean cacheEntry = rangeContainmentCache.getEntryOrElseNull(versionRangeSpec, version);
+                if (preprocessedRange == null) {
+                    preprocessedRange = rangeReprCache.putIfAbsent(canonicalRangeSpec, buildVersionRangeRepresentation(canonicalRangeSpec));
+                }
 
-                    if (cacheEntry != null) {
-                        if (cacheEntry) resultSet.add(version);
-                    } else {
-                        boolean isInRage = isVersionInRange(versionRangeSpec, preprocessedRange, version);
-                        rangeContainmentCache.pushEntry(versionRangeSpec, version, isInRage);
+                // Containment results are cached per target version set as bit set over the indexed versions
+                VersionSetKey targetKey = VersionSetKey.of(allVersions);
+                VersionIndex targetVersions = getVersionIndex(targetKey, allVersions);
+                ContainmentKey key = new ContainmentKey(canonicalRangeSpec, targetKey);
+                BitSet matches = rangeContainmentCache.get(key);
 
-                        if (isInRage) resultSet.add(version);
-                    }
+                if (matches == null) {
+                    matches = rangeContainmentCache.putIfAbsent(key, findMatches(canonicalRangeSpec, preprocessedRange, targetVersions));
                 }
 
-                return resultSet;
+                return new MatchingVersions(targetVersions, matches);
             } else {
                 // For fixed version references we just normalize the specification and lookup the version in the list
-                totalFixedVersionReferences += 1;
+                totalFixedVersionReferences.incrementAndGet();
 
                 String normalizedTargetVersion = normalizeFixedVersionReference(versionRangeSpec);
 
@@ -85,35 +102,214 @@ public abstract class VersionRangeResolver<T> {
         }
     }
 
+    /**
+     * Resolves a batch of dependencies that all point to the same target artifact. Dependencies are grouped by their
+     * version specification, so that every distinct specification is resolved only once, no matter how many source
+     * artifacts use it.
+     *
+     * @param dependencies Pairs of source artifact id and dependency version specification
+     * @param allVersions List of all versions of the target artifact
+     * @return List of edges as pairs of source artifact id and matching target version
+     */
+    public List<Map.Entry<String, String>> findMatchingVersions(Collection<Map.Entry<String, String>> dependencies, Set<String> allVersions){
+        Map<String, List<String>> sourceIdsBySpec = new LinkedHashMap<>();
+
+        for(Map.Entry<String, String> dependency : dependencies){
+            sourceIdsBySpec.computeIfAbsent(dependency.getValue(), spec -> new ArrayList<>()).add(dependency.getKey());
+        }
+
+        List<Map.Entry<String, String>> edges = new ArrayList<>();
+
+        for(Map.Entry<String, List<String>> specEntry : sourceIdsBySpec.entrySet()){
+            Set<String> matchingVersions = findMatchingVersions(specEntry.getKey(), allVersions);
+
+            if(matchingVersions.isEmpty()) continue;
+
+            for(String sourceId : specEntry.getValue()){
+                for(String version : matchingVersions){
+                    edges.add(Map.entry(sourceId, version));
+                }
+            }
+        }
+
+        return edges;
+    }
+
     /**
      * Clears the statistics and caches of this VersionRangeResolver instance.
      */
     public void clear(){
-        totalRangeSpecsProcessed = 0;
-        totalRanges = 0;
-        totalFixedVersionReferences = 0;
+        totalRangeSpecsProcessed.set(0);
+        totalRanges.set(0);
+        totalFixedVersionReferences.set(0);
 
         rangeContainmentCache.clear();
         rangeReprCache.clear();
+        rangeIntervalCache.clear();
+        canonicalSpecCache.clear();
+
+        collapsedSpecCounts.clear();
+        totalCollapsedSpecs.reset();
+
+        versionIndexCache.clear();
+    }
+
+    /**
+     * Enables or disables the interval-based resolution of version ranges. If disabled, every target version is checked
+     * for containment individually. Enabled by default.
+     * @param enabled True to enable interval-based resolution
+     */
+    public void setIntervalResolutionEnabled(boolean enabled) { this.intervalResolutionEnabled = enabled; }
+
+    /**
+     * Enables or disables locating intervals via packed numeric version keys. If disabled, or if the versions of a target
+     * package cannot be packed, interval bounds are located by evaluating their predicates. Enabled by default.
+     * @param enabled True to enable packed key resolution
+     */
+    public void setPackedKeyResolutionEnabled(boolean enabled) { this.packedKeyResolutionEnabled = enabled; }
+
+    private String getCanonicalRangeSpec(String versionRangeSpec){
+        String canonicalRangeSpec = canonicalSpecCache.get(versionRangeSpec);
+
+        if(canonicalRangeSpec == null){
+            try {
+                canonicalRangeSpec = toCanonicalRangeSpec(versionRangeSpec);
+
+                // Only use canonical forms that are stable, otherwise the representation may differ from the original one
+                if(!canonicalRangeSpec.equals(toCanonicalRangeSpec(canonicalRangeSpec))) canonicalRangeSpec = versionRangeSpec;
+            } catch (Exception ex){
+                // Specifications that cannot be canonicalized are processed as they are
+                canonicalRangeSpec = versionRangeSpec;
+            }
+
+            if(!canonicalRangeSpec.equals(versionRangeSpec)){
+                totalCollapsedSpecs.increment();
+
+                if(collapsedSpecCounts.size() < maxCollapsedSpecCounts || collapsedSpecCounts.containsKey(canonicalRangeSpec))
+                    collapsedSpecCounts.computeIfAbsent(canonicalRangeSpec, spec -> new LongAdder()).increment();
+            }
+
+            canonicalRangeSpec = canonicalSpecCache.putIfAbsent(versionRangeSpec, canonicalRangeSpec);
+        }
+
+        return canonicalRangeSpec;
+    }
+
+    private BitSet findMatches(String versionRangeSpec, T preprocessedRange, VersionIndex targetVersions){
+        BitSet matches = new BitSet(targetVersions.versions.length);
+        ParsedVersion[] orderedVersions = targetVersions.orderedVersions;
+        long[] packedKeys = packedKeyResolutionEnabled ? targetVersions.packedKeys : null;
+        int firstUnchecked = 0;
+
+        List<VersionInterval> intervals = intervalResolutionEnabled && orderedVersions.length > 0 ?
+                getIntervals(versionRangeSpec, preprocessedRange) : null;
+
+        if (intervals != null) {
+            // Every interval is a contiguous slice of the ordered versions, only unordered versions need to be checked
+            for (VersionInterval interval : intervals) {
+                int first, end;
+
+                if (packedKeys != null && interval.hasPackedKeys()) {
+                    first = interval.firstIndexIn(packedKeys);
+                    end = interval.endIndexIn(packedKeys);
+                } else {
+                    first = interval.firstIndexIn(orderedVersions);
+                    end = interval.endIndexIn(orderedVersions);
+                }
+
+                if (first < end) matches.set(first, end);
+            }
+
+            firstUnchecked = orderedVersions.length;
+        }
+
+        for (int i = firstUnchecked; i < targetVersions.versions.length; i++) {
+            if (isVersionInRange(versionRangeSpec, preprocessedRange, targetVersions.versions[i])) matches.set(i);
+        }
+
+        return matches;
+    }
+
+    private List<VersionInterval> getIntervals(String versionRangeSpec, T preprocessedRange){
+        Optional<List<VersionInterval>> intervals = rangeIntervalCache.get(versionRangeSpec);
+
+        if (intervals == null) {
+            try {
+                intervals = Optional.ofNullable(toIntervals(preprocessedRange));
+            } catch (Exception ex){
+                // Ranges that cannot be converted are resolved by checking every version
+                intervals = Optional.empty();
+            }
+            intervals = rangeIntervalCache.putIfAbsent(versionRangeSpec, intervals);
+        }
+
+        return intervals.orElse(null);
+    }
+
+    private VersionIndex getVersionIndex(VersionSetKey key, Set<String> allVersions){
+        VersionIndex index = versionIndexCache.get(key);
+
+        if(index == null){
+            Comparator<ParsedVersion> versionOrder = allVersions.size() >= minVersionsForIntervalResolution ? getVersionOrder() : null;
+            index = versionIndexCache.putIfAbsent(key, new VersionIndex(allVersions, versionOrder));
+        }
+
+        return index;
     }
 
     /**
      * Gets the number of total dependency specifications processed by this instance.
      * @return Count of specifications processed
      */
-    public int getTotalSpecsProcessed() { return totalRangeSpecsProcessed; }
+    public int getTotalSpecsProcessed() { return totalRangeSpecsProcessed.get(); }
 
     /**
      * Gets the number of dependency specifications that have been identified to be actual version ranges.
      * @return Count of version ranges processed
      */
-    public int getRangesProcessed() { return totalRanges; }
+    public int getRangesProcessed() { return totalRanges.get(); }
 
     /**
      * Gets the number of dependency specifications that have been identifier to be fixed version references.
      * @return Count of fixed version references processed
      */
-    public int getFixedVersionsProcessed() { return totalFixedVersionReferences; }
+    public int getFixedVersionsProcessed() { return totalFixedVersionReferences.get(); }
+
+    /**
+     * Gets the number of range specifications that have been mapped to a different canonical form, i.e. that share the
+     * cache entries of an equivalent specification. Specifications are counted when they are first seen.
+     * @return Count of collapsed specifications
+     */
+    public long getCollapsedSpecsProcessed() { return totalCollapsedSpecs.sum(); }
+
+    /**
+     * Gets the number of raw range specifications that have been collapsed into each canonical form. Only canonical forms
+     * with at least one collapsed specification are contained, the number of tracked forms is limited.
+     * @return Map of canonical forms to the number of different specifications mapped to them
+     */
+    public Map<String, Long> getCollapsedSpecCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        collapsedSpecCounts.forEach((spec, count) -> counts.put(spec, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Gets the statistics of the cache for preprocessed range representations.
+     * @return Snapshot of the cache statistics
+     */
+    public BoundedConcurrentCache.CacheStatistics getRepresentationCacheStatistics() { return rangeReprCache.getStatistics(); }
+
+    /**
+     * Gets the statistics of the cache for version interval conversions of ranges.
+     * @return Snapshot of the cache statistics
+     */
+    public BoundedConcurrentCache.CacheStatistics getIntervalCacheStatistics() { return rangeIntervalCache.getStatistics(); }
+
+    /**
+     * Gets the statistics of the cache for containment results per range specification and target package.
+     * @return Snapshot of the cache statistics
+     */
+    public BoundedConcurrentCache.CacheStatistics getContainmentCacheStatistics() { return rangeContainmentCache.getStatistics(); }
 
     /**
      * Checks whether the given dependency specification is a range specification or not.
@@ -149,6 +345,40 @@ public abstract class VersionRangeResolver<T> {
      */
     protected abstract T buildVersionRangeRepresentation(String versionRangeSpec);
 
+    /**
+     * Maps the given range specification to its canonical form, such that equivalent specifications (e.g. differing in
+     * whitespace or quotes) share one cache entry. The intermediate representation built for the canonical form must be
+     * identical to the one built for the original specification. By default, specifications are used as they are.
+     * @param versionRangeSpec Range specification, not a fixed version reference
+     * @return Canonical form of the specification
+     */
+    protected String toCanonicalRangeSpec(String versionRangeSpec) { return versionRangeSpec; }
+
+    /**
+     * Converts an intermediate range representation into a list of version intervals with respect to the version order
+     * returned by getVersionOrder(). A version is in range iff it is contained in any of the intervals, this must be
+     * exactly equivalent to isVersionInRange for all versions accepted by toOrderedVersion. Returning null indicates
+     * that the range cannot be expressed as intervals, in this case every version is checked individually.
+     * @param versionRangeRepresentation Intermediate, preprocessed representation of the version range
+     * @return List of intervals, or null if not supported for this range
+     */
+    protected List<VersionInterval> toIntervals(T versionRangeRepresentation) { return null; }
+
+    /**
+     * Retrieves the order in which target versions are sorted for interval-based resolution. Returning null disables
+     * interval-based resolution for this resolver.
+     * @return Comparator for versions accepted by toOrderedVersion, or null
+     */
+    protected Comparator<ParsedVersion> getVersionOrder() { return null; }
+
+    /**
+     * Converts a target version into the representation used for sorting. Versions for which this returns null cannot be
+     * placed in the version order, they are always checked individually using isVersionInRange.
+     * @param version Target version
+     * @return Parsed version to sort by, or null if the version cannot be ordered
+     */
+    protected ParsedVersion toOrderedVersion(String version) { return ParsedVersion.of(version); }
+
     /**
      * Checks whether the given versionRef is a valid reference. Returns true if this is the case, false otherwise
      * (e.g. when there are illegal characters contained).
@@ -171,24 +401,20 @@ public abstract class VersionRangeResolver<T> {
             if(version.length()==0){
                 return false;
             }
-            String[] versionRangeSplit = versionRange.split("[.]");
-            String[] versionSplit = version.split("[.]");
+            ParsedVersion rangeV = ParsedVersion.of(versionRange);
+            ParsedVersion versionV = ParsedVersion.of(version);
 
             /* If version range is more specific than version return false*/
-            if(versionRangeSplit.length>versionSplit.length){
+            if(rangeV.getSegmentCount()>versionV.getSegmentCount()){
                 return false;
             }
 
             /* Check for each part of the version, if version range part is equal to version part */
-            for(int i = 0; i< versionRangeSplit.length; i++){
-                try{
-                    if((!versionRangeSplit[i].equals("x")) &&
-                            (!versionSplit[i].equals(versionRangeSplit[i]))&&
-                            ((parseNumber(versionSplit[i])) !=parseNumber(versionRangeSplit[i]))){
-                        return false;
-                    }
-                } catch (NumberFormatException exception){
-                    //print("version: "+version+", versionRange: "+versionRange);
+            for(int i = 0; i< rangeV.getSegmentCount(); i++){
+                if((!rangeV.isWildcard(i)) &&
+                        (!versionV.getSegment(i).equals(rangeV.getSegment(i)))&&
+                        (versionV.getNumber(i) != rangeV.getNumber(i))){
+                    return false;
                 }
             }
         } catch (Exception ex){
@@ -197,157 +423,265 @@ public abstract class VersionRangeResolver<T> {
         return true;
     }
 
-    private static class VersionRangeRepresentationCache<E> {
-
-        private final Map<String, E> theCache = new HashMap<>();
-        private final ReentrantLock cacheLock = new ReentrantLock();
-
-        private final int maxEntries;
+    /**
+     * Index of the versions of one target package. Versions that can be placed in the resolver's version order come first,
+     * sorted by that order, followed by all versions that cannot be ordered. For the segment number order, the ordered
+     * versions are also available as packed keys if all of them fit. Containment results are stored as bit sets
+     * over these indices. Positions only depend on the content of the version set, so that an index that has been
+     * evicted and built again still fits the cached containment results.
+     */
+    private class VersionIndex {
+
+        private final String[] versions;
+        private final ParsedVersion[] orderedVersions;
+        private final long[] packedKeys;
+        private volatile Map<String, Integer> positions;
+
+        private VersionIndex(Set<String> allVersions, Comparator<ParsedVersion> versionOrder){
+            // Sorted first, so that neither the iteration order of the set nor the stable sort below depends on the caller
+            String[] sortedVersions = allVersions.toArray(new String[0]);
+            Arrays.sort(sortedVersions);
+            this.versions = new String[sortedVersions.length];
+
+            if(versionOrder == null){
+                this.orderedVersions = new ParsedVersion[0];
+                this.packedKeys = null;
+                System.arraycopy(sortedVersions, 0, versions, 0, versions.length);
+                return;
+            }
 
-        public VersionRangeRepresentationCache(){
-            this(5000);
-        }
+            List<String> rawVersions = new ArrayList<>(sortedVersions.length);
+            List<ParsedVersion> parsedVersions = new ArrayList<>(sortedVersions.length);
+            List<String> unorderedVersions = new ArrayList<>();
 
-        public VersionRangeRepresentationCache(int limit){
-            this.maxEntries = limit;
-        }
+            for(String version : sortedVersions){
+                ParsedVersion parsed = toOrderedVersion(version);
 
-        public boolean hasEntry(String range) { return theCache.containsKey(range); }
+                if(parsed == null){
+                    unorderedVersions.add(version);
+                } else {
+                    rawVersions.add(version);
+                    parsedVersions.add(parsed);
+                }
+            }
 
-        public E getEntry(String range) { return theCache.get(range); }
+            Integer[] order = new Integer[rawVersions.size()];
+            for(int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> versionOrder.compare(parsedVersions.get(a), parsedVersions.get(b)));
 
-        public void pushEntry(String range, E representation){
+            this.orderedVersions = new ParsedVersion[order.length];
 
-            cacheLock.lock();
-            try{
-                theCache.put(range, representation);
+            for(int i = 0; i < order.length; i++){
+                orderedVersions[i] = parsedVersions.get(order[i]);
+                versions[i] = rawVersions.get(order[i]);
+            }
 
-                if(theCache.size() > maxEntries){
-                    String key = theCache.keySet().stream().findAny().orElse(range);
-                    theCache.remove(key);
-                }
-            } finally {
-                cacheLock.unlock();
+            for(int i = 0; i < unorderedVersions.size(); i++){
+                versions[order.length + i] = unorderedVersions.get(i);
             }
 
+            // Packed keys are only defined for the segment number order
+            this.packedKeys = versionOrder == VersionInterval.SEGMENT_NUMBER_ORDER ? VersionInterval.packKeys(orderedVersions) : null;
         }
 
-        public void clear() {
-            cacheLock.lock();
-            try{ theCache.clear(); } finally { cacheLock.unlock(); }
+        /**
+         * Retrieves the position of the given version in this index. The lookup map is only built on first use.
+         * @param version Version to look up
+         * @return Position, or null if the version is not indexed
+         */
+        private Integer positionOf(Object version){
+            Map<String, Integer> lookup = positions;
+
+            if(lookup == null){
+                lookup = new HashMap<>(Math.max(16, (int) (versions.length / .75f) + 1));
+                for(int i = 0; i < versions.length; i++) lookup.put(versions[i], i);
+                positions = lookup;
+            }
+
+            return lookup.get(version);
         }
     }
 
     /**
-     * Simple Cache implementation
+     * Unmodifiable view of the versions of an index whose bits are set in a cached containment result, so that repeated
+     * lookups do not copy any versions.
      */
-    private static class VersionRangeContainmentCache {
-
-        static class RangeResolverCacheEntry {
-            private final Map<String, Boolean> isVersionInRangeMap = new HashMap<>();
-
-            private int totalVersionsContained() { return isVersionInRangeMap.size(); }
+    private static final class MatchingVersions extends AbstractSet<String> {
+        private final VersionRangeResolver<?>.VersionIndex index;
+        private final BitSet matches;
+        private final int size;
+
+        private MatchingVersions(VersionRangeResolver<?>.VersionIndex index, BitSet matches){
+            this.index = index;
+            this.matches = matches;
+            this.size = matches.cardinality();
         }
 
-        private final Map<String, RangeResolverCacheEntry> theCache = new HashMap<>();
-        private final ReentrantLock cacheLock = new ReentrantLock();
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next = matches.nextSetBit(0);
 
-        private final int maxTotalEntries;
-        private final int maxTotalVersions;
+                @Override
+                public boolean hasNext() { return next >= 0; }
 
-        private int totalEntryCnt = 0;
-        private int totalVersionCnt = 0;
+                @Override
+                public String next() {
+                    if(next < 0) throw new NoSuchElementException();
 
-        public VersionRangeContainmentCache(){
-            // Default cache limits
-            this(5000, 5000 * 3000);
+                    String version = index.versions[next];
+                    next = matches.nextSetBit(next + 1);
+                    return version;
+                }
+            };
         }
 
-        public VersionRangeContainmentCache(int entryLimit, int versionLimit){
-            this.maxTotalEntries = entryLimit;
-            this.maxTotalVersions = versionLimit;
+        @Override
+        public boolean contains(Object o) {
+            Integer position = index.positionOf(o);
+            return position != null && matches.get(position);
         }
 
-        public boolean hasEntry(String rangeSpec, String version){
-            return theCache.containsKey(rangeSpec) &&
-                    theCache.get(rangeSpec).isVersionInRangeMap.containsKey(version);
+        @Override
+        public int size() { return size; }
+    }
+
+    /**
+     * Identifies a set of versions by its size and two order-independent 64 bit hashes of its content. The fingerprint
+     * is computed once per lookup without holding any lock, and stays the same for every set with equal content.
+     */
+    private static final class VersionSetKey {
+        private final int count;
+        private final long firstHash;
+        private final long secondHash;
+
+        private VersionSetKey(int count, long firstHash, long secondHash){
+            this.count = count;
+            this.firstHash = firstHash;
+            this.secondHash = secondHash;
         }
 
-        public Boolean getEntryOrElseNull(String rangeSpec, String version){
-            cacheLock.lock();
+        private static VersionSetKey of(Set<String> versions){
+            long firstHash = 0, secondHash = 0;
 
-            try {
-                if(hasEntry(rangeSpec, version))
-                    return theCache.get(rangeSpec).isVersionInRangeMap.get(version);
-                else
-                    return null;
-            } finally {
-                cacheLock.unlock();
+            for(String version : versions){
+                long versionHash = hash64(version);
+                firstHash += mix64(versionHash);
+                secondHash += mix64(versionHash ^ 0x9E3779B97F4A7C15L);
             }
+
+            return new VersionSetKey(versions.size(), firstHash, secondHash);
         }
 
-        public void pushEntry(String rangeSpec, String version, boolean versionInRange){
+        // FNV-1a over all characters
+        private static long hash64(String version){
+            long hash = 0xcbf29ce484222325L;
 
-            cacheLock.lock();
-            try {
-                // Recheck: If entry has been added in the mean time, we do not need to do anything
-                if(hasEntry(rangeSpec, version)) return;
+            for(int i = 0; i < version.length(); i++){
+                hash ^= version.charAt(i);
+                hash *= 0x100000001b3L;
+            }
 
-                if(!theCache.containsKey(rangeSpec)){
-                    RangeResolverCacheEntry e = new RangeResolverCacheEntry();
-                    theCache.put(rangeSpec, e);
-                    totalEntryCnt += 1;
-                }
+            return hash;
+        }
 
-                theCache.get(rangeSpec).isVersionInRangeMap.put(version, versionInRange);
-                totalVersionCnt += 1;
+        // Finalizer of MurmurHash3
+        private static long mix64(long z){
+            z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+            z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return z ^ (z >>> 33);
+        }
 
-                checkLimits();
+        @Override
+        public int hashCode() { return Long.hashCode(firstHash); }
 
-            } finally {
-                cacheLock.unlock();
-            }
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) return true;
+            if(!(obj instanceof VersionSetKey)) return false;
+
+            VersionSetKey other = (VersionSetKey) obj;
+            return count == other.count && firstHash == other.firstHash && secondHash == other.secondHash;
         }
+    }
 
-        public void clear(){
-            cacheLock.lock();
+    /**
+     * Key of the containment cache, i.e. a pair of range specification and target version set. Version sets are
+     * identified by their fingerprint, so that results stay reachable while the index of the set is rebuilt.
+     */
+    private static final class ContainmentKey {
+        private final String rangeSpec;
+        private final VersionSetKey targetVersions;
+        private final int hash;
+
+        private ContainmentKey(String rangeSpec, VersionSetKey targetVersions){
+            this.rangeSpec = rangeSpec;
+            this.targetVersions = targetVersions;
+            this.hash = 31 * rangeSpec.hashCode() + targetVersions.hashCode();
+        }
 
-            try {
-                theCache.clear();
-                totalEntryCnt = 0;
-                totalVersionCnt = 0;
-            } finally { cacheLock.unlock(); }
+        @Override
+        public int hashCode() { return hash; }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) return true;
+            if(!(obj instanceof ContainmentKey)) return false;
+
+            ContainmentKey other = (ContainmentKey) obj;
+            return targetVersions.equals(other.targetVersions) && rangeSpec.equals(other.rangeSpec);
         }
+    }
+
+    /**
+     * Retrieves the first part of the given specification when split at the given separator. Equivalent to
+     * spec.split(separator)[0], including the exception if the specification consists of separators only, but does not
+     * involve any regular expressions.
+     * @param spec Specification to split
+     * @param separator Separator character
+     * @return Part before the first separator
+     * @throws ArrayIndexOutOfBoundsException If the specification is non-empty and consists of separators only
+     */
+    protected static String firstSplitPart(String spec, char separator){
+        int index = spec.indexOf(separator);
+
+        if(index < 0) return spec;
 
-        private void checkLimits(){
-            if(totalEntryCnt > maxTotalEntries || totalVersionCnt > maxTotalVersions){
-                removeSmallestRange();
+        if(index == 0){
+            for(int i = 1; i < spec.length(); i++){
+                if(spec.charAt(i) != separator) return "";
             }
+            throw new ArrayIndexOutOfBoundsException("Index 0 out of bounds for length 0");
         }
 
-        /**
-         * Removes the range that has the smallest number of versions associated to it. This
-         * should be an indicator for ranges that are "not as relevant" as others.
-         */
-        private void removeSmallestRange(){
-            String smallestRange = null;
-            int smallestRangeSize = Integer.MAX_VALUE;
-
-            for(String range : theCache.keySet()){
-                RangeResolverCacheEntry entry = theCache.get(range);
-                if(entry.totalVersionsContained() < smallestRangeSize){
-                    smallestRangeSize = entry.totalVersionsContained();
-                    smallestRange = range;
-                }
-            }
+        return spec.substring(0, index);
+    }
 
-            if(smallestRange != null){
-                theCache.remove(smallestRange);
-                totalEntryCnt -= 1;
-                totalVersionCnt -= smallestRangeSize;
-            }
+    /**
+     * Splits the given specification at every occurrence of the given literal separator. Equivalent to String.split for
+     * a regex matching exactly that literal, i.e. trailing empty parts are removed.
+     * @param spec Specification to split
+     * @param separator Literal separator, must not be empty
+     * @return Parts of the specification
+     */
+    protected static String[] splitAtLiteral(String spec, String separator){
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int index;
+
+        while((index = spec.indexOf(separator, start)) >= 0){
+            parts.add(spec.substring(start, index));
+            start = index + separator.length();
         }
 
+        if(start == 0) return new String[]{ spec };
+
+        parts.add(spec.substring(start));
+
+        int size = parts.size();
+        while(size > 0 && parts.get(size - 1).isEmpty()) size--;
+
+        return parts.subList(0, size).toArray(new String[0]);
     }
 
     /*** Help function to parse String into integer with handling of exceptions
@@ -355,14 +689,6 @@ public abstract class VersionRangeResolver<T> {
      * @return parsed Integer, returns -1 if param doesn't contain a number
      */
     protected int parseNumber(String a){
-        try{
-            int maxsize = 12;
-            if(a.length()>maxsize)
-                a = a.substring(0,maxsize-1);
-            return Integer.parseInt(a.replaceAll("\\D", ""));
-        } catch (NumberFormatException exception){
-            //Logger.add(exception,this.getClass().getName());
-            return -1;
-        }
+        return ParsedVersion.parseLenientNumber(a);
     }
 }
@@ -0,0 +1,154 @@
+package Utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongSupplier;
+
+/**
+ * Limiter for the number of concurrent operations of a pipeline stage that adapts its limit after every window of
+ * completed operations. The limit is halved if overload signals were recorded during the window. Otherwise, the average
+ * latency of the window is compared with a baseline, the exponentially weighted moving average (EWMA) of the latencies
+ * of earlier healthy windows: The limit grows by one while the window latency stays within a tolerance of the baseline,
+ * and shrinks by the gradient baseline / latency, but at most by half, once it rises above. Operations beyond the limit
+ * wait without blocking a thread.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final double BACKOFF_FACTOR = 0.5;
+    private static final double LATENCY_TOLERANCE = 1.5;
+    private static final long LATENCY_SLACK_MILLIS = 100;
+    private static final double BASELINE_SMOOTHING = 0.1;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier overloadSignal;
+
+    private int limit;
+    private int inFlight = 0;
+    private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+    private long lastOverloadCount;
+    private int windowCompletions = 0;
+    private long windowLatencyMillis = 0;
+    private double baselineLatencyMillis = -1;
+
+    /**
+     * Creates a new limiter.
+     * @param name Name of the limited stage, used in log output
+     * @param initialLimit Limit to start with
+     * @param minLimit Lowest limit
+     * @param maxLimit Highest limit
+     * @param overloadSignal Supplier of a monotonically increasing count of overload signals, e.g. rate limited requests
+     */
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit, LongSupplier overloadSignal){
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.overloadSignal = overloadSignal;
+        this.lastOverloadCount = overloadSignal.getAsLong();
+    }
+
+    /**
+     * Acquires a permit for one operation. The returned stage completes once the number of operations in flight is
+     * below the current limit.
+     * @return Stage that completes when the operation may start
+     */
+    public CompletionStage<Void> acquire(){
+        synchronized (this) {
+            if(inFlight < limit){
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            return permit;
+        }
+    }
+
+    /**
+     * Releases the permit of a completed operation and adapts the limit once a window of operations has completed.
+     * @param latencyMillis Time in milliseconds the operation took
+     */
+    public void release(long latencyMillis){
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+
+        synchronized (this) {
+            inFlight--;
+            windowCompletions++;
+            windowLatencyMillis += latencyMillis;
+
+            if(windowCompletions >= limit) adapt();
+
+            while(inFlight < limit && !waiting.isEmpty()){
+                inFlight++;
+                granted.add(waiting.poll());
+            }
+        }
+
+        // Waiting operations continue outside of the lock
+        for(CompletableFuture<Void> permit : granted) permit.complete(null);
+    }
+
+    /**
+     * Gets the current limit.
+     * @return Maximum number of operations in flight
+     */
+    public synchronized int getLimit() { return limit; }
+
+    /**
+     * Gets a short status of this limiter for console output.
+     * @return Status with limit and operations in flight
+     */
+    public synchronized String getStatus(){
+        return name + " limit " + limit + " (" + inFlight + " in flight, " + waiting.size() + " waiting)";
+    }
+
+    private void adapt(){
+        double averageLatency = (double) windowLatencyMillis / windowCompletions;
+        long overloadCount = overloadSignal.getAsLong();
+        long overloads = overloadCount - lastOverloadCount;
+
+        lastOverloadCount = overloadCount;
+        windowCompletions = 0;
+        windowLatencyMillis = 0;
+
+        if(baselineLatencyMillis < 0) baselineLatencyMillis = averageLatency;
+
+        // Below 1 once the window latency exceeds the tolerated baseline, never below the backoff factor
+        double gradient = Math.max(BACKOFF_FACTOR, Math.min(1.0,
+                (baselineLatencyMillis * LATENCY_TOLERANCE + LATENCY_SLACK_MILLIS) / Math.max(1.0, averageLatency)));
+
+        int previousLimit = limit;
+
+        if(overloads > 0){
+            limit = Math.max(minLimit, (int) (limit * BACKOFF_FACTOR));
+        } else if(gradient < 1.0){
+            limit = Math.max(minLimit, (int) (limit * gradient));
+        } else if(limit < maxLimit){
+            limit++;
+        }
+
+        // Windows with overload signals are not representative, lasting latency changes move the baseline gradually
+        if(overloads == 0) baselineLatencyMillis += (averageLatency - baselineLatencyMillis) * BASELINE_SMOOTHING;
+
+        if(limit < previousLimit){
+            logger.info(name + ": concurrency limit reduced from " + previousLimit + " to " + limit + " (" + overloads +
+                    " overload signals, average latency " + Math.round(averageLatency) + " ms, baseline " +
+                    Math.round(baselineLatencyMillis) + " ms)");
+        } else if(limit > previousLimit){
+            logger.debug(name + ": concurrency limit raised to " + limit);
+        }
+    }
+}
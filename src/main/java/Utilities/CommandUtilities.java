@@ -62,7 +62,11 @@ public final class CommandUtilities {
     public static boolean checkProp(String key, String value){
         try{
             switch (key) {
-                case "dgm.limit", "dgm.offset", "dgm.parallel" -> {
+                case "dgm.limit", "dgm.offset", "dgm.parallel", "dgm.write-batch-size", "dgm.write-batch-delay",
+                     "dgm.max-rows-per-statement", "dgm.csv-shard-size", "dgm.collision-buffer-size",
+                     "dgm.writer-lanes", "dgm.storage-parallel", "dgm.mine-threads", "dgm.parse-threads",
+                     "dgm.storage-threads", "dgm.write-continuation-threads", "dgm.linkage-threads", "dgm.max-parallel", "dgm.http-cache-size",
+                     "dgm.maven.pom-parallel", "dgm.maven.pom-requests" -> {
                     int check = Integer.parseInt(value);
                     if (check >= 0) {
                         return true;
@@ -77,6 +81,13 @@ public final class CommandUtilities {
                     logger.warn("Wrong configuration input, " + configHelpString);
                     return false;
                 }
+                case "dgm.output" -> {
+                    if (value.equals("neo4j") || value.equals("csv") || value.equals("memory") || value.equals("discard")) {
+                        return true;
+                    }
+                    logger.warn("Wrong configuration input, " + configHelpString);
+                    return false;
+                }
                 case "dgm.repo" -> {
                     if (Arrays.asList(RepositoryController.repositoryList).contains(value)) {
                         return true;
@@ -87,12 +98,16 @@ public final class CommandUtilities {
                 case "dgm.databaseaddress", "dgm.databaseusername", "dgm.databasepassword" ->{
                     return true;
                 }
-                case "dgm.import-ids", "dgm.npm.use-github-ids", "dgm.drop-http-errors", "dgm.interactive-shell" -> {
+                case "dgm.import-ids", "dgm.npm.use-github-ids", "dgm.npm.streaming", "dgm.npm.abbreviated",
+                     "dgm.drop-http-errors", "dgm.interactive-shell",
+                     "dgm.csv-compress", "dgm.preseed-packages", "dgm.adaptive-parallel", "dgm.http-cache",
+                     "dgm.maven.index-mirror" -> {
                     if(value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) return true;
                     logger.warn("Invalid value for '" + key + "', boolean values expected. Supported: 'true', 'false'");
                     return false;
                 }
-                case "dgm.id-file", "dgm.npm.commit-qualifier" -> {
+                case "dgm.id-file", "dgm.npm.commit-qualifier", "dgm.csv-directory", "dgm.http-cache-directory",
+                     "dgm.maven.index-directory" -> {
                     return !value.isBlank();
                 }
                 default -> {
@@ -121,5 +136,26 @@ public final class CommandUtilities {
             "\n            aa: artefact -[dependency]-> artefact" +
             "\n - databaseAddress <String> (Address for Neo4j Database)" +
             "\n - databaseUsername <String> (Username for Neo4j Database)" +
-            "\n - databasePassword <String> (Password for Neo4j Database)";
+            "\n - databasePassword <String> (Password for Neo4j Database)" +
+            "\n - write-batch-size <Integer> (maximum number of packages per write transaction, 0 disables batching)" +
+            "\n - write-batch-delay <Integer> (maximum milliseconds a package waits in a write batch)" +
+            "\n - max-rows-per-statement <Integer> (maximum number of dependency rows per write statement, 0 for no limit)" +
+            "\n - adaptive-parallel <true, false> (adapts the number of packages mined concurrently to latency, rate limiting and database collisions)" +
+            "\n - max-parallel <Integer> (upper bound for adaptive parallelism, defaults to four times parallel)" +
+            "\n - mine-threads <Integer> (number of threads mining package metadata via HTTP, defaults to parallel)" +
+            "\n - parse-threads <Integer> (number of threads parsing package metadata, defaults to the number of processors)" +
+            "\n - storage-threads <Integer> (number of threads storing packages for sinks without asynchronous writes and for updates, defaults to parallel)" +
+            "\n - write-continuation-threads <Integer> (number of threads handing asynchronously written packages to the writer lanes, defaults to parallel)" +
+            "\n - linkage-threads <Integer> (number of threads resolving Artifact-to-Artifact edges, defaults to half of parallel)" +
+            "\n - storage-parallel <Integer> (maximum number of packages stored concurrently, defaults to parallel)" +
+            "\n - writer-lanes <Integer> (number of threads writing dependency edges, each responsible for a share of target packages, 0 disables lanes)" +
+            "\n - collision-buffer-size <Integer> (maximum number of collided write requests kept in memory before spilling to disk)" +
+            "\n - preseed-packages <true, false> (creates all package nodes before mining, so that dependency edges to them do not need to merge their targets, unused ones are deleted afterwards)" +
+            "\n - http-cache <true, false> (caches HTTP responses on disk and revalidates them instead of downloading them again)" +
+            "\n - http-cache-directory <String> (directory for cached HTTP responses)" +
+            "\n - http-cache-size <Integer> (maximum size of the HTTP cache in megabytes, least recently used responses are evicted)" +
+            "\n - output <neo4j, csv, memory, discard> (writes to the Neo4j Database, to CSV files for neo4j-admin import, keeps packages in memory or discards them)" +
+            "\n - csv-directory <String> (directory for CSV files)" +
+            "\n - csv-compress <true, false> (gzip-compresses CSV files)" +
+            "\n - csv-shard-size <Integer> (maximum number of rows per CSV file, 0 for no limit)";
 }
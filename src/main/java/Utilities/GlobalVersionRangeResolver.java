@@ -1,8 +1,13 @@
 package Utilities;
 
+import Repositories.ParsedVersion;
 import Repositories.VersionRangeResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -24,8 +29,12 @@ public class GlobalVersionRangeResolver {
         return theInstance;
     }
 
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
     private final Map<String, VersionRangeResolver<?>> registeredResolvers = new HashMap<>();
 
+    private final int maxCanonicalFormsLogged = 10;
+
     private GlobalVersionRangeResolver(){
         registerAllVersionRangeResolver(this);
     }
@@ -45,6 +54,22 @@ public class GlobalVersionRangeResolver {
             throw new UnsupportedOperationException("No version range resolver is registered for repository: " + repoHint);
     }
 
+    /**
+     * Resolves a batch of dependencies to the same target package. Every distinct version range specification is
+     * resolved only once.
+     *
+     * @param repoHint Repository name - dictates how range specifications are parsed
+     * @param dependencies Pairs of source artifact id and version range specification
+     * @param allVersions Set of version numbers to search for matching versions in
+     * @return List of edges as pairs of source artifact id and matching version number
+     */
+    public List<Map.Entry<String, String>> findMatchingVersions(String repoHint, Collection<Map.Entry<String, String>> dependencies, Set<String> allVersions){
+        if(registeredResolvers.containsKey(repoHint))
+            return registeredResolvers.get(repoHint).findMatchingVersions(dependencies, allVersions);
+        else
+            throw new UnsupportedOperationException("No version range resolver is registered for repository: " + repoHint);
+    }
+
     /**
      * Register a new version range resolver for the given repository name.
      * @param repoHint Name of the repository that hits resolver is designed for
@@ -53,4 +78,39 @@ public class GlobalVersionRangeResolver {
     public void registerResolver(String repoHint, VersionRangeResolver<?> resolver){
         registeredResolvers.put(repoHint, resolver);
     }
+
+    /**
+     * Logs the statistics of all registered resolvers that have processed at least one specification, including hit,
+     * miss and eviction counts of their caches.
+     */
+    public void logStatistics(){
+        for(Map.Entry<String, VersionRangeResolver<?>> entry : registeredResolvers.entrySet()){
+            VersionRangeResolver<?> resolver = entry.getValue();
+
+            if(resolver.getTotalSpecsProcessed() == 0) continue;
+
+            logger.info("Version range resolver for " + entry.getKey() + ": " + resolver.getTotalSpecsProcessed() +
+                    " specifications, " + resolver.getRangesProcessed() + " ranges, " + resolver.getFixedVersionsProcessed() +
+                    " fixed versions");
+            logCollapsedSpecs(resolver);
+            logger.info("  Representation cache: " + resolver.getRepresentationCacheStatistics());
+            logger.info("  Interval cache: " + resolver.getIntervalCacheStatistics());
+            logger.info("  Containment cache: " + resolver.getContainmentCacheStatistics());
+        }
+
+        logger.info("Parsed version cache: " + ParsedVersion.getCacheStatistics());
+    }
+
+    private void logCollapsedSpecs(VersionRangeResolver<?> resolver){
+        Map<String, Long> collapsedSpecCounts = resolver.getCollapsedSpecCounts();
+
+        logger.info("  Canonicalization: " + resolver.getCollapsedSpecsProcessed() + " specifications collapsed into " +
+                collapsedSpecCounts.size() + " canonical forms");
+
+        // Only the canonical forms with the most collapsed specifications are printed
+        collapsedSpecCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(maxCanonicalFormsLogged)
+                .forEach(entry -> logger.info("    " + entry.getKey() + " <- " + entry.getValue() + " specifications"));
+    }
 }
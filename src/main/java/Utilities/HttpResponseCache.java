@@ -0,0 +1,254 @@
+package Utilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache for HTTP response bodies. Entries are addressed by the SHA-256 hash of their request and consist of a
+ * gzip-compressed body file and a properties file with the validators (ETag, Last-Modified) needed to revalidate them.
+ * Immutable entries are never revalidated. Once the total size of all bodies exceeds the configured budget, the least
+ * recently used entries are evicted.
+ */
+public class HttpResponseCache {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final String BODY_SUFFIX = ".gz";
+    private static final String META_SUFFIX = ".properties";
+    private static final double EVICTION_TARGET = 0.9;
+
+    private final File directory;
+    private final long maxBytes;
+    private final AtomicLong totalBytes = new AtomicLong(0);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Opens the cache in the given directory, entries of previous runs are kept.
+     * @param directory Directory to store entries in, is created if it does not exist
+     * @param maxBytes Maximum total size of all compressed bodies in bytes
+     * @throws IOException If the directory cannot be created or read
+     */
+    public HttpResponseCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory.toPath());
+
+        for (File body : listBodies()) totalBytes.addAndGet(body.length());
+    }
+
+    /**
+     * Looks up the entry for the given request key. A found entry counts as most recently used.
+     * @param key Key of the request, e.g. its URL
+     * @return Cached entry, or null if there is none
+     */
+    public Entry get(String key) {
+        String hash = hash(key);
+        File body = getFile(hash, BODY_SUFFIX);
+        File meta = getFile(hash, META_SUFFIX);
+
+        if (!body.isFile() || !meta.isFile()) return null;
+
+        Properties props = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(meta), StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException ex) {
+            return null;
+        }
+
+        // Keys could collide in theory, an entry only applies to the exact request it was stored for
+        if (!key.equals(props.getProperty("key"))) return null;
+
+        body.setLastModified(System.currentTimeMillis());
+
+        return new Entry(body, props.getProperty("etag"), props.getProperty("lastModified"),
+                Boolean.parseBoolean(props.getProperty("immutable")));
+    }
+
+    /**
+     * Stores the given body for the given request key, replacing any previous entry.
+     * @param key Key of the request, e.g. its URL
+     * @param etag ETag of the response, may be null
+     * @param lastModified Last-Modified date of the response, may be null
+     * @param immutable True if the resource never changes and needs no revalidation
+     * @param body Stream of the uncompressed body, is read to its end but not closed
+     * @return The stored entry
+     * @throws IOException If the entry cannot be written
+     */
+    public Entry put(String key, String etag, String lastModified, boolean immutable, InputStream body) throws IOException {
+        String hash = hash(key);
+        File bodyFile = getFile(hash, BODY_SUFFIX);
+        File metaFile = getFile(hash, META_SUFFIX);
+        Path parent = bodyFile.getParentFile().toPath();
+
+        Files.createDirectories(parent);
+
+        // Write to temporary files first, so that concurrent readers never see partial entries
+        Path tempBody = Files.createTempFile(parent, hash, ".tmp");
+        Path tempMeta = Files.createTempFile(parent, hash, ".tmp");
+
+        try {
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempBody)))) {
+                body.transferTo(out);
+            }
+
+            Properties props = new Properties();
+            props.setProperty("key", key);
+            props.setProperty("immutable", String.valueOf(immutable));
+            if (etag != null) props.setProperty("etag", etag);
+            if (lastModified != null) props.setProperty("lastModified", lastModified);
+
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(tempMeta), StandardCharsets.UTF_8)) {
+                props.store(writer, null);
+            }
+
+            long previousSize = bodyFile.isFile() ? bodyFile.length() : 0;
+            long size = Files.size(tempBody);
+
+            Files.move(tempBody, bodyFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempMeta, metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            if (totalBytes.addAndGet(size - previousSize) > maxBytes) evict();
+        } finally {
+            Files.deleteIfExists(tempBody);
+            Files.deleteIfExists(tempMeta);
+        }
+
+        return new Entry(bodyFile, etag, lastModified, immutable);
+    }
+
+    /**
+     * Records that a request was answered from the cache without contacting the server.
+     */
+    public void recordHit() { hits.increment(); }
+
+    /**
+     * Records that a cached entry was confirmed as unchanged by the server.
+     */
+    public void recordRevalidation() { revalidations.increment(); }
+
+    /**
+     * Records that a request had to be downloaded.
+     */
+    public void recordMiss() { misses.increment(); }
+
+    /**
+     * Gets the total size of all compressed bodies in this cache.
+     * @return Size in bytes
+     */
+    public long getTotalBytes() { return totalBytes.get(); }
+
+    /**
+     * Logs the number of hits, revalidations and misses, as well as the current size of the cache.
+     */
+    public void logStatistics() {
+        logger.info("HTTP cache: " + hits.sum() + " hits, " + revalidations.sum() + " revalidated, " + misses.sum() +
+                " downloaded, " + (totalBytes.get() / (1024 * 1024)) + " MB in " + directory);
+    }
+
+    private synchronized void evict() {
+        if (totalBytes.get() <= maxBytes) return;
+
+        List<File> bodies = listBodies();
+        bodies.sort(Comparator.comparingLong(File::lastModified));
+
+        long target = (long) (maxBytes * EVICTION_TARGET);
+        int evicted = 0;
+
+        for (File body : bodies) {
+            if (totalBytes.get() <= target) break;
+
+            long size = body.length();
+            String name = body.getName();
+            File meta = new File(body.getParentFile(), name.substring(0, name.length() - BODY_SUFFIX.length()) + META_SUFFIX);
+
+            if (body.delete()) {
+                meta.delete();
+                totalBytes.addAndGet(-size);
+                evicted++;
+            }
+        }
+
+        logger.debug("Evicted " + evicted + " entries from HTTP cache");
+    }
+
+    private List<File> listBodies() {
+        try (Stream<Path> files = Files.walk(directory.toPath(), 2)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(BODY_SUFFIX))
+                    .map(Path::toFile)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException | UncheckedIOException ex) {
+            logger.warn("Failed to list HTTP cache entries", ex);
+            return new ArrayList<>();
+        }
+    }
+
+    private File getFile(String hash, String suffix) {
+        return new File(new File(directory, hash.substring(0, 2)), hash + suffix);
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Cached response body together with its validators.
+     */
+    public static class Entry {
+        private final File body;
+        private final String etag;
+        private final String lastModified;
+        private final boolean immutable;
+
+        Entry(File body, String etag, String lastModified, boolean immutable) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.immutable = immutable;
+        }
+
+        /**
+         * Opens the uncompressed body of this entry.
+         * @return Stream of the body, must be closed by the caller
+         * @throws IOException If the entry has been evicted or cannot be read
+         */
+        public InputStream open() throws IOException {
+            return new GZIPInputStream(new BufferedInputStream(new FileInputStream(body)));
+        }
+
+        public String getETag() { return etag; }
+
+        public String getLastModified() { return lastModified; }
+
+        public boolean isImmutable() { return immutable; }
+    }
+}
@@ -6,12 +6,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.net.ConnectException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.GZIPInputStream;
 
 /**
@@ -25,6 +32,36 @@ public class HttpUtilities {
 
     private static final int TimeoutMinutes = 5;
 
+    private static final LongAdder overloadCounter = new LongAdder();
+
+    private static HttpResponseCache responseCache = null;
+    private static boolean responseCacheInitialized = false;
+
+    /**
+     * Records the status code of a response. Rate limiting (429) and server errors (5xx) count as overload signals.
+     * @param statusCode HTTP status code
+     */
+    public static void recordStatus(int statusCode){
+        if(statusCode == 429 || statusCode >= 500) overloadCounter.increment();
+    }
+
+    /**
+     * Records a failed request. Timeouts and refused connections count as overload signals.
+     * @param ex Exception the request failed with
+     */
+    public static void recordFailure(Throwable ex){
+        Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+        if(cause instanceof HttpTimeoutException || cause instanceof ConnectException) overloadCounter.increment();
+    }
+
+    /**
+     * Gets the total number of overload signals, i.e. rate limited, failed or timed out requests, recorded so far.
+     * @return Number of overload signals
+     */
+    public static long getOverloadCount(){
+        return overloadCounter.sum();
+    }
+
     /**
      * Retrieves the content of the given URL and parses it into a JSON object. Only success-responses (200) will be handled.
      * Returns null if an error occurred.
@@ -32,16 +69,22 @@ public class HttpUtilities {
      * @return JSON object representation of the URL's contents, or null if an error occurred.
      */
     public static JSONObject getContentAsJSON(String url){
-        try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .timeout(Duration.ofMinutes(TimeoutMinutes))
-                    .uri(new URI(url))
-                    .build();
+        return getContentAsJSON(url, null);
+    }
 
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Retrieves the content of the given URL in the given media type and parses it into a JSON object. Only
+     * success-responses (200) will be handled. Returns null if an error occurred.
+     * @param url URL to retrieve contents from
+     * @param accept Value of the Accept header, or null to send none
+     * @return JSON object representation of the URL's contents, or null if an error occurred.
+     */
+    public static JSONObject getContentAsJSON(String url, String accept){
+        try {
+            TextResponse response = getContentAsText(httpClient, url, accept, false);
 
-            if(response.statusCode() != 200) return null;
-            else return new JSONObject(response.body());
+            if(response.getStatusCode() != 200) return null;
+            else return new JSONObject(response.getBody());
 
         } catch(Exception ex){
             if(GlobalUtilities.isBoolPropertyEnabled("dgm.drop-http-errors"))
@@ -49,10 +92,209 @@ public class HttpUtilities {
             else
                 ExceptionLogger.add(ex, HttpUtilities.class.getName());
 
+            recordFailure(ex);
+            return null;
+        }
+    }
+
+    /**
+     * Opens the content of the given URL as a stream, so that large responses can be processed without holding them in
+     * memory. Only success-responses (200) will be handled. The caller is responsible for closing the stream.
+     * @param url URL to retrieve contents from
+     * @return Stream of the URL's contents, or null if the response was no success
+     * @throws IOException If the request failed
+     */
+    public static InputStream getContentAsStream(String url) throws IOException {
+        return getContentAsStream(url, null);
+    }
+
+    /**
+     * Opens the content of the given URL in the given media type as a stream. Only success-responses (200) will be
+     * handled. The caller is responsible for closing the stream.
+     * @param url URL to retrieve contents from
+     * @param accept Value of the Accept header, or null to send none
+     * @return Stream of the URL's contents, or null if the response was no success
+     * @throws IOException If the request failed
+     */
+    public static InputStream getContentAsStream(String url, String accept) throws IOException {
+        try {
+            CachedResponse response = send(httpClient, url, accept, false);
+
+            if(response.statusCode == 200) return response.body;
+
+            response.body.close();
+            return null;
+        } catch (URISyntaxException ex){
+            throw new IOException("Invalid URL: " + url, ex);
+        } catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while requesting " + url, ex);
+        } catch (IOException ex){
+            recordFailure(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Retrieves the content of the given URL as text with the given client. Responses are served from and stored in
+     * the HTTP cache if it is enabled.
+     * @param client Client to send the request with
+     * @param url URL to retrieve contents from
+     * @param accept Value of the Accept header, or null to send none
+     * @param immutable True if the resource never changes, so that a cached copy needs no revalidation
+     * @return Status code and text of the response
+     * @throws IOException If the request failed
+     * @throws InterruptedException If the calling thread was interrupted
+     */
+    public static TextResponse getContentAsText(HttpClient client, String url, String accept, boolean immutable) throws IOException, InterruptedException {
+        try {
+            CachedResponse response = send(client, url, accept, immutable);
+
+            try (InputStream body = response.body) {
+                return new TextResponse(response.statusCode, new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } catch (URISyntaxException ex){
+            throw new IOException("Invalid URL: " + url, ex);
+        }
+    }
+
+    /**
+     * Sends a GET request, using the HTTP cache if it is enabled. Immutable cached entries are returned without a
+     * request, other cached entries are revalidated with their ETag or Last-Modified date. Successful responses with a
+     * validator are stored in the cache.
+     */
+    private static CachedResponse send(HttpClient client, String url, String accept, boolean immutable) throws IOException, InterruptedException, URISyntaxException {
+        return send(client, url, accept, immutable, getResponseCache());
+    }
+
+    /**
+     * Sends a GET request using the given cache. Entries can be evicted by concurrent requests between looking them up
+     * and opening them, such entries are treated as misses. If this happens after a response was already consumed, the
+     * request is sent again without the cache.
+     * @param cache HTTP cache to use, null to bypass it
+     */
+    private static CachedResponse send(HttpClient client, String url, String accept, boolean immutable, HttpResponseCache cache) throws IOException, InterruptedException, URISyntaxException {
+        String key = accept == null ? url : url + " " + accept;
+        HttpResponseCache.Entry entry = cache == null ? null : cache.get(key);
+
+        if(entry != null && entry.isImmutable()){
+            InputStream cached = openCached(entry, url);
+            if(cached != null){
+                cache.recordHit();
+                return new CachedResponse(200, cached);
+            }
+            entry = null;
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .timeout(Duration.ofMinutes(TimeoutMinutes))
+                .uri(new URI(url));
+
+        if(accept != null) builder.header("Accept", accept);
+        if(entry != null && entry.getETag() != null) builder.header("If-None-Match", entry.getETag());
+        if(entry != null && entry.getLastModified() != null) builder.header("If-Modified-Since", entry.getLastModified());
+
+        HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        recordStatus(status);
+
+        if(status == 304 && entry != null){
+            response.body().close();
+            InputStream cached = openCached(entry, url);
+            if(cached == null) return send(client, url, accept, immutable, null);
+            cache.recordRevalidation();
+            return new CachedResponse(200, cached);
+        }
+
+        if(status != 200 || cache == null) return new CachedResponse(status, response.body());
+
+        Optional<String> etag = response.headers().firstValue("ETag");
+        Optional<String> lastModified = response.headers().firstValue("Last-Modified");
+        cache.recordMiss();
+
+        // Without validators a cached copy could never be reused
+        if(!immutable && etag.isEmpty() && lastModified.isEmpty()) return new CachedResponse(status, response.body());
+
+        HttpResponseCache.Entry stored;
+        try (InputStream body = response.body()) {
+            stored = cache.put(key, etag.orElse(null), lastModified.orElse(null), immutable, body);
+        }
+
+        InputStream cached = openCached(stored, url);
+        if(cached == null) return send(client, url, accept, immutable, null);
+        return new CachedResponse(status, cached);
+    }
+
+    /**
+     * Opens the body of a cached entry.
+     * @return Stream of the body, or null if the entry has been evicted in the meantime
+     */
+    private static InputStream openCached(HttpResponseCache.Entry entry, String url){
+        try {
+            return entry.open();
+        } catch (IOException ex) {
+            logger.debug("Cached response for " + url + " was evicted before it could be read", ex);
             return null;
         }
     }
 
+    private static synchronized HttpResponseCache getResponseCache(){
+        if(!responseCacheInitialized){
+            responseCacheInitialized = true;
+
+            Properties props = System.getProperties();
+            if(Boolean.parseBoolean(props.getOrDefault("dgm.http-cache","false").toString())){
+                File directory = new File(props.getOrDefault("dgm.http-cache-directory","http-cache").toString());
+                long maxBytes = Long.parseLong(props.getOrDefault("dgm.http-cache-size","10240").toString()) * 1024 * 1024;
+
+                try {
+                    responseCache = new HttpResponseCache(directory, maxBytes);
+                    logger.info("Using HTTP cache in " + directory.getAbsolutePath());
+                } catch (IOException ex){
+                    logger.error("Could not open HTTP cache in " + directory + ", continuing without cache", ex);
+                    ExceptionLogger.add(ex, HttpUtilities.class.getName());
+                }
+            }
+        }
+
+        return responseCache;
+    }
+
+    /**
+     * Logs the statistics of the HTTP cache, if it is enabled.
+     */
+    public static void logCacheStatistics(){
+        HttpResponseCache cache = getResponseCache();
+        if(cache != null) cache.logStatistics();
+    }
+
+    /**
+     * Status code and text of a response.
+     */
+    public static class TextResponse {
+        private final int statusCode;
+        private final String body;
+
+        TextResponse(int statusCode, String body){
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() { return statusCode; }
+
+        public String getBody() { return body; }
+    }
+
+    private static class CachedResponse {
+        final int statusCode;
+        final InputStream body;
+
+        CachedResponse(int statusCode, InputStream body){
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+    }
+
     public static JSONObject getGZIPContent(String url){
         try {
             HttpRequest request = HttpRequest.newBuilder()
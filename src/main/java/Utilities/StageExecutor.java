@@ -0,0 +1,90 @@
+package Utilities;
+
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size executor dedicated to one stage of a pipeline. Stages that block on HTTP or Bolt calls therefore cannot
+ * starve other stages, as they would on a shared dispatcher. Each stage executor reports how many of its threads are
+ * busy and how many tasks are waiting in its queue.
+ */
+public class StageExecutor implements Executor, AutoCloseable {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a new stage executor with the given number of daemon threads.
+     * @param name Name of the stage, used for thread names and status output
+     * @param threads Number of threads
+     */
+    public StageExecutor(String name, int threads){
+        this.name = name;
+
+        int size = Math.max(1, threads);
+        AtomicInteger threadCounter = new AtomicInteger(0);
+
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "dgm-" + name + "-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Creates a new stage executor that is sized by the given property.
+     * @param name Name of the stage, used for thread names and status output
+     * @param property Property that holds the number of threads
+     * @param defaultThreads Number of threads if the property is not set
+     * @return New stage executor
+     */
+    public static StageExecutor fromProperty(String name, String property, int defaultThreads){
+        Properties props = System.getProperties();
+        int threads = Integer.parseInt(props.getOrDefault(property, String.valueOf(defaultThreads)).toString());
+
+        return new StageExecutor(name, threads);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * Gets the number of tasks waiting for a thread of this stage.
+     * @return Queue depth
+     */
+    public int getQueueDepth() { return executor.getQueue().size(); }
+
+    /**
+     * Gets the number of threads of this stage that are currently executing a task.
+     * @return Number of busy threads
+     */
+    public int getActiveCount() { return executor.getActiveCount(); }
+
+    /**
+     * Gets the number of threads of this stage.
+     * @return Pool size
+     */
+    public int getThreadCount() { return executor.getCorePoolSize(); }
+
+    /**
+     * Gets a short status of this stage for console output.
+     * @return Status with busy threads and queue depth
+     */
+    public String getStatus(){
+        return name + " " + getActiveCount() + "/" + getThreadCount() + " busy, " + getQueueDepth() + " queued";
+    }
+
+    /**
+     * Stops all threads of this stage, tasks still waiting in the queue are discarded.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
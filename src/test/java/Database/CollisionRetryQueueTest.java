@@ -0,0 +1,103 @@
+package Database;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.exceptions.TransientException;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CollisionRetryQueueTest {
+
+    @Test
+    @DisplayName("Drained requests are written once each, in order per package, including spilled ones")
+    public void test_drain(){
+        Map<String, List<Integer>> written = new ConcurrentHashMap<>();
+        Set<Integer> collided = ConcurrentHashMap.newKeySet();
+
+        CollisionRetryQueue queue = new CollisionRetryQueue((request, params) -> {
+            int index = Integer.parseInt(request);
+            // Every third request collides once more when it is retried
+            if(index % 3 == 0 && collided.add(index)) throw new TransientException("Neo.TransientError.Transaction.DeadlockDetected", "Deadlock");
+
+            written.computeIfAbsent(CollisionRetryQueue.getPartitionKey(params), k -> Collections.synchronizedList(new ArrayList<>())).add(index);
+        }, 5, 4);
+
+        for(int i = 0; i < 40; i++){
+            queue.add(String.valueOf(i), Map.of("packageId", "npm:package-" + (i % 7), "resolved", false));
+        }
+
+        assertEquals(40, queue.getTotalCount());
+        queue.close();
+
+        assertEquals(0, queue.size());
+        assertEquals(14, queue.getTransientErrorCount());
+        assertEquals(7, written.size());
+
+        for(int p = 0; p < 7; p++){
+            List<Integer> expected = new ArrayList<>();
+            for(int i = p; i < 40; i += 7) expected.add(i);
+            assertEquals(expected, written.get("npm:package-" + p));
+        }
+    }
+
+    @Test
+    @DisplayName("Spilled requests are refilled and retried in the background, in order per package")
+    public void test_spilled_requests_retried() throws InterruptedException {
+        Map<String, List<Integer>> written = new ConcurrentHashMap<>();
+
+        CollisionRetryQueue queue = new CollisionRetryQueue((request, params) ->
+                written.computeIfAbsent(CollisionRetryQueue.getPartitionKey(params), k -> Collections.synchronizedList(new ArrayList<>()))
+                        .add(Integer.parseInt(request)), 2, 2);
+
+        for(int i = 0; i < 30; i++){
+            queue.add(String.valueOf(i), Map.of("packageId", "npm:package-" + (i % 3), "resolved", false));
+        }
+        assertEquals(30, queue.size());
+
+        long deadline = System.currentTimeMillis() + 20000;
+        while(queue.size() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(50);
+
+        // Everything has been written by the background retries, before the queue is drained on close
+        assertEquals(0, queue.size());
+        for(int p = 0; p < 3; p++){
+            List<Integer> expected = new ArrayList<>();
+            for(int i = p; i < 30; i += 3) expected.add(i);
+            assertEquals(expected, written.get("npm:package-" + p));
+        }
+
+        queue.close();
+    }
+
+    @Test
+    @DisplayName("Requests writing to one target node share a partition key and backoff grows with jitter")
+    public void test_partition_key_and_backoff(){
+        Map<String, Object> artifactRow = new HashMap<>(Map.of("artifactId", "npm:lodash:1.0.0", "packageId", "npm:a"));
+
+        assertEquals("npm:lodash", CollisionRetryQueue.getPartitionKey(Map.of("props", Map.of("id", "npm:lodash"))));
+        assertEquals("npm:lodash", CollisionRetryQueue.getPartitionKey(Map.of("packageId", "npm:lodash", "artifacts", List.of())));
+        assertEquals("npm:a", CollisionRetryQueue.getPartitionKey(Map.of("dependencies", List.of(artifactRow))));
+        assertEquals("", CollisionRetryQueue.getPartitionKey(null));
+
+        List<Map<String, Object>> split = CollisionRetryQueue.splitByTarget(Map.of("dependencies", List.of(
+                Map.of("sourceId", "npm:x", "packageId", "npm:react"),
+                Map.of("sourceId", "npm:y", "packageId", "npm:lodash"),
+                Map.of("sourceId", "npm:z", "packageId", "npm:react"))));
+
+        assertEquals(2, split.size());
+        assertEquals("npm:react", CollisionRetryQueue.getPartitionKey(split.get(0)));
+        assertEquals(List.of("npm:x", "npm:z"), ((List<?>) split.get(0).get("dependencies")).stream()
+                .map(row -> ((Map<?, ?>) row).get("sourceId")).collect(Collectors.toList()));
+        assertEquals("npm:lodash", CollisionRetryQueue.getPartitionKey(split.get(1)));
+
+        for(int attempts = 0; attempts < 12; attempts++){
+            long maximum = Math.min(30000, 100L << attempts);
+            long backoff = CollisionRetryQueue.getBackoffMillis(attempts);
+            assertEquals(maximum, CollisionRetryQueue.getBaseBackoffMillis(attempts));
+            assertTrue(backoff >= maximum / 2 && backoff <= maximum);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package Database;
+
+import Model.Artifact;
+import Model.Linkage;
+import Model.Package;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryGraphSinkTest {
+
+    @Test
+    @DisplayName("Updates add new artifacts to stored packages, closed sinks ignore packages")
+    public void test_store_and_update(){
+        InMemoryGraphSink sink = new InMemoryGraphSink(Linkage.ArtifactPackage);
+
+        Package lodash = new Package("lodash", "npm");
+        lodash.addArtifact(new Artifact("1.0.0", "lodash", "npm"));
+        sink.createPackageNode(lodash, false);
+
+        Package update = new Package("lodash", "npm");
+        update.addArtifact(new Artifact("1.1.0", "lodash", "npm"));
+        sink.createPackageNode(update, true);
+
+        assertEquals(1, sink.getPackages().size());
+        assertEquals(2, sink.getPackage("npm:lodash").getArtifactList().size());
+        assertEquals(Linkage.ArtifactPackage, sink.getDependencyLinkage());
+
+        sink.close();
+        sink.createPackageNode(new Package("react", "npm"), false);
+
+        assertTrue(sink.isClosed());
+        assertNull(sink.getPackage("npm:react"));
+    }
+
+    @Test
+    @DisplayName("Packages stored asynchronously are stored on the given executor")
+    public void test_store_async(){
+        InMemoryGraphSink sink = new InMemoryGraphSink(Linkage.PackagePackage);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        sink.createPackageNodeAsync(new Package("lodash", "npm"), false, executor).toCompletableFuture().join();
+        executor.shutdown();
+
+        assertNotNull(sink.getPackage("npm:lodash"));
+    }
+}
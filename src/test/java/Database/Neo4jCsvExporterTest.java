@@ -0,0 +1,100 @@
+package Database;
+
+import Model.Artifact;
+import Model.Dependency;
+import Model.Linkage;
+import Model.Package;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Neo4jCsvExporterTest {
+
+    @Test
+    @DisplayName("Artifact-to-Package export writes import headers, deduplicated prototypes and an argument file")
+    public void test_export_ap(@TempDir Path directory) throws IOException {
+        Neo4jCsvExporter exporter = new Neo4jCsvExporter(directory.toFile(), Linkage.ArtifactPackage, true, 2);
+
+        exporter.createPackageNode(createPackage("a", "b", "c"), false);
+        exporter.createPackageNode(createPackage("b", "c"), false);
+        exporter.createPackageNode(createPackage("b", "c"), false);
+        exporter.close();
+
+        assertEquals("id:ID(Package),name,repo", readFile(directory.resolve("packages-00000.header.csv")).get(0));
+        assertEquals(List.of("\"npm:a\",\"a\",\"npm\"", "\"npm:b\",\"b\",\"npm\""), readFile(directory.resolve("packages-00000.csv.gz")));
+        assertEquals(List.of("\"npm:c\",\"Prototype Package\","), readFile(directory.resolve("packages-00001.csv.gz")));
+
+        String dependencyHeader = readFile(directory.resolve("dependentOn-00000.header.csv")).get(0);
+        assertTrue(dependencyHeader.startsWith(":START_ID(Artifact),:END_ID(Package),"));
+        assertTrue(dependencyHeader.contains("resolved:boolean"));
+        assertTrue(dependencyHeader.contains("version"));
+        assertTrue(Files.exists(directory.resolve("dependentOn-00001.csv.gz")));
+
+        List<String> arguments = readFile(directory.resolve(Neo4jCsvExporter.argumentFileName));
+        assertTrue(arguments.contains("--nodes=Package=packages-00001.header.csv,packages-00001.csv.gz"));
+        assertTrue(arguments.contains("--relationships=version=version-00000.header.csv,version-00000.csv.gz"));
+        assertEquals(3, arguments.stream().filter(a -> a.startsWith("--relationships=dependentOn=")).count());
+    }
+
+    @Test
+    @DisplayName("Package-to-Package export writes one edge per target package")
+    public void test_export_pp(@TempDir Path directory) throws IOException {
+        Neo4jCsvExporter exporter = new Neo4jCsvExporter(directory.toFile(), Linkage.PackagePackage, false, 0);
+
+        exporter.createPackageNode(createPackage("a", "b", "b\"quoted\""), false);
+        exporter.close();
+
+        assertEquals(":START_ID(Package),:END_ID(Package)", readFile(directory.resolve("dependentOnPP-00000.header.csv")).get(0));
+        assertEquals(List.of("\"npm:a\",\"npm:b\"", "\"npm:a\",\"npm:b\"\"quoted\"\"\""), readFile(directory.resolve("dependentOnPP-00000.csv")));
+        assertEquals(3, readFile(directory.resolve("packages-00000.csv")).size());
+    }
+
+    @Test
+    @DisplayName("Columns whose values change their type are written untyped from a new shard on")
+    public void test_shard_column_types(@TempDir Path directory) throws IOException {
+        CsvShardWriter writer = new CsvShardWriter(directory.toFile(), "nodes", List.of("id:ID"), false, 0);
+
+        writer.write(List.of("a"), Map.of("size", 1L, "flag", true));
+        writer.write(List.of("b"), Map.of("size", 2L));
+        writer.write(List.of("c"), Map.of("size", "3 MB", "flag", false));
+        writer.write(List.of("d"), Map.of("size", 4L));
+        writer.close();
+
+        assertEquals(2, writer.getShards().size());
+        assertEquals("id:ID,flag:boolean,size:long", readFile(directory.resolve("nodes-00000.header.csv")).get(0));
+        assertEquals("id:ID,flag:boolean,size", readFile(directory.resolve("nodes-00001.header.csv")).get(0));
+        assertEquals(List.of("\"c\",false,\"3 MB\"", "\"d\",,4"), readFile(directory.resolve("nodes-00001.csv")));
+    }
+
+    private static Package createPackage(String name, String... dependencies) {
+        Package p = new Package(name, "npm");
+
+        for(String version : new String[]{ "1.0.0", "1.1.0" }){
+            Artifact artifact = new Artifact(version, name, "npm");
+            for(String dependency : dependencies) artifact.addDependency(new Dependency(dependency, "^1.0.0"));
+            p.addArtifact(artifact);
+        }
+
+        return p;
+    }
+
+    private static List<String> readFile(Path file) throws IOException {
+        InputStream in = new FileInputStream(file.toFile());
+        if(file.toString().endsWith(".gz")) in = new GZIPInputStream(in);
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))){
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package Database;
+
+import Model.Artifact;
+import Model.Dependency;
+import Model.Linkage;
+import Model.Package;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Neo4jDatabaseControllerTest {
+
+    @Test
+    @DisplayName("Dependencies of all artifacts are combined into rows and split into chunks")
+    public void test_dependency_rows(){
+        Artifact first = new Artifact("1.0.0", "lodash", "npm");
+        first.addDependency(new Dependency("a", "^1.0.0"));
+        first.addDependency(new Dependency("b", "~2.0.0"));
+
+        Artifact second = new Artifact("1.1.0", "lodash", "npm");
+        second.addDependency(new Dependency("a", "^1.1.0"));
+
+        List<Map<String, Object>> rows = Neo4jDatabaseController.getDependencyRows(List.of(first, second, new Artifact("2.0.0", "lodash", "npm")));
+
+        assertEquals(3, rows.size());
+        assertEquals(first.getId(), rows.get(0).get("artifactId"));
+        assertEquals(first.getId(), rows.get(1).get("artifactId"));
+        assertEquals(second.getId(), rows.get(2).get("artifactId"));
+        assertEquals("npm:a", rows.get(2).get("packageId"));
+
+        assertEquals(List.of(List.of(1, 2), List.of(3, 4), List.of(5)), Neo4jDatabaseController.chunk(List.of(1, 2, 3, 4, 5), 2));
+        assertEquals(List.of(List.of(1, 2, 3)), Neo4jDatabaseController.chunk(List.of(1, 2, 3), 0));
+        assertTrue(Neo4jDatabaseController.chunk(List.of(), 2).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Package-to-Package rows contain each target package once, all rows name their target package")
+    public void test_package_dependency_rows(){
+        Package lodash = new Package("lodash", "npm");
+
+        Artifact first = new Artifact("1.0.0", "lodash", "npm");
+        first.addDependency(new Dependency("a", "^1.0.0"));
+        first.addDependency(new Dependency("b", "~2.0.0"));
+        lodash.addArtifact(first);
+
+        Artifact second = new Artifact("1.1.0", "lodash", "npm");
+        second.addDependency(new Dependency("a", "^1.1.0"));
+        lodash.addArtifact(second);
+
+        List<Map<String, Object>> packageRows = Neo4jDatabaseController.getDependencyRows(lodash, Linkage.PackagePackage);
+        assertEquals(2, packageRows.size());
+        assertTrue(packageRows.contains(Map.of("sourceId", "npm:lodash", "packageId", "npm:a")));
+        assertTrue(packageRows.contains(Map.of("sourceId", "npm:lodash", "packageId", "npm:b")));
+
+        List<Map<String, Object>> artifactRows = Neo4jDatabaseController.getDependencyRows(lodash, Linkage.ArtifactPackage);
+        assertEquals(3, artifactRows.size());
+        assertTrue(artifactRows.stream().allMatch(row -> row.get("packageId") != null && row.get("artifactId") != null));
+    }
+
+    @Test
+    @DisplayName("Dependency rows to known packages are matched, rows to unknown packages are merged")
+    public void test_dependency_statements(){
+        Package lodash = new Package("lodash", "npm");
+
+        Artifact artifact = new Artifact("1.0.0", "lodash", "npm");
+        artifact.addDependency(new Dependency("a", "^1.0.0"));
+        artifact.addDependency(new Dependency("b", "~2.0.0"));
+        lodash.addArtifact(artifact);
+
+        Map<String, List<Map<String, Object>>> statements = Neo4jDatabaseController.getDependencyStatements(lodash, Linkage.PackagePackage, Set.of("npm:a"));
+        assertEquals(2, statements.size());
+        assertEquals("npm:a", statements.get(Neo4jDatabaseController.knownPackageDependencyQuery).get(0).get("packageId"));
+        assertEquals("npm:b", statements.get(Neo4jDatabaseController.packageDependencyQuery).get(0).get("packageId"));
+
+        statements = Neo4jDatabaseController.getDependencyStatements(lodash, Linkage.ArtifactPackage, null);
+        assertEquals(Set.of(Neo4jDatabaseController.artifactDependencyQuery), statements.keySet());
+        assertEquals(2, statements.get(Neo4jDatabaseController.artifactDependencyQuery).size());
+    }
+}
@@ -0,0 +1,104 @@
+package Repositories;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedConcurrentCacheTest {
+
+    @Test
+    @DisplayName("Cache is bounded by weight and evicts entries that have not been used recently")
+    public void test_eviction(){
+        BoundedConcurrentCache<String, String> cache = new BoundedConcurrentCache<>(10, (k, v) -> v.length());
+
+        cache.putIfAbsent("a", "aaaa");
+        cache.putIfAbsent("b", "bbbb");
+        assertEquals("aaaa", cache.get("a"));
+
+        // Exceeds the bound, "b" has not been used since it was added
+        cache.putIfAbsent("c", "cccc");
+
+        assertEquals("aaaa", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("cccc", cache.get("c"));
+
+        // Entries heavier than the whole cache are never stored
+        assertEquals("too heavy for the cache", cache.putIfAbsent("d", "too heavy for the cache"));
+        assertNull(cache.get("d"));
+
+        BoundedConcurrentCache.CacheStatistics stats = cache.getStatistics();
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(8, stats.getWeight());
+        assertEquals(1, stats.getEvictionCount());
+        assertEquals(3, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+    }
+
+    @Test
+    @DisplayName("Keys looked up only once do not push out frequently used entries")
+    public void test_admission(){
+        BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<>(10);
+
+        for(int round = 0; round < 5; round++){
+            for(int key = 0; key < 10; key++){
+                if(cache.get(key) == null) cache.putIfAbsent(key, key);
+            }
+        }
+
+        // A scan over keys that are never used again
+        for(int key = 100; key < 200; key++){
+            if(cache.get(key) == null) cache.putIfAbsent(key, key);
+        }
+
+        for(int key = 0; key < 10; key++) assertEquals(key, cache.get(key));
+
+        BoundedConcurrentCache.CacheStatistics stats = cache.getStatistics();
+        assertEquals(100, stats.getRejectionCount());
+        assertEquals(0, stats.getEvictionCount());
+    }
+
+    @Test
+    @DisplayName("Existing entries are not replaced and clear removes all entries")
+    public void test_put_and_clear(){
+        BoundedConcurrentCache<String, Integer> cache = new BoundedConcurrentCache<>(100);
+
+        assertEquals(1, cache.putIfAbsent("a", 1));
+        assertEquals(1, cache.putIfAbsent("a", 2));
+        assertNull(cache.putIfAbsent("b", null));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getStatistics().getWeight());
+    }
+
+    @Test
+    @DisplayName("Cache stays within its bound under concurrent access")
+    public void test_concurrent_access() throws InterruptedException {
+        BoundedConcurrentCache<Integer, Integer> cache = new BoundedConcurrentCache<>(1000);
+        List<Thread> threads = new ArrayList<>();
+
+        for(int t = 0; t < 8; t++){
+            final int offset = t * 10000;
+            threads.add(new Thread(() -> {
+                for(int i = 0; i < 10000; i++){
+                    Integer key = (offset + i) % 3000;
+                    if(cache.get(key) == null) cache.putIfAbsent(key, key);
+                }
+            }));
+        }
+
+        for(Thread thread : threads) thread.start();
+        for(Thread thread : threads) thread.join();
+
+        BoundedConcurrentCache.CacheStatistics stats = cache.getStatistics();
+        assertTrue(stats.getEntryCount() <= 1000);
+        assertEquals(stats.getEntryCount(), stats.getWeight());
+        assertEquals(80000, stats.getHitCount() + stats.getMissCount());
+    }
+}
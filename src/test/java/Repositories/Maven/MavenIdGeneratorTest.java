@@ -0,0 +1,24 @@
+package Repositories.Maven;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MavenIdGeneratorTest {
+
+    @Test
+    @DisplayName("Package ids are built from the u field of index records")
+    void test_package_id(){
+        assertEquals("org/apache/commons/commons-lang3",
+                MavenIdGenerator.getPackageId(Map.of("u", "org.apache.commons|commons-lang3|3.12.0|NA|jar", "i", "jar|1|2")));
+        assertEquals("junit/junit", MavenIdGenerator.getPackageId(Map.of("u", "junit|junit")));
+
+        // Descriptor records and malformed records have no package id
+        assertNull(MavenIdGenerator.getPackageId(Map.of("DESCRIPTOR", "NexusIndex")));
+        assertNull(MavenIdGenerator.getPackageId(Map.of("u", "org.example")));
+        assertNull(MavenIdGenerator.getPackageId(Map.of("u", "org.example||1.0")));
+    }
+}
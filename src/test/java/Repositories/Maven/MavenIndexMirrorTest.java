@@ -0,0 +1,103 @@
+package Repositories.Maven;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MavenIndexMirrorTest {
+
+    private static final byte[] chunk = "0123456789abcdefghij".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    File directory;
+
+    private HttpServer server;
+    private final List<String> requests = new ArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            requests.add(exchange.getRequestURI().getPath() + (range == null ? "" : " " + range) + (ifNoneMatch == null ? "" : " " + ifNoneMatch));
+
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if ("\"v1\"".equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else if (range != null && "\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+                int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                exchange.sendResponseHeaders(206, chunk.length - start);
+                exchange.getResponseBody().write(chunk, start, chunk.length - start);
+            } else {
+                exchange.sendResponseHeaders(200, chunk.length);
+                exchange.getResponseBody().write(chunk);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer(){
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Partial downloads are resumed and mirrored files are revalidated or, if immutable, not requested again")
+    void test_resume_and_revalidate() throws IOException {
+        Files.write(new File(directory, "nexus-maven-repository-index.gz.part").toPath(), Arrays.copyOf(chunk, 8));
+        Files.writeString(new File(directory, "nexus-maven-repository-index.gz.meta").toPath(), "etag=\"v1\"\n");
+
+        MavenIndexMirror mirror = new MavenIndexMirror(getUrl(), directory);
+
+        assertArrayEquals(chunk, read(mirror, "nexus-maven-repository-index.gz"));
+        assertArrayEquals(chunk, read(mirror, "nexus-maven-repository-index.gz"));
+        assertArrayEquals(chunk, read(mirror, "nexus-maven-repository-index.1.gz"));
+        assertArrayEquals(chunk, read(mirror, "nexus-maven-repository-index.1.gz"));
+        mirror.close();
+
+        assertEquals(List.of("/nexus-maven-repository-index.gz bytes=8-",
+                "/nexus-maven-repository-index.gz \"v1\"",
+                "/nexus-maven-repository-index.1.gz"), requests);
+        assertFalse(new File(directory, "nexus-maven-repository-index.gz.part").exists());
+    }
+
+    @Test
+    @DisplayName("Index state is only present once it has been committed")
+    void test_commit_state() throws IOException {
+        MavenIndexMirror mirror = new MavenIndexMirror(getUrl(), directory);
+        read(mirror, MavenIndexMirror.PROPERTIES_FILE);
+
+        assertNull(mirror.getStateHandler().locate(MavenIndexMirror.PROPERTIES_FILE).read());
+
+        mirror.commitState();
+        try (InputStream in = mirror.getStateHandler().locate(MavenIndexMirror.PROPERTIES_FILE).read()) {
+            assertArrayEquals(chunk, in.readAllBytes());
+        }
+        mirror.close();
+    }
+
+    private String getUrl(){
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    private static byte[] read(MavenIndexMirror mirror, String name) throws IOException {
+        try (InputStream in = mirror.locate(name).read()) {
+            return in.readAllBytes();
+        }
+    }
+}
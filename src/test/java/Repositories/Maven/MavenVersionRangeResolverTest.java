@@ -61,6 +61,15 @@ class MavenVersionRangeResolverTest {
         assertEquals(target, foundVersions);
     }
 
+    @Test
+    @DisplayName("Finding matching versions for multiple restrictions and exclusive bounds")
+    void test_findMatchingVersions_5(){
+        assertEquals(Set.of("1.0.0", "1.2.3", "2.0.0"), theResolver.findMatchingVersions("[1.0.0],[1.2.3],[2.0.0]", sampleTargetVersions));
+        assertEquals(Set.of("1.0.0", "2.0.0"), theResolver.findMatchingVersions("(,1.0.0],[2.0.0,)", sampleTargetVersions));
+        assertEquals(Set.of("1.2.3", "1.3.3-SNAPSHOT"), theResolver.findMatchingVersions("(1.0.0,2.0.0)", sampleTargetVersions));
+        assertEquals(Set.of("1.0.0", "1.3.3-SNAPSHOT"), theResolver.findMatchingVersions("[1.0.0,1.2.0),(1.2.3,1.3.3]", sampleTargetVersions));
+    }
+
     @Test
     @DisplayName("Identification of actual version ranges")
     void test_isRangeSpecification() {
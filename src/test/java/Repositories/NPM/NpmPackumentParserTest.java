@@ -0,0 +1,84 @@
+package Repositories.NPM;
+
+import Model.Artifact;
+import Model.Package;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NpmPackumentParserTest {
+
+    private static final String packument = "{" +
+            "\"_id\":\"left-pad\"," +
+            "\"versions\":{" +
+            "  \"1.0.0\":{\"name\":\"left-pad\",\"readme\":\"# left-pad\",\"devDependencies\":{\"tape\":\"*\"},\"dependencies\":{\"a\":\"^1.0.0\"}}," +
+            "  \"1.1.0\":{\"dist\":{\"tarball\":\"https://registry.npmjs.org/left-pad/-/left-pad-1.1.0.tgz\"},\"dependencies\":{\"a\":\"^1.1.0\",\"b\":{\"broken\":true}}}" +
+            "}," +
+            "\"readme\":\"" + "x".repeat(10000) + "\"," +
+            "\"dist-tags\":{\"beta\":\"1.2.0-beta\",\"latest\":\"1.1.0\"}," +
+            "\"name\":\"left-pad\"" +
+            "}";
+
+    @Test
+    @DisplayName("Streamed packuments yield the same package as parsing the whole document, wherever the name is")
+    public void test_parse(){
+        Package streamed = parse(packument, (id, version) -> false);
+        Package parsed = new NpmMiner().parsePackage(new JSONObject(packument.replace(",\"b\":{\"broken\":true}", "")));
+
+        assertEquals(parsed.getPackageProps(), streamed.getPackageProps());
+        assertEquals(getDependencies(parsed), getDependencies(streamed));
+
+        Artifact first = streamed.getArtifactList().get(0);
+        assertEquals("a", first.getDependencies().get(0).getName());
+        assertEquals("devDependency", first.getDependencies().get(1).getCustomAttributes().get("type"));
+    }
+
+    @Test
+    @DisplayName("Artifacts that are already present are skipped, documents without name yield no package")
+    public void test_skip_present_artifacts(){
+        Package streamed = parse(packument, (id, version) -> id.equals("npm:left-pad") && version.equals("1.0.0"));
+
+        assertEquals(1, streamed.getArtifactList().size());
+        assertEquals("1.1.0", streamed.getArtifactList().get(0).getVersion());
+
+        assertNull(parse("{\"versions\":{}}", (id, version) -> false));
+        assertThrows(IOException.class, () -> NpmPackumentParser.parse(stream("[]"), (id, version) -> false));
+    }
+
+    @Test
+    @DisplayName("Abbreviated packuments without versions yield no package if versions are required")
+    public void test_require_versions() throws IOException {
+        String abbreviated = "{\"name\":\"left-pad\",\"modified\":\"2023-01-01T00:00:00.000Z\",\"dist-tags\":{\"latest\":\"1.1.0\"}}";
+
+        assertNull(NpmPackumentParser.parse(stream(abbreviated), (id, version) -> false, true));
+        assertTrue(NpmPackumentParser.parse(stream(abbreviated), (id, version) -> false, false).getArtifactList().isEmpty());
+        assertEquals(2, NpmPackumentParser.parse(stream(packument), (id, version) -> false, true).getArtifactList().size());
+    }
+
+    private static Map<String, List<String>> getDependencies(Package p){
+        return p.getArtifactList().stream().collect(Collectors.toMap(Artifact::getVersion,
+                a -> a.getDependencies().stream().map(d -> d.getName() + "@" + d.getVersionRange()).sorted().collect(Collectors.toList())));
+    }
+
+    private static Package parse(String document, BiPredicate<String, String> artifactPresent){
+        try {
+            return NpmPackumentParser.parse(stream(document), artifactPresent);
+        } catch (IOException ex){
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static ByteArrayInputStream stream(String document){
+        return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,11 +5,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Information on NPM versioning:
@@ -123,6 +129,103 @@ public class NpmVersionRangeResolverTest {
         assertResultsIn(">2 || <=2", sampleTargetVersions);
     }
 
+    @Test
+    @DisplayName("Interval resolution matches checking every NPM version")
+    void test_findMatchingVersion_Npm_10(){
+        NpmVersionRangeResolver linearResolver = new NpmVersionRangeResolver();
+        linearResolver.setIntervalResolutionEnabled(false);
+
+        for(String range : List.of("^1.2.0", "^0.2", "^4", "~1.2.3", "~4.17", "~4.x.1", ">=4.17.x", ">3.x", "<=0.3",
+                "<1.x.3", "^1.0.0 || ^4.0.0", ">=1.0.0,<2.0.0", ">=1.0.0 <2.0.0", "!4.17.21")){
+            assertEquals(linearResolver.findMatchingVersions(range, sampleTargetVersions),
+                    theResolver.findMatchingVersions(range, sampleTargetVersions), range);
+        }
+    }
+
+    @Test
+    @DisplayName("Cached containment results are bound to the target version set")
+    void test_findMatchingVersion_Npm_11(){
+        Set<String> targetVersions = new HashSet<>(Set.of("1.0.0", "1.1.0", "2.0.0"));
+
+        assertEquals(Set.of("1.0.0", "1.1.0"), theResolver.findMatchingVersions("^1.0.0", targetVersions));
+        assertEquals(Set.of("1.0.0", "1.1.0"), theResolver.findMatchingVersions("^1.0.0", targetVersions));
+        assertEquals(Set.of("1.0.0", "1.1.0"), theResolver.findMatchingVersions("^1.0.0", Set.of("1.0.0", "1.1.0", "3.0.0")));
+
+        targetVersions.add("1.2.0");
+        assertEquals(Set.of("1.0.0", "1.1.0", "1.2.0"), theResolver.findMatchingVersions("^1.0.0", targetVersions));
+        assertTrue(theResolver.getContainmentCacheStatistics().getHitCount() > 0);
+    }
+
+    @Test
+    @DisplayName("Cached containment results are shared by equal target version sets")
+    void test_findMatchingVersion_Npm_15(){
+        Map<String, String> versionToId = new HashMap<>();
+        for(String version : sampleTargetVersionList) versionToId.put(version, "lodash:" + version);
+
+        Set<String> expectedResult = Set.of("4.17.20", "4.17.21");
+
+        assertEquals(expectedResult, theResolver.findMatchingVersions("^4.17.20", versionToId.keySet()));
+        assertEquals(expectedResult, theResolver.findMatchingVersions("^4.17.20", new HashSet<>(versionToId.keySet())));
+        assertEquals(expectedResult, theResolver.findMatchingVersions("^4.17.20", sampleTargetVersions));
+
+        assertEquals(1, theResolver.getContainmentCacheStatistics().getEntryCount());
+
+        // Results are views of the cached bit set, they cannot be modified by the caller
+        Set<String> result = theResolver.findMatchingVersions("^4.17.20", sampleTargetVersions);
+        assertTrue(result.contains("4.17.21"));
+        assertFalse(result.contains("4.17.19"));
+        assertThrows(UnsupportedOperationException.class, () -> result.add("5.0.0"));
+    }
+
+    @Test
+    @DisplayName("Batch resolution resolves every distinct specification only once")
+    void test_findMatchingVersion_Npm_12(){
+        List<Map.Entry<String, String>> dependencies = List.of(Map.entry("a", "^4.17.20"), Map.entry("b", "4.0.0"),
+                Map.entry("c", "^4.17.20"), Map.entry("d", "^5.0.0"));
+
+        Set<Map.Entry<String, String>> expectedEdges = Set.of(Map.entry("a", "4.17.20"), Map.entry("a", "4.17.21"),
+                Map.entry("b", "4.0.0"), Map.entry("c", "4.17.20"), Map.entry("c", "4.17.21"));
+
+        List<Map.Entry<String, String>> edges = theResolver.findMatchingVersions(dependencies, sampleTargetVersions);
+
+        assertEquals(expectedEdges.size(), edges.size());
+        assertEquals(expectedEdges, new HashSet<>(edges));
+        assertEquals(3, theResolver.getTotalSpecsProcessed());
+    }
+
+    @Test
+    @DisplayName("Specifications differing in whitespace and quotes share their cache entries")
+    void test_findMatchingVersion_Npm_13(){
+        Set<String> expectedResult = Set.of("4.17.20", "4.17.21");
+
+        assertResultsIn(">=4.17.20", expectedResult);
+        assertResultsIn(">= 4.17.20", expectedResult);
+        assertResultsIn("'>=4.17.20'", expectedResult);
+        assertResultsIn("\">=4.17.20 \"", expectedResult);
+
+        assertEquals(3, theResolver.getCollapsedSpecsProcessed());
+        assertEquals(Map.of(">=4.17.20", 3L), theResolver.getCollapsedSpecCounts());
+        assertEquals(1, theResolver.getRepresentationCacheStatistics().getEntryCount());
+        assertEquals(1, theResolver.getContainmentCacheStatistics().getEntryCount());
+    }
+
+    @Test
+    @DisplayName("Unions and intersections of any number of comparators are parsed into one range")
+    void test_findMatchingVersion_Npm_14(){
+        assertEquals("(^1.2.1 || (>=3.9.2 <3.10.0) || 4.17.21)",
+                theResolver.buildVersionRangeRepresentation("^1.2.1 || >=3.9.2 <3.10.0 || 4.17.21").toString());
+
+        assertResultsIn("^1.2.1 || >=3.9.2 <3.10.0 || 4.17.21", Set.of("1.2.1", "1.3.0", "1.3.1", "3.9.2", "3.9.3", "4.17.21"));
+        assertResultsIn(">=4.17.0, <4.17.5, !4.17.2", Set.of("4.17.0", "4.17.1", "4.17.3", "4.17.4"));
+
+        NpmVersionRangeResolver linearResolver = new NpmVersionRangeResolver();
+        linearResolver.setIntervalResolutionEnabled(false);
+
+        for(String range : List.of("^1.2.1 || >=3.9.2 <3.10.0 || ~4.16", ">=0.3 <0.5 || >=4.17.19")){
+            assertEquals(linearResolver.findMatchingVersions(range, sampleTargetVersions),
+                    theResolver.findMatchingVersions(range, sampleTargetVersions), range);
+        }
+    }
 
     private void assertResultsIn(String range, Set<String> expectedResult){
         assertEquals(expectedResult, theResolver.findMatchingVersions(range, sampleTargetVersions));
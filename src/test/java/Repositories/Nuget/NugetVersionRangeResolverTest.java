@@ -80,6 +80,18 @@ public class NugetVersionRangeResolverTest {
         assertResultsIn("[1, 2)", Set.of("1.0.0", "1.0.1", "1.1.0", "1.1.1", "1.2.0", "1.2.1", "1.3.0", "1.3.1", "1.0.2"));
     }
 
+    @Test
+    @DisplayName("Interval resolution matches checking every version")
+    public void test_interval_resolution(){
+        NugetVersionRangeResolver linearResolver = new NugetVersionRangeResolver();
+        linearResolver.setIntervalResolutionEnabled(false);
+
+        for(String range : List.of("[1.0.0-rc.2, 1.1.1)", "(1.0.0-rc.2, 1.1.1]", "(0.5,1.0.0-rc.2]", "(,1.0)", "[4.17.20,)", "4.*", "0.5.0-rc.1")){
+            assertEquals(linearResolver.findMatchingVersions(range, sampleTargetVersions),
+                    theResolver.findMatchingVersions(range, sampleTargetVersions), range);
+        }
+    }
+
     private void assertResultsIn(String range, Set<String> expectedResult){
         assertEquals(expectedResult, theResolver.findMatchingVersions(range, sampleTargetVersions));
     }
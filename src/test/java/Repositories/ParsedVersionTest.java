@@ -0,0 +1,55 @@
+package Repositories;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParsedVersionTest {
+
+    @Test
+    @DisplayName("Segments are parsed leniently")
+    public void test_segments(){
+        ParsedVersion v = ParsedVersion.of(">=1.x.3-beta2");
+
+        assertEquals(3, v.getSegmentCount());
+        assertEquals(1, v.getNumber(0));
+        assertTrue(v.isWildcard(1));
+        assertEquals(-1, v.getNumber(1));
+        assertEquals(32, v.getNumber(2));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> v.getNumber(3));
+    }
+
+    @Test
+    @DisplayName("Lenient number parsing matches legacy behavior")
+    public void test_lenient_numbers(){
+        assertEquals(-1, ParsedVersion.parseLenientNumber(""));
+        assertEquals(-1, ParsedVersion.parseLenientNumber("rc"));
+        assertEquals(42, ParsedVersion.parseLenientNumber("^42"));
+        assertEquals(2147483647, ParsedVersion.parseLenientNumber("2147483647"));
+        assertEquals(-1, ParsedVersion.parseLenientNumber("2147483648"));
+        // Segments longer than 12 characters are cut to 11 characters
+        assertEquals(1234567890, ParsedVersion.parseLenientNumber("a1234567890123"));
+    }
+
+    @Test
+    @DisplayName("Versions are ordered by release parts and qualifier")
+    public void test_ordering(){
+        assertEquals(0, ParsedVersion.of("1.0").compareTo(ParsedVersion.of("1.0.0")));
+        assertTrue(ParsedVersion.of("1.0.0-rc.1").compareTo(ParsedVersion.of("1.0.0")) < 0);
+        assertTrue(ParsedVersion.of("1.0.0-alpha").compareTo(ParsedVersion.of("1.0.0-beta")) < 0);
+        assertTrue(ParsedVersion.of("1.10.0").compareTo(ParsedVersion.of("1.9.0")) > 0);
+        assertTrue(ParsedVersion.of("1.0.0-rc.1").hasSameRelease(ParsedVersion.of("1.0")));
+    }
+
+    @Test
+    @DisplayName("Increasing a release part does not modify the cached instance")
+    public void test_increase(){
+        ParsedVersion base = ParsedVersion.of("1.2.0");
+        ParsedVersion increased = base.withIncreasedReleasePart(1, 1);
+
+        assertEquals(0, increased.compareTo(ParsedVersion.of("1.3.0")));
+        assertEquals(0, base.compareTo(ParsedVersion.of("1.2")));
+        assertSame(base, ParsedVersion.of("1.2.0"));
+    }
+}
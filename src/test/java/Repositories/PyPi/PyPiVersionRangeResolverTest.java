@@ -91,7 +91,8 @@ public class PyPiVersionRangeResolverTest {
                 "0.5.0-rc.1", "0.5.0", "0.5.1", "0.5.2", "0.6.0", "0.6.1", "0.7.0", "0.8.0", "0.8.1", "0.8.2", "0.9.0", "0.9.1", "0.9.2", "0.10.0"));
         assertResultsIn(">2, <=2", Set.of());
         assertResultsIn("<0.3.0, != 0.2", Set.of("0.1.0", "0.2.1", "0.2.2")); // In PyPi, "!= 0.2" should be expanded to "!=0.2.0" and only exclude this exact version number
-        // PyPiVersionRangeResolver doesn't support and with more than two arguments
+        assertResultsIn("!=0.5, >0.4.1, <0.6", Set.of("0.4.2", "0.5.1", "0.5.2"));
+        // Exclusions compare leniently like fixed versions, so "!=1" also excludes the pre-releases of 1.0.0
         //assertResultsIn("!=1, >0.10, <= 1.0.0", Set.of("1.0.0-rc.2", "1.0.0-rc.1", "1.0.0-rc.3")); // In PyPi, "!=1" should be expanded to "!=1.0.0" and only exclude this exact version number
     }
 
@@ -0,0 +1,53 @@
+package Repositories;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RangeSpecMatcherTest {
+
+    private static final String versionPattern = "(v?)((((\\d)+|x).){0,2}((\\d)+|x))(((.)?)((\\w)*))?";
+
+    @Test
+    @DisplayName("Single versions are detected")
+    public void test_versions(){
+        assertTrue(RangeSpecMatcher.isVersion("1.2.3"));
+        assertTrue(RangeSpecMatcher.isVersion("v1.x"));
+        assertTrue(RangeSpecMatcher.isVersion("1.2.3-beta2"));
+        assertTrue(RangeSpecMatcher.isVersion("1.2.3.4"));
+        assertFalse(RangeSpecMatcher.isVersion("^1.2.3"));
+        assertFalse(RangeSpecMatcher.isVersion("1.2.3.4.5"));
+        assertFalse(RangeSpecMatcher.isVersion(""));
+    }
+
+    @Test
+    @DisplayName("Composed elements match like the corresponding regex")
+    public void test_composition(){
+        assertTrue(RangeSpecMatcher.of("^1.2,").literal("^").version().optional(",").matches());
+        assertTrue(RangeSpecMatcher.of("[1.0,2.0)").anyOf("(", "[").version().literal(",").version().anyOf(")", "]").matches());
+        assertTrue(RangeSpecMatcher.of(">=1.0||<0.5").anyOf("", ">", ">=", "<").version().literal("||").anyOf("", ">", ">=", "<").version().matches());
+        assertTrue(RangeSpecMatcher.of("!=123").literal("!=").digits().matches());
+        assertFalse(RangeSpecMatcher.of("!=").literal("!=").digits().matches());
+    }
+
+    @Test
+    @DisplayName("Version matching is equivalent to the version regex")
+    public void test_regex_equivalence(){
+        String alphabet = "0123456789.x,|[]()<>=!^~vX-_ab";
+        Random random = new Random(42);
+
+        for(int i = 0; i < 20000; i++){
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(14);
+            for(int j = 0; j < length; j++) builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            String spec = builder.toString();
+
+            assertEquals(spec.matches(versionPattern), RangeSpecMatcher.isVersion(spec), spec);
+            assertEquals(spec.matches("(\\[)?" + versionPattern + "," + versionPattern + "(\\))?"),
+                    RangeSpecMatcher.of(spec).optional("[").version().literal(",").version().optional(")").matches(), spec);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package Repositories;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionIntervalTest {
+
+    private final ParsedVersion[] sortedVersions = sort("1", "2", "10", "1.0", "1.2", "1.10", "2.0", "x.1", "0.0.1",
+            "1.0.0", "1.2.3", "1.2.3-beta", "1.2.4", "1.3.0", "2.0.0", "2.0.0.1", "3.0.0", "20230101.0.0");
+
+    @Test
+    @DisplayName("Packed keys locate the same versions as the interval predicates")
+    public void test_packed_keys(){
+        long[] keys = VersionInterval.packKeys(sortedVersions);
+        assertNotNull(keys);
+
+        ParsedVersion bound = ParsedVersion.of("1.2.3");
+        List<VersionInterval> intervals = new ArrayList<>();
+
+        for(int count = 1; count <= 3; count++){
+            for(boolean inclusive : new boolean[]{ true, false }){
+                intervals.addAll(VersionInterval.forSegmentCounts(VersionInterval.aboveNumbers(bound, count, inclusive), count));
+                intervals.addAll(VersionInterval.forSegmentCounts(VersionInterval.belowNumbers(bound, count, inclusive), count));
+                intervals.addAll(VersionInterval.forSegmentCounts(VersionInterval.aboveNumbers(bound, count, inclusive)
+                        .intersect(VersionInterval.belowNumbers(bound, 1, inclusive)), count));
+            }
+        }
+        intervals.addAll(VersionInterval.forSegmentCounts(VersionInterval.all(), 1));
+        intervals.addAll(VersionInterval.intersect(
+                VersionInterval.forSegmentCounts(VersionInterval.aboveNumbers(ParsedVersion.of("1.0"), 2, false), 2),
+                VersionInterval.forSegmentCounts(VersionInterval.belowNumbers(ParsedVersion.of("0.1"), 2, false), 2)));
+
+        for(VersionInterval interval : intervals){
+            assertTrue(interval.hasPackedKeys());
+
+            int first = interval.firstIndexIn(sortedVersions);
+            int end = interval.endIndexIn(sortedVersions);
+
+            if(first < end){
+                assertEquals(first, interval.firstIndexIn(keys));
+                assertEquals(end, interval.endIndexIn(keys));
+            } else {
+                assertTrue(interval.firstIndexIn(keys) >= interval.endIndexIn(keys));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Versions and bounds that do not fit into packed keys are not packed")
+    public void test_unpackable(){
+        assertNull(VersionInterval.packKeys(sort("1.0.0", "1.2147483647.0")));
+        assertFalse(VersionInterval.forSegmentCounts(
+                VersionInterval.aboveNumbers(ParsedVersion.of("1.9999999"), 2, true), 2).get(0).hasPackedKeys());
+        assertFalse(VersionInterval.forSegmentCounts(
+                VersionInterval.atLeast(v -> v.getNumber(0) > 1), 1).get(0).hasPackedKeys());
+    }
+
+    private static ParsedVersion[] sort(String... versions) {
+        return Arrays.stream(versions).map(ParsedVersion::of).sorted(VersionInterval.SEGMENT_NUMBER_ORDER).toArray(ParsedVersion[]::new);
+    }
+}
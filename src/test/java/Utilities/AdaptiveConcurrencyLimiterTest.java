@@ -0,0 +1,75 @@
+package Utilities;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    @DisplayName("Limit grows by one per healthy window and is halved on overload signals")
+    public void test_additive_increase_multiplicative_decrease(){
+        AtomicLong overloads = new AtomicLong(0);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 6, overloads::get);
+
+        completeWindow(limiter, 10);
+        assertEquals(5, limiter.getLimit());
+
+        completeWindow(limiter, 10);
+        completeWindow(limiter, 10);
+        assertEquals(6, limiter.getLimit());
+
+        overloads.incrementAndGet();
+        completeWindow(limiter, 10);
+        assertEquals(3, limiter.getLimit());
+
+        // Latencies far above the baseline count as overload as well
+        completeWindow(limiter, 1000);
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Latencies above the baseline shrink the limit by their gradient, until the baseline has followed them")
+    public void test_latency_gradient(){
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 20, () -> 0);
+
+        completeWindow(limiter, 100);
+        assertEquals(11, limiter.getLimit());
+
+        // Tolerated latency is 1.5 * 100 + 100 ms, so the gradient is 250 / 300
+        completeWindow(limiter, 300);
+        assertEquals(9, limiter.getLimit());
+
+        // The baseline moves towards the lasting latency, 120 ms and then 138 ms
+        completeWindow(limiter, 300);
+        assertEquals(8, limiter.getLimit());
+        completeWindow(limiter, 300);
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Operations beyond the limit wait until a permit is released")
+    public void test_waiting_operations(){
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 2, () -> 0);
+
+        assertTrue(limiter.acquire().toCompletableFuture().isDone());
+        assertTrue(limiter.acquire().toCompletableFuture().isDone());
+
+        CompletableFuture<Void> third = limiter.acquire().toCompletableFuture();
+        assertFalse(third.isDone());
+
+        limiter.release(10);
+        assertTrue(third.isDone());
+    }
+
+    private void completeWindow(AdaptiveConcurrencyLimiter limiter, long latencyMillis){
+        int operations = limiter.getLimit();
+
+        for(int i = 0; i < operations; i++) limiter.acquire();
+        for(int i = 0; i < operations; i++) limiter.release(latencyMillis);
+    }
+}
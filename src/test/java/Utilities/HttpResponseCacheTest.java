@@ -0,0 +1,67 @@
+package Utilities;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpResponseCacheTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    @DisplayName("Stored bodies and validators are returned for their key and survive reopening the cache")
+    public void test_put_get() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(directory, 1024 * 1024);
+        cache.put("https://example.org/a", "\"abc\"", "Mon, 01 May 2023 00:00:00 GMT", false, stream("<project/>"));
+
+        HttpResponseCache reopened = new HttpResponseCache(directory, 1024 * 1024);
+        HttpResponseCache.Entry entry = reopened.get("https://example.org/a");
+
+        assertNotNull(entry);
+        assertEquals("\"abc\"", entry.getETag());
+        assertEquals("Mon, 01 May 2023 00:00:00 GMT", entry.getLastModified());
+        assertFalse(entry.isImmutable());
+        assertEquals("<project/>", read(entry));
+        assertEquals(cache.getTotalBytes(), reopened.getTotalBytes());
+
+        assertNull(reopened.get("https://example.org/b"));
+    }
+
+    @Test
+    @DisplayName("Least recently used entries are evicted once the size budget is exceeded")
+    public void test_eviction() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(directory, 1);
+        cache.put("first", null, null, true, stream("first body"));
+
+        assertNull(cache.get("first"));
+        assertEquals(0, cache.getTotalBytes());
+
+        cache = new HttpResponseCache(directory, 1024 * 1024);
+        cache.put("second", null, null, true, stream("second body"));
+        cache.put("second", "\"v2\"", null, false, stream("replaced body"));
+
+        HttpResponseCache.Entry entry = cache.get("second");
+        assertEquals("\"v2\"", entry.getETag());
+        assertEquals("replaced body", read(entry));
+        assertEquals(new HttpResponseCache(directory, 1024 * 1024).getTotalBytes(), cache.getTotalBytes());
+    }
+
+    private static InputStream stream(String body){
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(HttpResponseCache.Entry entry) throws IOException {
+        try (InputStream in = entry.open()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}